@@ -0,0 +1,82 @@
+#!/usr/bin/env bash
+# Compares startup time and request throughput of the default (dev) profile and the prod profile.
+# Each profile runs the packaged jar against its own copy of agile_tool.db.
+#
+#   ./mvnw -q package -DskipTests && scripts/compare-profiles.sh [requests] [concurrency]
+set -euo pipefail
+
+REQUESTS=${1:-2000}
+CONCURRENCY=${2:-8}
+PORT=${PORT:-8097}
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+JAR=$(ls "$ROOT"/target/agile-requirements-tool-*.jar | head -n 1)
+BASE="http://localhost:$PORT"
+
+now() { date +%s.%N; }
+calc() { awk "BEGIN { printf \"%.1f\", $1 }"; }
+
+# Requests per second for <count> requests spread over $CONCURRENCY keep-alive connections
+load() {
+    python3 - "$PORT" "$CONCURRENCY" "$@" <<'PY'
+import http.client, sys, threading, time
+port, workers, method, path, count, cookie = sys.argv[1:7]
+body = sys.argv[7] if len(sys.argv) > 7 else None
+workers, count = int(workers), int(count)
+headers = {"Cookie": cookie, "Content-Type": "application/json"}
+def worker(n):
+    conn = http.client.HTTPConnection("localhost", int(port))
+    for _ in range(n):
+        conn.request(method, path, body=body, headers=headers)
+        conn.getresponse().read()
+start = time.time()
+threads = [threading.Thread(target=worker, args=(count // workers,)) for _ in range(workers)]
+for t in threads: t.start()
+for t in threads: t.join()
+print(f"{count // workers * workers / (time.time() - start):.1f}")
+PY
+}
+
+run_profile() {
+    local profile=$1
+    local work
+    work=$(mktemp -d)
+    cp "$ROOT/agile_tool.db" "$work/"
+    cd "$work"
+
+    local args=(--server.port="$PORT")
+    [ "$profile" != dev ] && args+=(--spring.profiles.active="$profile")
+    local start
+    start=$(now)
+    java -jar "$JAR" "${args[@]}" > app.log 2>&1 &
+    local pid=$!
+    until curl -sf "$BASE/actuator/health" > /dev/null; do sleep 0.1; done
+    local ready
+    ready=$(calc "$(now) - $start")
+    local started
+    started=$(grep -o 'Started [A-Za-z]* in [0-9.]* seconds' app.log | grep -o '[0-9.]* seconds' || echo "?")
+
+    curl -s -c cookies -o /dev/null -X POST -d "username=admin&password=admin" "$BASE/perform-login"
+    local project_id
+    project_id=$(curl -s -b cookies "$BASE/api/projects" | grep -o '"id":[0-9]*' | head -n 1 | cut -d: -f2)
+
+    local cookie
+    cookie=$(awk '$6 == "JSESSIONID" { print "JSESSIONID=" $7 }' cookies)
+    local reads writes
+    reads=$(load GET "/api/stories?projectId=$project_id" "$REQUESTS" "$cookie")
+    # Story creation, a tenth of the read volume
+    writes=$(load POST "/api/stories" $((REQUESTS / 10)) "$cookie" \
+        "{\"title\":\"bench\",\"description\":\"d\",\"projectId\":$project_id}")
+
+    local log_lines
+    log_lines=$(wc -l < app.log)
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+    cd - > /dev/null
+    rm -rf "$work"
+
+    printf "%-6s %14s %16s %10s %11s %10s\n" "$profile" "$ready s" "$started" "$reads" "$writes" "$log_lines"
+}
+
+printf "%-6s %14s %16s %10s %11s %10s\n" profile "until healthy" "Spring 'Started'" "reads/s" "creates/s" "log lines"
+run_profile dev
+run_profile prod
@@ -0,0 +1,72 @@
+#!/usr/bin/env bash
+# Time to first request and resident memory of the plain jar, the AOT + CDS build and the native
+# executable (skipped when it has not been built). Each start runs the prod profile against its own
+# copy of agile_tool.db; the numbers are averages over [runs] starts.
+#
+#   ./mvnw -q -Pfast-start package -DskipTests
+#   ./mvnw -q -Pnative native:compile -DskipTests     # optional, needs GraalVM
+#   scripts/startup-benchmark.sh [runs]
+set -euo pipefail
+
+RUNS=${1:-3}
+PORT=${PORT:-8096}
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+JAR_NAME=$(basename "$(ls "$ROOT"/target/agile-requirements-tool-*.jar | head -n 1)")
+FAST_START="$ROOT/target/fast-start"
+NATIVE="$ROOT/target/agile-requirements-tool"
+ARGS=(--server.port="$PORT" --spring.profiles.active=prod)
+
+now() { date +%s.%N; }
+calc() { awk "BEGIN { printf \"%.2f\", $1 }"; }
+
+# Starts the command in a scratch directory and prints "<seconds to first request> <RSS in MB>"
+measure() {
+    local work
+    work=$(mktemp -d)
+    cp "$ROOT/agile_tool.db" "$work/"
+    local start
+    start=$(now)
+    (cd "$work" && exec "$@" "${ARGS[@]}" --spring.datasource.url="jdbc:sqlite:$work/agile_tool.db" > app.log 2>&1) &
+    local pid=$!
+    until curl -sf "http://localhost:$PORT/actuator/health" > /dev/null; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "failed to start, see $work/app.log" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+    local elapsed
+    elapsed=$(calc "$(now) - $start")
+    local rss_kb
+    rss_kb=$(awk '/VmRSS/ { print $2 }' "/proc/$pid/status")
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+    rm -rf "$work"
+    echo "$elapsed $(calc "$rss_kb / 1024")"
+}
+
+run_variant() {
+    local name=$1
+    shift
+    local total_time=0 total_rss=0
+    for _ in $(seq "$RUNS"); do
+        read -r time rss < <(measure "$@")
+        total_time=$(calc "$total_time + $time")
+        total_rss=$(calc "$total_rss + $rss")
+    done
+    printf "%-10s %20s %12s\n" "$name" "$(calc "$total_time / $RUNS") s" "$(calc "$total_rss / $RUNS") MB"
+}
+
+printf "%-10s %20s %12s\n" variant "first request after" "RSS"
+run_variant jvm java -jar "$ROOT/target/$JAR_NAME"
+if [ -f "$FAST_START/application.jsa" ]; then
+    run_variant aot+cds java -XX:SharedArchiveFile="$FAST_START/application.jsa" -Dspring.aot.enabled=true \
+        -jar "$FAST_START/$JAR_NAME"
+else
+    echo "aot+cds    not built (./mvnw -Pfast-start package)"
+fi
+if [ -x "$NATIVE" ]; then
+    run_variant native "$NATIVE"
+else
+    echo "native     not built (./mvnw -Pnative native:compile)"
+fi
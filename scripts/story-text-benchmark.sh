@@ -0,0 +1,76 @@
+#!/usr/bin/env bash
+# Seeds a scratch copy of agile_tool.db with stories carrying multi-KB descriptions, then compares
+# the story list with and without text (response size and latency over [requests] calls) and how
+# much the database grew against the raw text written.
+#
+#   ./mvnw -q package -DskipTests
+#   scripts/story-text-benchmark.sh [stories] [requests]
+set -euo pipefail
+
+STORIES=${1:-300}
+REQUESTS=${2:-50}
+PORT=${PORT:-8095}
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+JAR=$(ls "$ROOT"/target/agile-requirements-tool-*.jar | head -n 1)
+BASE="http://localhost:$PORT"
+WORK=$(mktemp -d)
+COOKIES="$WORK/cookies.txt"
+
+calc() { awk "BEGIN { printf \"%.2f\", $1 }"; }
+
+start() {
+    (cd "$WORK" && exec java -jar "$JAR" --server.port="$PORT" --logging.level.root=WARN \
+        --spring.datasource.url="jdbc:sqlite:$WORK/agile_tool.db" >> app.log 2>&1) &
+    PID=$!
+    until curl -sf "$BASE/actuator/health" > /dev/null; do
+        kill -0 "$PID" 2> /dev/null || { echo "failed to start, see $WORK/app.log" >&2; exit 1; }
+        sleep 0.2
+    done
+    curl -sf -c "$COOKIES" -o /dev/null -d "username=admin&password=admin" "$BASE/perform-login"
+}
+
+# A clean shutdown checkpoints the WAL, so the file size then includes everything written
+stop() {
+    kill "$PID"
+    wait "$PID" 2> /dev/null || true
+}
+
+db_bytes() { stat -c %s "$WORK/agile_tool.db"; }
+
+cp "$ROOT/agile_tool.db" "$WORK/"
+trap 'kill "$PID" 2> /dev/null || true; rm -rf "$WORK"' EXIT
+start
+size_before=$(db_bytes)
+raw_bytes=0
+for i in $(seq "$STORIES"); do
+    description=$(for line in $(seq 40); do
+        printf 'Story %d step %d: as a planner I want the board to keep estimates and notes in sync. ' "$i" "$line"
+    done)
+    criteria="Given story $i is on the board, when it is moved, then its rank and estimate are kept."
+    raw_bytes=$((raw_bytes + ${#description} + ${#criteria}))
+    curl -sf -b "$COOKIES" -o /dev/null -H 'Content-Type: application/json' -X POST "$BASE/api/stories" \
+        -d "{\"title\":\"Benchmark story $i\",\"description\":\"$description\",\"acceptanceCriteria\":\"$criteria\",\"priority\":\"MEDIUM\",\"projectId\":1}"
+done
+stop
+size_after=$(db_bytes)
+start
+
+# Prints "<average bytes> <average ms>" for the list endpoint with the given query string
+measure() {
+    local url="$BASE/api/stories?projectId=1&$1" total_bytes=0 total_seconds=0 bytes seconds
+    for _ in $(seq 5); do curl -sf -b "$COOKIES" -o /dev/null "$url"; done
+    for _ in $(seq "$REQUESTS"); do
+        read -r bytes seconds < <(curl -sf -b "$COOKIES" -o /dev/null -w '%{size_download} %{time_total}\n' "$url")
+        total_bytes=$((total_bytes + bytes))
+        total_seconds=$(calc "$total_seconds + $seconds")
+    done
+    echo "$((total_bytes / REQUESTS)) $(calc "$total_seconds * 1000 / $REQUESTS")"
+}
+
+printf "%-14s %14s %12s\n" "list" "response" "latency"
+read -r bytes ms < <(measure includeText=true)
+printf "%-14s %11s KB %9s ms\n" "with text" "$(calc "$bytes / 1024")" "$ms"
+read -r bytes ms < <(measure includeText=false)
+printf "%-14s %11s KB %9s ms\n" "without text" "$(calc "$bytes / 1024")" "$ms"
+echo
+echo "raw text written: $(calc "$raw_bytes / 1048576") MB, database grew by $(calc "($size_after - $size_before) / 1048576") MB"
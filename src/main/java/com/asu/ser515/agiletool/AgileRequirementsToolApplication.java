@@ -1,13 +1,18 @@
 package com.asu.ser515.agiletool;
 
+import com.asu.ser515.agiletool.config.StartupReport;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 
 @SpringBootApplication
 public class AgileRequirementsToolApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(AgileRequirementsToolApplication.class, args);
+		SpringApplication app = new SpringApplication(AgileRequirementsToolApplication.class);
+		// Records startup steps for StartupReport
+		app.setApplicationStartup(new BufferingApplicationStartup(StartupReport.CAPACITY));
+		app.run(args);
 	}
 
 }
@@ -2,7 +2,9 @@ package com.asu.ser515.agiletool.config;
 
 import com.asu.ser515.agiletool.models.*;
 import com.asu.ser515.agiletool.repository.*;
+import com.asu.ser515.agiletool.service.BacklogRankService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Component;
@@ -31,27 +33,25 @@ public class DataInitializer implements CommandLineRunner {
     @Autowired
     private BCryptPasswordEncoder passwordEncoder;
 
+    @Autowired
+    private BacklogRankService backlogRankService;
+
+    @Value("${demo-data.enabled:false}")
+    private boolean demoDataEnabled;
+
+    // One-off data fixes (e.g. backfilling project codes) are Flyway migrations, so they run once
+    // instead of scanning tables on every start
     @Override
     public void run(String... args) throws Exception {
         createDefaultAdminAccount();
-        migrateProjectCodes();
-        createMockData();
-    }
-
-    private void migrateProjectCodes() {
-        List<Project> projects = projectRepository.findAll();
-        for (Project p : projects) {
-            if (p.getProjectCode() == null || p.getProjectCode().isEmpty()) {
-                p.setProjectCode(UUID.randomUUID().toString().substring(0, 8).toUpperCase());
-                projectRepository.save(p);
-                System.out.println("Generated code for project " + p.getName() + ": " + p.getProjectCode());
-            }
+        if (demoDataEnabled) {
+            createMockData();
         }
     }
 
     private void createDefaultAdminAccount() {
         // Check if admin account already exists
-        if (userRepository.findByUsername("admin").isPresent()) {
+        if (userRepository.existsByUsername("admin")) {
             System.out.println("Default admin account already exists");
             return;
         }
@@ -78,7 +78,7 @@ public class DataInitializer implements CommandLineRunner {
 
     private void createMockData() {
         // Check if mock data already exists
-        if (projectRepository.findByProjectKey("DEMO").isPresent()) {
+        if (projectRepository.existsByProjectKey("DEMO")) {
             System.out.println("Mock data already exists");
             return;
         }
@@ -118,9 +118,11 @@ public class DataInitializer implements CommandLineRunner {
     }
 
     private User createUser(String username, String email, String fullName, UserRole role) {
-        if (userRepository.findByUsername(username).isPresent()) {
-            return userRepository.findByUsername(username).get();
-        }
+        return userRepository.findByUsername(username)
+                .orElseGet(() -> saveUser(username, email, fullName, role));
+    }
+
+    private User saveUser(String username, String email, String fullName, UserRole role) {
         User user = new User();
         user.setUsername(username);
         user.setEmail(email);
@@ -173,6 +175,7 @@ public class DataInitializer implements CommandLineRunner {
         story.setSprintReady(sprintReady);
         story.setIsMvp(isMvp);
         story.setStoryKey(project.getProjectKey() + "-" + System.currentTimeMillis() % 10000);
+        story.setBacklogRank(backlogRankService.nextRank(project.getId()));
         userStoryRepository.save(story);
     }
 }
@@ -0,0 +1,69 @@
+package com.asu.ser515.agiletool.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hibernate second-level cache for reference data (projects, release plans, users) so repeated
+ * lookups by id, key or code stop hitting SQLite. Regions are bounded Caffeine caches with a TTL;
+ * Hibernate evicts entries itself on update, delete and bulk/native statements. Hit and miss
+ * counts are published per region as {@code hibernate.second.level.cache.requests}.
+ */
+@Configuration
+public class EntityCacheConfig {
+
+    public static final String PROJECTS = "projects";
+    public static final String RELEASE_PLANS = "release-plans";
+    public static final String USERS = "users";
+    public static final String USER_ROLES = "users.roles";
+    public static final String LOOKUP_QUERIES = "lookup-queries";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager entityCacheManager(@Value("${cache.entity.max-entries:10000}") long maxEntries,
+                                           @Value("${cache.entity.ttl-seconds:600}") long ttlSeconds) {
+        // The provider's default manager is JVM-wide, so a second context would find its regions taken
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("agile-tool:entity-cache:" + UUID.randomUUID()),
+                        EntityCacheConfig.class.getClassLoader());
+        for (String region : new String[] {PROJECTS, RELEASE_PLANS, USERS, USER_ROLES, LOOKUP_QUERIES}) {
+            cacheManager.createCache(region, bounded(maxEntries, ttlSeconds));
+        }
+        // Table modification timestamps guard query results and must never be evicted early
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, unbounded());
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                bounded(maxEntries, ttlSeconds));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheCustomizer(CacheManager entityCacheManager) {
+        return properties -> properties.put("hibernate.javax.cache.cache_manager", entityCacheManager);
+    }
+
+    private static CaffeineConfiguration<Object, Object> bounded(long maxEntries, long ttlSeconds) {
+        CaffeineConfiguration<Object, Object> config = unbounded();
+        config.setMaximumSize(OptionalLong.of(maxEntries));
+        config.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+        return config;
+    }
+
+    private static CaffeineConfiguration<Object, Object> unbounded() {
+        CaffeineConfiguration<Object, Object> config = new CaffeineConfiguration<>();
+        // Hibernate already stores disassembled state, so copying on every access is wasted work
+        config.setStoreByValue(false);
+        config.setStatisticsEnabled(true);
+        return config;
+    }
+}
@@ -0,0 +1,39 @@
+package com.asu.ser515.agiletool.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.PropertyFilter;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.hibernate.Hibernate;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Entities annotated with {@code @JsonFilter(JsonConfig.LOADED_ONLY)} leave lazy attributes that
+ * were never loaded out of their JSON, instead of reading them just to render the response (or
+ * failing once the session is closed). Clients merge responses into what they already hold.
+ */
+@Configuration
+public class JsonConfig {
+
+    public static final String LOADED_ONLY = "loadedOnly";
+
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer loadedAttributesOnly() {
+        PropertyFilter filter = new SimpleBeanPropertyFilter() {
+            @Override
+            public void serializeAsField(Object pojo, JsonGenerator gen, SerializerProvider provider,
+                                         PropertyWriter writer) throws Exception {
+                if (Hibernate.isPropertyInitialized(pojo, writer.getName())) {
+                    writer.serializeAsField(pojo, gen, provider);
+                } else if (!gen.canOmitFields()) {
+                    writer.serializeAsOmittedField(pojo, gen, provider);
+                }
+            }
+        };
+        return builder -> builder.filters(new SimpleFilterProvider().addFilter(LOADED_ONLY, filter));
+    }
+}
@@ -0,0 +1,180 @@
+package com.asu.ser515.agiletool.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Which SQLite file holds each project's data. Every project starts in the main database (shard
+ * 0); {@link com.asu.ser515.agiletool.service.ShardSplitService} moves a project into its own
+ * file, {@code shard-<n>.db} under {@code sqlite.shards.dir}. Users, projects and memberships
+ * always stay in the main file, which shard connections attach read-only as {@code shared}, so
+ * queries joining them work unchanged on every shard.
+ *
+ * <p>A shard is bound to the thread before its transaction starts, with {@link #useProject},
+ * {@link #useEntity} or {@link #useShard}; web requests are bound from their path by
+ * {@link ShardRoutingInterceptor}. Nothing bound means the main database. Shard {@code n} hands
+ * out ids from {@code n << 40}, so the shard of a story, task or release plan can be read off its id.
+ */
+@Component
+public class ProjectShards {
+
+    public static final int MAIN = 0;
+    public static final int MAX_SHARD = 1023;
+    public static final int ID_BITS = 40;
+    private static final long LOCAL_ID_MASK = (1L << ID_BITS) - 1;
+
+    /** Tables holding project data, parents before children; everything else stays in the main file. */
+    public static final List<String> PROJECT_TABLES = List.of(
+            "release_plans", "sprints", "user_stories", "tasks", "story_dependencies",
+            "story_status_transitions", "story_audit_log", "flow_weekly_stats");
+
+    private record Binding(int shard, Long projectId) {
+    }
+
+    private static final ThreadLocal<Binding> BOUND = new ThreadLocal<>();
+
+    private final JdbcTemplate mainJdbc;
+    private volatile Map<Long, Integer> projects;
+
+    public ProjectShards(@Qualifier("sqliteReadPool") DataSource mainReadPool) {
+        this.mainJdbc = new JdbcTemplate(mainReadPool);
+    }
+
+    /** The shard bound to this thread, {@link #MAIN} when none is. */
+    public static int current() {
+        Binding binding = BOUND.get();
+        return binding == null ? MAIN : binding.shard();
+    }
+
+    /** First id handed out by a shard, less one. */
+    public static long idBase(int shard) {
+        return (long) shard << ID_BITS;
+    }
+
+    /** The id within its shard, as shown in keys. */
+    public static long localId(long id) {
+        return id & LOCAL_ID_MASK;
+    }
+
+    public int shardOf(Long projectId) {
+        return projectId == null ? MAIN : mapping().getOrDefault(projectId, MAIN);
+    }
+
+    /** The shard a story, task or release plan id was handed out by; unknown shards read as main. */
+    public int shardOfId(Long id) {
+        if (id == null || id < 0) {
+            return MAIN;
+        }
+        int shard = (int) (id >>> ID_BITS);
+        return shard == MAIN || mapping().containsValue(shard) ? shard : MAIN;
+    }
+
+    /** Main first, then every shard holding a project. */
+    public List<Integer> all() {
+        TreeSet<Integer> shards = new TreeSet<>(mapping().values());
+        shards.add(MAIN);
+        return new ArrayList<>(shards);
+    }
+
+    public Scope useProject(Long projectId) {
+        return bind(new Binding(shardOf(projectId), projectId));
+    }
+
+    public Scope useEntity(Long id) {
+        return bind(new Binding(shardOfId(id), null));
+    }
+
+    public Scope useShard(int shard) {
+        return bind(new Binding(shard, null));
+    }
+
+    /** Runs the query on every shard in turn and concatenates the results, main first. */
+    public <T> List<T> collect(Supplier<? extends Collection<T>> query) {
+        List<T> all = new ArrayList<>();
+        for (int shard : all()) {
+            try (Scope ignored = useShard(shard)) {
+                Collection<T> rows = query.get();
+                if (rows != null) {
+                    all.addAll(rows);
+                }
+            }
+        }
+        return all;
+    }
+
+    /**
+     * True when the thread was bound to a project that has since moved to another shard, e.g.
+     * while its write waited for the writer of the old one.
+     */
+    public boolean movedSinceBound() {
+        Binding binding = BOUND.get();
+        return binding != null && binding.projectId() != null && shardOf(binding.projectId()) != binding.shard();
+    }
+
+    /** Re-reads the project mapping; called once a move has committed. */
+    public void reload() {
+        projects = load();
+    }
+
+    private Map<Long, Integer> mapping() {
+        Map<Long, Integer> loaded = projects;
+        if (loaded == null) {
+            synchronized (this) {
+                if (projects == null) {
+                    projects = load();
+                }
+                loaded = projects;
+            }
+        }
+        return loaded;
+    }
+
+    private Map<Long, Integer> load() {
+        Map<Long, Integer> loaded = new HashMap<>();
+        mainJdbc.query("SELECT project_id, shard FROM project_shards",
+                row -> { loaded.put(row.getLong(1), row.getInt(2)); });
+        return Map.copyOf(loaded);
+    }
+
+    private Scope bind(Binding binding) {
+        Binding previous = BOUND.get();
+        int from = previous == null ? MAIN : previous.shard();
+        // The open transaction's connection stays on its shard until it completes
+        if (from != binding.shard() && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Cannot switch from shard " + from + " to shard " + binding.shard()
+                    + " inside a transaction");
+        }
+        BOUND.set(binding);
+        return new Scope(previous);
+    }
+
+    /** Restores the previous binding when closed. */
+    public static final class Scope implements AutoCloseable {
+
+        private final Binding previous;
+
+        private Scope(Binding previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                BOUND.remove();
+            } else {
+                BOUND.set(previous);
+            }
+        }
+    }
+}
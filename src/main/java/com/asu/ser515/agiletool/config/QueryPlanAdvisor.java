@@ -0,0 +1,247 @@
+package com.asu.ser515.agiletool.config;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Runs EXPLAIN QUERY PLAN on the SQL behind every repository query method at startup and reports
+ * filtered queries that scan a table or sort their results in a temporary b-tree, i.e. that are
+ * missing an index. Each method is called once with placeholder arguments (id 0, which matches no
+ * row) inside a transaction that is always rolled back, and the statements Hibernate prepares are
+ * recorded by {@link #RECORDER}. Only {@code @Modifying} queries get a write transaction.
+ *
+ * <p>{@code sqlite.index-advisor.mode}: {@code off}, {@code report} (log findings) or
+ * {@code fail} (refuse to start).
+ */
+@Component
+public class QueryPlanAdvisor implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryPlanAdvisor.class);
+
+    public enum Mode { OFF, REPORT, FAIL }
+
+    /** Registered with Hibernate in {@link SQLiteConfig}; records statements only while the advisor runs. */
+    public static final StatementInspector RECORDER = new StatementInspector() {
+        @Override
+        public String inspect(String sql) {
+            Set<String> recorded = RECORDING.get();
+            if (recorded != null) {
+                recorded.add(sql);
+            }
+            return sql;
+        }
+    };
+
+    private static final ThreadLocal<Set<String>> RECORDING = new ThreadLocal<>();
+    private static final Pattern WHERE = Pattern.compile("\\bwhere\\b", Pattern.CASE_INSENSITIVE);
+
+    record Finding(String query, String sql, List<String> plan) {
+    }
+
+    record Report(List<Finding> findings, List<String> unplanned) {
+    }
+
+    private final Mode mode;
+    private final ApplicationContext context;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTx;
+    private final TransactionTemplate writeTx;
+    private final JdbcTemplate readJdbc;
+
+    public QueryPlanAdvisor(@Value("${sqlite.index-advisor.mode:off}") String mode,
+                            ApplicationContext context,
+                            EntityManager entityManager,
+                            PlatformTransactionManager transactionManager,
+                            @Qualifier("sqliteReadPool") DataSource readPool) {
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        this.context = context;
+        this.entityManager = entityManager;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.writeTx = new TransactionTemplate(transactionManager);
+        this.readJdbc = new JdbcTemplate(readPool);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (mode == Mode.OFF) {
+            return;
+        }
+        Report result = analyze();
+        if (!result.unplanned().isEmpty()) {
+            log.warn("Index advisor: no SQL recorded for {}", String.join(", ", result.unplanned()));
+        }
+        List<Finding> findings = result.findings();
+        if (findings.isEmpty()) {
+            log.info("Index advisor: every filtered repository query uses an index");
+            return;
+        }
+        StringBuilder report = new StringBuilder("Index advisor: " + findings.size()
+                + " repository queries scan or sort without an index");
+        for (Finding finding : findings) {
+            report.append("\n  ").append(finding.query())
+                    .append("\n    ").append(finding.sql());
+            finding.plan().forEach(line -> report.append("\n    -> ").append(line));
+        }
+        if (mode == Mode.FAIL) {
+            throw new IllegalStateException(report.toString());
+        }
+        log.warn("{}", report);
+    }
+
+    Report analyze() {
+        Repositories repositories = new Repositories(context);
+        List<RepositoryInformation> infos = new ArrayList<>();
+        repositories.forEach(type -> repositories.getRepositoryInformationFor(type).ifPresent(infos::add));
+        infos.sort(Comparator.comparing(info -> info.getRepositoryInterface().getSimpleName()));
+
+        List<Finding> findings = new ArrayList<>();
+        List<String> unplanned = new ArrayList<>();
+        for (RepositoryInformation info : infos) {
+            Object repository = repositories.getRepositoryFor(info.getDomainType()).orElseThrow();
+            List<Method> methods = info.getQueryMethods().stream()
+                    .sorted(Comparator.comparing(Method::getName))
+                    .toList();
+            for (Method method : methods) {
+                String query = info.getRepositoryInterface().getSimpleName() + "." + method.getName();
+                for (String sql : record(repository, method, unplanned, query)) {
+                    List<String> plan = readJdbc.query("EXPLAIN QUERY PLAN " + sql, (rs, n) -> rs.getString("detail"));
+                    if (WHERE.matcher(sql).find() && plan.stream().anyMatch(QueryPlanAdvisor::isScan)) {
+                        findings.add(new Finding(query, sql, plan));
+                    }
+                }
+            }
+        }
+        return new Report(findings, unplanned);
+    }
+
+    private Set<String> record(Object repository, Method method, List<String> unplanned, String query) {
+        Set<String> recorded = new LinkedHashSet<>();
+        Throwable[] failure = new Throwable[1];
+        try {
+            TransactionTemplate tx = method.isAnnotationPresent(Modifying.class) ? writeTx : readOnlyTx;
+            tx.executeWithoutResult(status -> {
+                status.setRollbackOnly();
+                RECORDING.set(recorded);
+                try {
+                    Object result = method.invoke(repository, placeholders(method));
+                    if (result instanceof Stream<?> stream) {
+                        stream.close();
+                    }
+                } catch (InvocationTargetException e) {
+                    failure[0] = e.getCause();
+                } catch (IllegalAccessException e) {
+                    failure[0] = e;
+                } finally {
+                    RECORDING.remove();
+                }
+            });
+        } catch (RuntimeException e) {
+            if (failure[0] == null) {
+                failure[0] = e;
+            }
+        }
+        if (recorded.isEmpty()) {
+            unplanned.add(query + (failure[0] == null ? "" : " (" + failure[0].getMessage() + ")"));
+        }
+        return recorded;
+    }
+
+    private static boolean isScan(String planLine) {
+        // Grouping or de-duplicating the rows an index already narrowed down is cheap; sorting them is not
+        return planLine.startsWith("SCAN ") || planLine.startsWith("USE TEMP B-TREE FOR ORDER BY");
+    }
+
+    private Object[] placeholders(Method method) {
+        Type[] types = method.getGenericParameterTypes();
+        Object[] args = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            args[i] = placeholder(types[i]);
+        }
+        return args;
+    }
+
+    private Object placeholder(Type type) {
+        if (type instanceof ParameterizedType parameterized) {
+            Class<?> raw = (Class<?>) parameterized.getRawType();
+            if (Collection.class.isAssignableFrom(raw)) {
+                return List.of(placeholder(parameterized.getActualTypeArguments()[0]));
+            }
+            return placeholder(raw);
+        }
+        Class<?> cls = (Class<?>) type;
+        if (cls == Long.class || cls == long.class) {
+            return 0L;
+        }
+        if (cls == Integer.class || cls == int.class) {
+            return 0;
+        }
+        if (cls == Boolean.class || cls == boolean.class) {
+            return false;
+        }
+        if (cls == String.class) {
+            return "";
+        }
+        if (cls == LocalDate.class) {
+            return LocalDate.now();
+        }
+        if (cls == LocalDateTime.class) {
+            return LocalDateTime.now();
+        }
+        if (cls.isEnum()) {
+            return cls.getEnumConstants()[0];
+        }
+        if (cls == Limit.class) {
+            return Limit.of(1);
+        }
+        if (cls == Pageable.class) {
+            return Pageable.ofSize(1);
+        }
+        if (cls == Sort.class) {
+            return Sort.unsorted();
+        }
+        if (Collection.class.isAssignableFrom(cls)) {
+            return List.of(0L);
+        }
+        if (cls.isAnnotationPresent(Entity.class)) {
+            Class<?> idType = entityManager.getMetamodel().entity(cls).getIdType().getJavaType();
+            return entityManager.getReference(cls, placeholder(idType));
+        }
+        return null;
+    }
+}
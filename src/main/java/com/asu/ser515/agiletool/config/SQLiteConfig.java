@@ -1,27 +1,187 @@
 package com.asu.ser515.agiletool.config;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.context.spi.CurrentTenantIdentifierResolver;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
 import java.sql.SQLException;
 
+/**
+ * SQLite access through two connection pools behind one routing DataSource. Read-only
+ * transactions get read-only connections and, with WAL, never wait for the writer. Read-write
+ * transactions start with BEGIN IMMEDIATE, so they queue for SQLite's single write lock (up to the
+ * busy timeout) when they begin, instead of failing with SQLITE_BUSY when a transaction that
+ * has already read tries to upgrade to a write. Connections are opened on demand and closed
+ * after sitting idle. Write transactions are admitted one at a time by
+ * {@link SerializedWriteTransactionManager}, so they queue in the application rather than in
+ * SQLite's busy handler. Every connection also attaches the cold-story archive (see
+ * {@link com.asu.ser515.agiletool.service.StoryArchiveService}) as schema {@code archive}.
+ *
+ * <p>Projects moved into shard files (see {@link ProjectShards}) are reached through the same
+ * DataSource: it routes each connection to the pools of the shard bound to the thread, which
+ * {@link ShardPools} opens on first use and closes once idle.
+ */
 @Configuration
 public class SQLiteConfig {
-    
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${sqlite.busy-timeout-ms:5000}")
+    private int busyTimeoutMillis;
+
+    @Value("${sqlite.pool.idle-timeout-ms:60000}")
+    private long idleTimeoutMillis;
+
+    @Value("${sqlite.journal-mode:WAL}")
+    private String journalMode;
+
+    @Value("${archive.file:${user.dir}/agile_tool_archive.db}")
+    private String archiveFile;
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource sqliteWritePool(@Value("${sqlite.pool.write-size:2}") int poolSize) {
+        return pool("sqlite-write", writePragmas(), poolSize, false);
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource sqliteReadPool(@Value("${sqlite.pool.read-size:8}") int poolSize) {
+        return pool("sqlite-read", readPragmas(), poolSize, true);
+    }
+
+    @Bean(destroyMethod = "close")
+    public ShardPools shardPools(@Value("${sqlite.shards.dir:${user.dir}/shards}") String directory,
+                                 @Value("${sqlite.shards.write-size:2}") int writeSize,
+                                 @Value("${sqlite.shards.read-size:4}") int readSize,
+                                 @Value("${sqlite.shards.idle-close-ms:300000}") long idleCloseMillis,
+                                 MeterRegistry meterRegistry) {
+        String file = url.replaceFirst("^jdbc:sqlite:", "").replaceFirst("^file:", "");
+        int query = file.indexOf('?');
+        Path databaseFile = Paths.get(query < 0 ? file : file.substring(0, query)).toAbsolutePath();
+        return new ShardPools(Paths.get(directory), databaseFile, Paths.get(archiveFile).toAbsolutePath(),
+                writePragmas(), readPragmas(), writeSize, readSize, idleTimeoutMillis, idleCloseMillis, meterRegistry);
+    }
+
+    /**
+     * The connection is only fetched on the first statement, once Spring has marked the
+     * transaction read-only or not, so each transaction lands on the matching pool of its shard.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("sqliteWritePool") DataSource writePool,
+                                 @Qualifier("sqliteReadPool") DataSource readPool, ShardPools shardPools) {
+        LazyConnectionDataSourceProxy dataSource =
+                new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(writePool, shardPools, false));
+        dataSource.setReadOnlyDataSource(new ShardRoutingDataSource(readPool, shardPools, true));
+        return dataSource;
+    }
+
+    @Bean
+    public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory,
+                                                         ProjectShards projectShards, MeterRegistry meterRegistry,
+                                                         ObjectProvider<TransactionManagerCustomizers> customizers,
+                                                         @Value("${sqlite.write-queue.timeout-ms:10000}") long timeoutMillis) {
+        SerializedWriteTransactionManager transactionManager = new SerializedWriteTransactionManager(
+                entityManagerFactory, projectShards, meterRegistry, timeoutMillis);
+        customizers.ifAvailable(c -> c.customize(transactionManager));
+        return transactionManager;
+    }
+
+    /**
+     * Sessions carry their shard as tenant, which keeps cached query results of one shard from
+     * answering another. Entity ids are unique across shards, so entity cache keys leave it out
+     * and a shared user or project is cached once.
+     */
     @Bean
-    public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName("org.sqlite.JDBC");
-        dataSource.setUrl("jdbc:sqlite:agile_tool.db");
-        
-        try {
-            dataSource.getConnection().createStatement().execute("PRAGMA foreign_keys = ON;");
+    public HibernatePropertiesCustomizer shardTenants() {
+        return properties -> {
+            properties.put(AvailableSettings.MULTI_TENANT_IDENTIFIER_RESOLVER, new CurrentTenantIdentifierResolver<String>() {
+                @Override
+                public String resolveCurrentTenantIdentifier() {
+                    return String.valueOf(ProjectShards.current());
+                }
+
+                @Override
+                public boolean validateExistingCurrentSessions() {
+                    return false;
+                }
+            });
+            properties.put(AvailableSettings.CACHE_KEYS_FACTORY, "simple");
+        };
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer queryPlanRecorder(@Value("${sqlite.index-advisor.mode:off}") String mode) {
+        return properties -> {
+            if (!"off".equalsIgnoreCase(mode.trim())) {
+                properties.put(AvailableSettings.STATEMENT_INSPECTOR, QueryPlanAdvisor.RECORDER);
+            }
+        };
+    }
+
+    private org.sqlite.SQLiteConfig writePragmas() {
+        org.sqlite.SQLiteConfig pragmas = basePragmas();
+        pragmas.setJournalMode(org.sqlite.SQLiteConfig.JournalMode.valueOf(journalMode.toUpperCase()));
+        // NORMAL is durable across application crashes in WAL mode; only an OS crash can lose the last commits
+        pragmas.setSynchronous(org.sqlite.SQLiteConfig.SynchronousMode.NORMAL);
+        pragmas.setTransactionMode(org.sqlite.SQLiteConfig.TransactionMode.IMMEDIATE);
+        return pragmas;
+    }
+
+    private org.sqlite.SQLiteConfig readPragmas() {
+        org.sqlite.SQLiteConfig pragmas = basePragmas();
+        pragmas.setReadOnly(true);
+        return pragmas;
+    }
+
+    private org.sqlite.SQLiteConfig basePragmas() {
+        org.sqlite.SQLiteConfig pragmas = new org.sqlite.SQLiteConfig();
+        pragmas.enforceForeignKeys(true);
+        pragmas.setBusyTimeout(busyTimeoutMillis);
+        return pragmas;
+    }
+
+    private HikariDataSource pool(String name, org.sqlite.SQLiteConfig pragmas, int poolSize, boolean readOnly) {
+        HikariConfig hikari = new HikariConfig();
+        hikari.setPoolName(name);
+        hikari.setDriverClassName("org.sqlite.JDBC");
+        hikari.setJdbcUrl(url);
+        hikari.setDataSourceProperties(pragmas.toProperties());
+        hikari.setMaximumPoolSize(poolSize);
+        hikari.setMinimumIdle(0);
+        hikari.setIdleTimeout(idleTimeoutMillis);
+        // Hikari applies its own read-only flag to each connection; SQLite only accepts the one it was opened with
+        hikari.setReadOnly(readOnly);
+        hikari.setConnectionInitSql("ATTACH DATABASE '" + archiveFile.replace("'", "''") + "' AS archive");
+        createArchiveFile();
+        return new HikariDataSource(hikari);
+    }
+
+    /** Read-only connections cannot attach a file that does not exist yet. */
+    private void createArchiveFile() {
+        org.sqlite.SQLiteConfig pragmas = basePragmas();
+        pragmas.setJournalMode(org.sqlite.SQLiteConfig.JournalMode.WAL);
+        try (Connection connection = pragmas.createConnection("jdbc:sqlite:" + archiveFile)) {
+            // Opening the file with the journal mode pragma is enough to create it
         } catch (SQLException e) {
-            throw new RuntimeException("Failed to enable foreign keys", e);
+            throw new IllegalStateException("Cannot open story archive " + archiveFile, e);
         }
-        
-        return dataSource;
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,11 @@
 package com.asu.ser515.agiletool.config;
 
 import com.asu.ser515.agiletool.service.CustomUserDetailsService;
+import com.asu.ser515.agiletool.service.LoginUserCache;
+import com.asu.ser515.agiletool.service.PasswordHashingRejectedException;
+import com.asu.ser515.agiletool.service.PasswordHashingService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -19,16 +23,23 @@ public class SecurityConfig {
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
+    // Stored hashes with a lower cost are rehashed to this strength on the next successful login
+    @Value("${security.bcrypt.strength:10}")
+    private int bcryptStrength;
+
     @Bean
     public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 
     @Bean
-    public DaoAuthenticationProvider authenticationProvider() {
+    public DaoAuthenticationProvider authenticationProvider(PasswordHashingService passwordHashingService,
+                                                            LoginUserCache loginUserCache) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setUserDetailsPasswordService(userDetailsService);
+        authProvider.setPasswordEncoder(passwordHashingService);
+        authProvider.setUserCache(loginUserCache);
         return authProvider;
     }
 
@@ -41,6 +52,8 @@ public class SecurityConfig {
                 .requestMatchers("/api/users/**").authenticated()
                 .requestMatchers("/api/**").permitAll()
                 .requestMatchers("/", "/index.html", "/assets/**", "/static/**").permitAll()
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/actuator/**").hasRole("SYSTEM_ADMIN")
                 .anyRequest().authenticated()
             )
             .formLogin(form -> form
@@ -50,6 +63,13 @@ public class SecurityConfig {
                     response.getWriter().flush();
                 })
                 .failureHandler((request, response, exception) -> {
+                    if (exception instanceof PasswordHashingRejectedException) {
+                        response.setStatus(503);
+                        response.setHeader("Retry-After", "1");
+                        response.getWriter().write(exception.getMessage());
+                        response.getWriter().flush();
+                        return;
+                    }
                     response.setStatus(401);
                     response.getWriter().write("Invalid username or password");
                     response.getWriter().flush();
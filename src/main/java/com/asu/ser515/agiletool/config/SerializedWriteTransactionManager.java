@@ -0,0 +1,160 @@
+package com.asu.ser515.agiletool.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admits one read-write transaction at a time, in arrival order. SQLite only has one writer
+ * anyway; without this, concurrent writers each open a connection and retry SQLite's lock in
+ * sleep-and-poll steps until the busy timeout, which is unfair and gives up under bursts. Here
+ * they wait in a FIFO queue and are woken the moment the previous writer finishes. Read-only
+ * transactions are not affected. The lock is reentrant, so a REQUIRES_NEW write started from
+ * inside a write (e.g. from an afterCommit hook) does not deadlock. Each shard file (see
+ * {@link ProjectShards}) has a writer of its own, so writes to different shards run side by side.
+ */
+public class SerializedWriteTransactionManager extends JpaTransactionManager {
+
+    private record Started(long acquired, ReentrantLock writeLock) {
+    }
+
+    // Not gated
+    private static final Started READ_ONLY = new Started(-1L, null);
+
+    private final ProjectShards shards;
+    private final Map<Integer, ReentrantLock> writeLocks = new ConcurrentHashMap<>();
+    private final long queueTimeoutMillis;
+    private final Timer queueWait;
+    private final Timer writeDuration;
+    private final Counter timeouts;
+    // Start time and writer of each transaction this thread has begun, innermost first
+    private final ThreadLocal<Deque<Started>> started = ThreadLocal.withInitial(ArrayDeque::new);
+
+    public SerializedWriteTransactionManager(EntityManagerFactory emf, ProjectShards shards,
+                                             MeterRegistry meterRegistry, long queueTimeoutMillis) {
+        super(emf);
+        this.shards = shards;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+
+        Gauge.builder("sqlite.write.queue.depth", writeLocks,
+                        locks -> locks.values().stream().mapToInt(ReentrantLock::getQueueLength).sum())
+                .description("Write transactions waiting for the writer")
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("sqlite.write.queue.wait")
+                .description("Time a write transaction waited for the writer")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.writeDuration = Timer.builder("sqlite.write.transaction")
+                .description("Time a write transaction held the writer")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.timeouts = Counter.builder("sqlite.write.queue.timeouts")
+                .description("Write transactions that gave up waiting for the writer")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the action holding the writer of every shard but outside any transaction. Used to start read
+     * snapshots of several attached databases together: a write spanning them commits to each file
+     * separately, so a snapshot taken in between could see it half done.
+     */
+    public void betweenWrites(SqlAction action) throws SQLException {
+        betweenWrites(shards.all(), action);
+    }
+
+    /** Runs the action holding the writers of the given shards, taken in ascending order. */
+    public void betweenWrites(List<Integer> shardIds, SqlAction action) throws SQLException {
+        List<ReentrantLock> held = new ArrayList<>();
+        try {
+            for (int shard : new TreeSet<>(shardIds)) {
+                ReentrantLock lock = writeLock(shard);
+                acquire(lock);
+                held.add(lock);
+            }
+            action.run();
+        } finally {
+            held.forEach(ReentrantLock::unlock);
+        }
+    }
+
+    @FunctionalInterface
+    public interface SqlAction {
+        void run() throws SQLException;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        if (definition.isReadOnly()) {
+            super.doBegin(transaction, definition);
+            started.get().push(READ_ONLY);
+            return;
+        }
+
+        long waitStart = System.nanoTime();
+        ReentrantLock writeLock = writeLock(ProjectShards.current());
+        acquire(writeLock);
+        long acquired = System.nanoTime();
+        queueWait.record(acquired - waitStart, TimeUnit.NANOSECONDS);
+
+        try {
+            if (shards.movedSinceBound()) {
+                throw new CannotCreateTransactionException("The project moved to another database; retry the request");
+            }
+            super.doBegin(transaction, definition);
+        } catch (RuntimeException | Error e) {
+            writeLock.unlock();
+            throw e;
+        }
+        started.get().push(new Started(acquired, writeLock));
+    }
+
+    private ReentrantLock writeLock(int shard) {
+        return writeLocks.computeIfAbsent(shard, s -> new ReentrantLock(true));
+    }
+
+    private void acquire(ReentrantLock writeLock) {
+        try {
+            if (!writeLock.tryLock(queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new CannotCreateTransactionException(
+                        "Timed out after " + queueTimeoutMillis + " ms waiting for the database writer");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotCreateTransactionException("Interrupted while waiting for the database writer");
+        }
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        try {
+            super.doCleanupAfterCompletion(transaction);
+        } finally {
+            Deque<Started> stack = started.get();
+            Started begun = stack.pop();
+            if (stack.isEmpty()) {
+                started.remove();
+            }
+            if (begun != READ_ONLY) {
+                writeDuration.record(System.nanoTime() - begun.acquired(), TimeUnit.NANOSECONDS);
+                begun.writeLock().unlock();
+            }
+        }
+    }
+}
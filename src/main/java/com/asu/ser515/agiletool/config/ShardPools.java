@@ -0,0 +1,371 @@
+package com.asu.ser515.agiletool.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.SQLiteDataSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Connection pools of the shard files (see {@link ProjectShards}), opened on first use and closed
+ * again once a shard has had no connection out for {@code sqlite.shards.idle-close-ms}. Every shard
+ * connection attaches the main database read-only as {@code shared} and the shard's own archive
+ * as {@code archive}. Opening a shard first brings its schema up to date with the main database:
+ * missing project tables are created, with ids starting at the shard's base, and missing columns
+ * and indexes are added, in the shard and in its archive.
+ */
+public class ShardPools implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardPools.class);
+
+    private static final Pattern CREATE = Pattern.compile(
+            "(?i)^\\s*CREATE\\s+(UNIQUE\\s+)?(TABLE|INDEX)\\s+(IF\\s+NOT\\s+EXISTS\\s+)?");
+
+    private static final class Shard {
+        private final HikariDataSource write;
+        private final HikariDataSource read;
+        private int borrowing;
+        private long lastUsed = System.currentTimeMillis();
+
+        private Shard(HikariDataSource write, HikariDataSource read) {
+            this.write = write;
+            this.read = read;
+        }
+
+        private boolean idle(long now, long idleCloseMillis) {
+            return borrowing == 0 && now - lastUsed >= idleCloseMillis
+                    && write.getHikariPoolMXBean().getActiveConnections() == 0
+                    && read.getHikariPoolMXBean().getActiveConnections() == 0;
+        }
+
+        private void close() {
+            write.close();
+            read.close();
+        }
+    }
+
+    private final Path directory;
+    private final String sharedAttach;
+    private final String sharedArchiveAttach;
+    private final org.sqlite.SQLiteConfig writePragmas;
+    private final org.sqlite.SQLiteConfig readPragmas;
+    private final int writeSize;
+    private final int readSize;
+    private final long idleTimeoutMillis;
+    private final long idleCloseMillis;
+    private final Map<Integer, Shard> open = new HashMap<>();
+
+    public ShardPools(Path directory, Path mainFile, Path mainArchiveFile,
+                      org.sqlite.SQLiteConfig writePragmas, org.sqlite.SQLiteConfig readPragmas,
+                      int writeSize, int readSize, long idleTimeoutMillis, long idleCloseMillis,
+                      MeterRegistry meterRegistry) {
+        this.directory = directory.toAbsolutePath();
+        // Read-only, so a shard transaction can never write the shared tables or lock the main file
+        this.sharedAttach = attach(mainFile.toUri() + "?mode=ro", "shared");
+        this.sharedArchiveAttach = attach(mainArchiveFile.toUri() + "?mode=ro", "shared_archive");
+        this.writePragmas = writePragmas;
+        this.readPragmas = readPragmas;
+        this.writeSize = writeSize;
+        this.readSize = readSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.idleCloseMillis = idleCloseMillis;
+
+        Gauge.builder("sqlite.shards.open", this, ShardPools::openCount)
+                .description("Shard databases with open connection pools")
+                .register(meterRegistry);
+    }
+
+    public Path file(int shard) {
+        return directory.resolve("shard-" + shard + ".db");
+    }
+
+    public Path archiveFile(int shard) {
+        return directory.resolve("shard-" + shard + "_archive.db");
+    }
+
+    public Connection getConnection(int shard, boolean readOnly) throws SQLException {
+        if (shard <= ProjectShards.MAIN || shard > ProjectShards.MAX_SHARD) {
+            throw new IllegalArgumentException("Not a shard: " + shard);
+        }
+        Shard pools;
+        synchronized (this) {
+            pools = open.get(shard);
+            if (pools == null) {
+                pools = openPools(shard);
+                open.put(shard, pools);
+            }
+            pools.borrowing++;
+        }
+        try {
+            return (readOnly ? pools.read : pools.write).getConnection();
+        } finally {
+            synchronized (this) {
+                pools.borrowing--;
+                pools.lastUsed = System.currentTimeMillis();
+            }
+        }
+    }
+
+    /**
+     * A connection of its own to the shard file, outside the pools, with {@code shared},
+     * {@code archive} and the main archive as {@code shared_archive} attached and the schema
+     * brought up to date. Used to copy a project in; the caller must hold the shard's writer.
+     */
+    public Connection openForMaintenance(int shard) throws SQLException {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create shard directory " + directory, e);
+        }
+        Connection connection = writePragmas.createConnection("jdbc:sqlite:" + file(shard));
+        try {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(sharedAttach);
+                statement.execute(attach(archiveFile(shard).toString(), "archive"));
+                statement.execute(sharedArchiveAttach);
+                statement.executeQuery("PRAGMA archive.journal_mode=WAL").close();
+            }
+            syncSchema(connection, shard);
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${sqlite.shards.idle-check-ms:30000}")
+    public void closeIdle() {
+        List<Integer> closed = new ArrayList<>();
+        List<Shard> idle = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            open.entrySet().removeIf(entry -> {
+                if (!entry.getValue().idle(now, idleCloseMillis)) {
+                    return false;
+                }
+                closed.add(entry.getKey());
+                idle.add(entry.getValue());
+                return true;
+            });
+        }
+        // Nothing is borrowing them, so no new connection can be asked of these pools
+        idle.forEach(Shard::close);
+        if (!closed.isEmpty()) {
+            log.debug("Closed idle shards {}", closed);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        open.values().forEach(Shard::close);
+        open.clear();
+    }
+
+    private synchronized int openCount() {
+        return open.size();
+    }
+
+    private Shard openPools(int shard) throws SQLException {
+        try (Connection ignored = openForMaintenance(shard)) {
+            // Schema synced; the pools below only open connections
+        }
+        List<String> attachments = List.of(sharedAttach, attach(archiveFile(shard).toString(), "archive"));
+        HikariDataSource write = pool("sqlite-shard-" + shard + "-write", writePragmas, shard, attachments, writeSize, false);
+        try {
+            HikariDataSource read = pool("sqlite-shard-" + shard + "-read", readPragmas, shard, attachments, readSize, true);
+            log.debug("Opened shard {}", shard);
+            return new Shard(write, read);
+        } catch (RuntimeException e) {
+            write.close();
+            throw e;
+        }
+    }
+
+    private HikariDataSource pool(String name, org.sqlite.SQLiteConfig pragmas, int shard, List<String> attachments,
+                                  int poolSize, boolean readOnly) {
+        HikariConfig hikari = new HikariConfig();
+        hikari.setPoolName(name);
+        hikari.setDataSource(new AttachingDataSource(pragmas, "jdbc:sqlite:" + file(shard), attachments));
+        hikari.setMaximumPoolSize(poolSize);
+        hikari.setMinimumIdle(0);
+        hikari.setIdleTimeout(idleTimeoutMillis);
+        hikari.setReadOnly(readOnly);
+        return new HikariDataSource(hikari);
+    }
+
+    private void syncSchema(Connection connection, int shard) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            syncTables(connection, "shared", "main", ProjectShards.PROJECT_TABLES, ProjectShards.idBase(shard));
+            syncTables(connection, "shared_archive", "archive", tableNames(connection, "shared_archive"), 0);
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static void syncTables(Connection connection, String source, String target, Collection<String> tables,
+                                   long idBase) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String table : tables) {
+                String definition = definition(connection, source, "table", table);
+                if (definition == null) {
+                    continue;
+                }
+                if (definition(connection, target, "table", table) == null) {
+                    statement.execute(qualify(definition, target));
+                    if (idBase > 0 && definition.toLowerCase().contains("autoincrement")) {
+                        statement.execute("INSERT INTO " + target + ".sqlite_sequence (name, seq) VALUES ('"
+                                + table + "', " + idBase + ")");
+                    }
+                } else {
+                    addMissingColumns(connection, statement, source, target, table);
+                }
+            }
+            for (String[] index : indexes(connection, source, tables)) {
+                if (definition(connection, target, "index", index[0]) == null) {
+                    statement.execute(qualify(index[1], target));
+                }
+            }
+        }
+    }
+
+    private static void addMissingColumns(Connection connection, Statement statement, String source, String target,
+                                          String table) throws SQLException {
+        Set<String> present = new HashSet<>();
+        for (Object[] column : columns(connection, target, table)) {
+            present.add(((String) column[0]).toLowerCase());
+        }
+        for (Object[] column : columns(connection, source, table)) {
+            if (present.contains(((String) column[0]).toLowerCase())) {
+                continue;
+            }
+            String sql = "ALTER TABLE " + target + "." + table + " ADD COLUMN " + column[0] + " " + column[1];
+            if (column[3] != null) {
+                sql += " DEFAULT " + column[3] + ((Boolean) column[2] ? " NOT NULL" : "");
+            }
+            statement.execute(sql);
+        }
+    }
+
+    /** {@code [name, type, notNull, default]} of each column. */
+    private static List<Object[]> columns(Connection connection, String schema, String table) throws SQLException {
+        List<Object[]> columns = new ArrayList<>();
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT name, type, \"notnull\", dflt_value FROM pragma_table_info(?, ?) ORDER BY cid")) {
+            query.setString(1, table);
+            query.setString(2, schema);
+            try (ResultSet rows = query.executeQuery()) {
+                while (rows.next()) {
+                    columns.add(new Object[] {rows.getString(1), rows.getString(2), rows.getInt(3) == 1, rows.getString(4)});
+                }
+            }
+        }
+        return columns;
+    }
+
+    private static String definition(Connection connection, String schema, String type, String name)
+            throws SQLException {
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT sql FROM " + schema + ".sqlite_master WHERE type = ? AND name = ?")) {
+            query.setString(1, type);
+            query.setString(2, name);
+            try (ResultSet rows = query.executeQuery()) {
+                return rows.next() ? rows.getString(1) : null;
+            }
+        }
+    }
+
+    private static List<String[]> indexes(Connection connection, String schema, Collection<String> tables)
+            throws SQLException {
+        List<String[]> indexes = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT name, tbl_name, sql FROM " + schema + ".sqlite_master "
+                     + "WHERE type = 'index' AND sql IS NOT NULL")) {
+            while (rows.next()) {
+                if (tables.contains(rows.getString(2))) {
+                    indexes.add(new String[] {rows.getString(1), rows.getString(3)});
+                }
+            }
+        }
+        return indexes;
+    }
+
+    private static List<String> tableNames(Connection connection, String schema) throws SQLException {
+        List<String> tables = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT name FROM " + schema + ".sqlite_master "
+                     + "WHERE type = 'table' AND name NOT LIKE 'sqlite_%'")) {
+            while (rows.next()) {
+                tables.add(rows.getString(1));
+            }
+        }
+        return tables;
+    }
+
+    /** Points a CREATE TABLE or CREATE INDEX statement read from one schema at another. */
+    private static String qualify(String definition, String schema) {
+        var matcher = CREATE.matcher(definition);
+        if (!matcher.find()) {
+            throw new IllegalStateException("Unexpected schema statement: " + definition);
+        }
+        return "CREATE " + (matcher.group(1) != null ? "UNIQUE " : "") + matcher.group(2).toUpperCase()
+                + " " + schema + "." + definition.substring(matcher.end());
+    }
+
+    private static String attach(String file, String schema) {
+        return "ATTACH DATABASE '" + file.replace("'", "''") + "' AS " + schema;
+    }
+
+    /** Opens shard connections with the shared and archive databases already attached. */
+    private static final class AttachingDataSource extends SQLiteDataSource {
+
+        private final List<String> attachments;
+
+        private AttachingDataSource(org.sqlite.SQLiteConfig pragmas, String url, List<String> attachments) {
+            super(pragmas);
+            setUrl(url);
+            this.attachments = attachments;
+        }
+
+        @Override
+        public SQLiteConnection getConnection(String username, String password) throws SQLException {
+            SQLiteConnection connection = super.getConnection(username, password);
+            try (Statement statement = connection.createStatement()) {
+                for (String attachment : attachments) {
+                    statement.execute(attachment);
+                }
+            } catch (SQLException e) {
+                connection.close();
+                throw e;
+            }
+            return connection;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.asu.ser515.agiletool.config;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Hands out connections to the database of the shard bound to the thread (see
+ * {@link ProjectShards}): the main pool when none is, otherwise the shard's pool. Sits under
+ * the repositories, so they read and write whichever file holds the project without knowing it.
+ */
+public class ShardRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource mainPool;
+    private final ShardPools shardPools;
+    private final boolean readOnly;
+
+    public ShardRoutingDataSource(DataSource mainPool, ShardPools shardPools, boolean readOnly) {
+        this.mainPool = mainPool;
+        this.shardPools = shardPools;
+        this.readOnly = readOnly;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        int shard = ProjectShards.current();
+        return shard == ProjectShards.MAIN ? mainPool.getConnection() : shardPools.getConnection(shard, readOnly);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new UnsupportedOperationException("SQLite connections take no credentials");
+    }
+}
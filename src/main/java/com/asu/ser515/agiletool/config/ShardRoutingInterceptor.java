@@ -0,0 +1,95 @@
+package com.asu.ser515.agiletool.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Binds each API request to the shard of the project it works on (see {@link ProjectShards}):
+ * from a {@code projectId} path variable or parameter, the {@code id} of {@code /api/projects/{id}},
+ * or the story or release plan {@code id} of {@code /api/stories/{id}} and
+ * {@code /api/release-plans/{id}}. Requests naming none run on the main database; services that
+ * span projects bind themselves.
+ */
+@Component
+public class ShardRoutingInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String SCOPE = ShardRoutingInterceptor.class.getName() + ".scope";
+
+    private final ProjectShards shards;
+
+    public ShardRoutingInterceptor(ProjectShards shards) {
+        this.shards = shards;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ProjectShards.Scope scope = bind(request);
+        if (scope != null) {
+            request.setAttribute(SCOPE, scope);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        // The async dispatch binds again on its own thread
+        release(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        release(request);
+    }
+
+    private ProjectShards.Scope bind(HttpServletRequest request) {
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        Long projectId = number(variables == null ? null : variables.get("projectId"));
+        if (projectId == null) {
+            projectId = number(request.getParameter("projectId"));
+        }
+        if (projectId != null) {
+            return shards.useProject(projectId);
+        }
+
+        Long id = number(variables == null ? null : variables.get("id"));
+        if (id == null) {
+            return null;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.startsWith("/api/projects/")) {
+            return shards.useProject(id);
+        }
+        if (path.startsWith("/api/stories/") || path.startsWith("/api/release-plans/")) {
+            return shards.useEntity(id);
+        }
+        return null;
+    }
+
+    private static void release(HttpServletRequest request) {
+        Object scope = request.getAttribute(SCOPE);
+        if (scope != null) {
+            request.removeAttribute(SCOPE);
+            ((ProjectShards.Scope) scope).close();
+        }
+    }
+
+    private static Long number(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
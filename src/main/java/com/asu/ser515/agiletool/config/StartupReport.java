@@ -0,0 +1,140 @@
+package com.asu.ser515.agiletool.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Logs how long each startup phase took once the application is ready. Step timings come from
+ * the {@link BufferingApplicationStartup} set up in the main class; without it (e.g. in tests)
+ * only the runner and total times are logged.
+ */
+@Component
+public class StartupReport {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupReport.class);
+
+    /** Startup steps kept in memory; a normal start records around two thousand. */
+    public static final int CAPACITY = 8192;
+
+    private record Phase(String name, StartupTimeline.TimelineEvent step) {
+    }
+
+    private Instant started;
+
+    @EventListener
+    public void onStarted(ApplicationStartedEvent event) {
+        started = Instant.now();
+    }
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) {
+        Instant ready = Instant.now();
+        Instant jvmStart = Instant.ofEpochMilli(ManagementFactory.getRuntimeMXBean().getStartTime());
+        Map<String, Duration> phases = new LinkedHashMap<>();
+
+        if (event.getApplicationContext().getApplicationStartup() instanceof BufferingApplicationStartup startup) {
+            StartupTimeline timeline = startup.getBufferedTimeline();
+            phases.put("jvm", Duration.between(jvmStart, timeline.getStartTime()));
+            StartupTimeline.TimelineEvent refresh = null;
+            List<Phase> steps = new ArrayList<>();
+            for (StartupTimeline.TimelineEvent step : timeline.getEvents()) {
+                if (step.getStartupStep().getName().equals("spring.context.refresh")) {
+                    refresh = step;
+                }
+                String phase = phaseOf(step);
+                if (phase != null) {
+                    steps.add(new Phase(phase, step));
+                }
+            }
+            Duration accounted = Duration.ZERO;
+            for (Phase phase : steps) {
+                Duration own = ownDuration(phase, steps);
+                phases.merge(phase.name(), own, Duration::plus);
+                if (refresh != null && contains(refresh, phase.step())) {
+                    accounted = accounted.plus(own);
+                }
+            }
+            if (refresh != null) {
+                phases.put("other beans", refresh.getDuration().minus(accounted));
+            }
+        }
+        if (started != null) {
+            phases.put("runners", Duration.between(started, ready));
+        }
+
+        StringBuilder report = new StringBuilder("Startup phases:");
+        phases.forEach((phase, duration) -> report.append(' ').append(phase).append(' ')
+                .append(seconds(duration)).append(','));
+        report.append(" ready after ").append(seconds(Duration.between(jvmStart, ready)));
+        log.info("{}", report);
+    }
+
+    private static String phaseOf(StartupTimeline.TimelineEvent step) {
+        switch (step.getStartupStep().getName()) {
+            case "spring.boot.application.environment-prepared":
+                return "environment";
+            case "spring.context.beans.post-process":
+                return "bean definitions";
+            case "spring.boot.webserver.create":
+                return "web server";
+            case "spring.data.repository.init":
+                return "repositories";
+            case "spring.beans.instantiate":
+                return switch (beanName(step)) {
+                    case "flyway", "flywayInitializer" -> "migrations";
+                    case "&entityManagerFactory" -> "jpa";
+                    default -> null;
+                };
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Time spent in the step itself, without the reported phases that ran inside it (creating the
+     * EntityManagerFactory runs the migrations first, for example).
+     */
+    private static Duration ownDuration(Phase phase, List<Phase> phases) {
+        Duration own = phase.step().getDuration();
+        for (Phase inner : phases) {
+            if (inner != phase && contains(phase.step(), inner.step())
+                    && phases.stream().noneMatch(middle -> middle != phase && middle != inner
+                            && contains(phase.step(), middle.step()) && contains(middle.step(), inner.step()))) {
+                own = own.minus(inner.step().getDuration());
+            }
+        }
+        return own;
+    }
+
+    private static String beanName(StartupTimeline.TimelineEvent step) {
+        for (StartupStep.Tag tag : step.getStartupStep().getTags()) {
+            if (tag.getKey().equals("beanName")) {
+                return tag.getValue();
+            }
+        }
+        return "";
+    }
+
+    private static boolean contains(StartupTimeline.TimelineEvent outer, StartupTimeline.TimelineEvent inner) {
+        return !inner.getStartTime().isBefore(outer.getStartTime()) && !inner.getEndTime().isAfter(outer.getEndTime());
+    }
+
+    private static String seconds(Duration duration) {
+        return String.format("%.2fs", duration.toMillis() / 1000.0);
+    }
+}
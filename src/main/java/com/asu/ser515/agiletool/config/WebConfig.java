@@ -0,0 +1,20 @@
+package com.asu.ser515.agiletool.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ShardRoutingInterceptor shardRoutingInterceptor;
+
+    public WebConfig(ShardRoutingInterceptor shardRoutingInterceptor) {
+        this.shardRoutingInterceptor = shardRoutingInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(shardRoutingInterceptor).addPathPatterns("/api/**");
+    }
+}
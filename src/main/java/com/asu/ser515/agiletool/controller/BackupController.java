@@ -0,0 +1,65 @@
+package com.asu.ser515.agiletool.controller;
+
+import com.asu.ser515.agiletool.dto.DatabaseBackupDTO;
+import com.asu.ser515.agiletool.dto.DatabaseRestoreDTO;
+import com.asu.ser515.agiletool.service.DatabaseBackupService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.NoSuchElementException;
+
+@RestController
+@RequestMapping("/api/admin/backups")
+@PreAuthorize("hasRole('SYSTEM_ADMIN')")
+public class BackupController {
+
+    private final DatabaseBackupService backupService;
+
+    public BackupController(DatabaseBackupService backupService) {
+        this.backupService = backupService;
+    }
+
+    @GetMapping
+    public ResponseEntity<?> listBackups() {
+        return ResponseEntity.ok(backupService.listBackups());
+    }
+
+    @PostMapping
+    public ResponseEntity<?> createBackup() {
+        try {
+            DatabaseBackupDTO backup = backupService.createBackup();
+            return ResponseEntity.status(HttpStatus.CREATED).body(backup);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/{name}/verify")
+    public ResponseEntity<?> verifyBackup(@PathVariable String name) {
+        try {
+            return ResponseEntity.ok(backupService.verify(name));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /** Restores into a new file next to the backups; {@code target} defaults to the backup's name. */
+    @PostMapping("/{name}/restore")
+    public ResponseEntity<?> restoreBackup(@PathVariable String name,
+                                           @RequestParam(required = false) String target) {
+        try {
+            DatabaseRestoreDTO restored = backupService.restore(name, target);
+            return ResponseEntity.status(HttpStatus.CREATED).body(restored);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.asu.ser515.agiletool.controller;
+
+import com.asu.ser515.agiletool.service.PlanningPokerService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+/**
+ * Planning poker: anyone signed in can follow a session ({@code GET /{id}/events}) and vote;
+ * the facilitator, a Scrum Master or a System Admin runs the rounds.
+ */
+@RestController
+@RequestMapping("/api/poker/sessions")
+@PreAuthorize("isAuthenticated()")
+public class PlanningPokerController {
+
+    private final PlanningPokerService pokerService;
+
+    public PlanningPokerController(PlanningPokerService pokerService) {
+        this.pokerService = pokerService;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> create(@Valid @RequestBody CreateSessionReq req) {
+        return handle(() -> ResponseEntity.status(HttpStatus.CREATED)
+                .body(pokerService.create(req.getProjectId(), currentUsername())));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> get(@PathVariable String id) {
+        return handle(() -> ResponseEntity.ok(pokerService.get(id)));
+    }
+
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> events(@PathVariable String id) {
+        return handle(() -> ResponseEntity.ok(pokerService.subscribe(id, currentUsername())));
+    }
+
+    @PostMapping("/{id}/rounds")
+    public ResponseEntity<?> startRound(@PathVariable String id, @Valid @RequestBody StartRoundReq req) {
+        return facilitated(id, () -> ResponseEntity.ok(pokerService.startRound(id, req.getStoryId())));
+    }
+
+    @PutMapping("/{id}/vote")
+    public ResponseEntity<?> vote(@PathVariable String id, @Valid @RequestBody PointsReq req) {
+        return handle(() -> ResponseEntity.ok(pokerService.vote(id, currentUsername(), req.getPoints())));
+    }
+
+    @PostMapping("/{id}/reveal")
+    public ResponseEntity<?> reveal(@PathVariable String id) {
+        return facilitated(id, () -> ResponseEntity.ok(pokerService.reveal(id)));
+    }
+
+    /** Saves the agreed points on the round's story through the regular estimate update. */
+    @PostMapping("/{id}/accept")
+    public ResponseEntity<?> accept(@PathVariable String id, @Valid @RequestBody PointsReq req) {
+        return facilitated(id, () -> ResponseEntity.ok(pokerService.accept(id, req.getPoints())));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> close(@PathVariable String id) {
+        return facilitated(id, () -> {
+            pokerService.close(id);
+            return ResponseEntity.ok("Planning-poker session closed");
+        });
+    }
+
+    private ResponseEntity<?> facilitated(String id, Supplier<ResponseEntity<?>> action) {
+        return handle(() -> {
+            if (!pokerService.isFacilitator(id, currentUsername()) && !hasAnyRole("SCRUM_MASTER", "SYSTEM_ADMIN")) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body("Only the facilitator, Scrum Masters and System Admins can run the session");
+            }
+            return action.get();
+        });
+    }
+
+    private static ResponseEntity<?> handle(Supplier<ResponseEntity<?>> action) {
+        try {
+            return action.get();
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    private static String currentUsername() {
+        return SecurityContextHolder.getContext().getAuthentication().getName();
+    }
+
+    private static boolean hasAnyRole(String... roles) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(a -> Arrays.stream(roles).anyMatch(r -> a.equals("ROLE_" + r)));
+    }
+
+    public static class CreateSessionReq {
+        @NotNull(message = "Project is required")
+        private Long projectId;
+
+        public Long getProjectId() {
+            return projectId;
+        }
+
+        public void setProjectId(Long projectId) {
+            this.projectId = projectId;
+        }
+    }
+
+    public static class StartRoundReq {
+        @NotNull(message = "Story is required")
+        private Long storyId;
+
+        public Long getStoryId() {
+            return storyId;
+        }
+
+        public void setStoryId(Long storyId) {
+            this.storyId = storyId;
+        }
+    }
+
+    public static class PointsReq {
+        @NotNull(message = "Points are required")
+        @Min(value = 0, message = "Story points must not be negative")
+        private Integer points;
+
+        public Integer getPoints() {
+            return points;
+        }
+
+        public void setPoints(Integer points) {
+            this.points = points;
+        }
+    }
+}
@@ -1,14 +1,26 @@
 package com.asu.ser515.agiletool.controller;
 
+import com.asu.ser515.agiletool.config.ProjectShards;
+import com.asu.ser515.agiletool.dto.ProjectSummaryDTO;
 import com.asu.ser515.agiletool.models.Project;
 import com.asu.ser515.agiletool.models.User;
+import com.asu.ser515.agiletool.service.FlowAnalyticsService;
+import com.asu.ser515.agiletool.service.ProjectExportService;
 import com.asu.ser515.agiletool.service.ProjectService;
+import com.asu.ser515.agiletool.service.ProjectSummaryService;
 import com.asu.ser515.agiletool.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Map;
 
@@ -22,6 +34,18 @@ public class ProjectController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private FlowAnalyticsService flowAnalyticsService;
+
+    @Autowired
+    private ProjectExportService projectExportService;
+
+    @Autowired
+    private ProjectSummaryService projectSummaryService;
+
+    @Autowired
+    private ProjectShards projectShards;
+
     @PostMapping
     @PreAuthorize("hasRole('PRODUCT_OWNER') or hasRole('SYSTEM_ADMIN')")
     public ResponseEntity<?> createProject(@RequestBody Map<String, String> payload) {
@@ -68,6 +92,26 @@ public class ProjectController {
         }
     }
 
+    @GetMapping("/{id}/summary")
+    public ResponseEntity<?> getProjectSummary(@PathVariable Long id,
+                                               @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        try {
+            projectService.getProjectById(id);
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+
+        String etag = "\"" + projectSummaryService.currentVersion(id) + "\"";
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        ProjectSummaryDTO summary = projectSummaryService.getSummary(id);
+        return ResponseEntity.ok()
+                .eTag("\"" + summary.getVersion() + "\"")
+                .cacheControl(CacheControl.noCache())
+                .body(summary);
+    }
+
     @PostMapping("/join")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<?> joinProject(@RequestBody Map<String, String> payload) {
@@ -85,4 +129,59 @@ public class ProjectController {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
+
+    @GetMapping("/{id}/flow-metrics")
+    public ResponseEntity<?> getFlowMetrics(@PathVariable Long id,
+                                            @RequestParam(required = false) Long releasePlanId,
+                                            @RequestParam(defaultValue = "12") int weeks) {
+        try {
+            projectService.getProjectById(id);
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(flowAnalyticsService.metrics(id, releasePlanId, weeks));
+    }
+
+    @PostMapping("/{id}/flow-metrics/rebuild")
+    @PreAuthorize("hasRole('SYSTEM_ADMIN')")
+    public ResponseEntity<?> rebuildFlowMetrics(@PathVariable Long id) {
+        try {
+            projectService.getProjectById(id);
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(Map.of("completedStories", flowAnalyticsService.rebuild(id)));
+    }
+
+    @GetMapping("/{id}/export")
+    public ResponseEntity<StreamingResponseBody> exportProject(@PathVariable Long id,
+                                                               @RequestParam(defaultValue = "csv") String format,
+                                                               @RequestParam(defaultValue = "false") boolean bom) {
+        Project project;
+        try {
+            project = projectService.getProjectById(id);
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+
+        ProjectExportService.Format exportFormat;
+        try {
+            exportFormat = ProjectExportService.Format.parse(format);
+        } catch (IllegalArgumentException e) {
+            // The body type is fixed to a stream here, so report the error through the error page
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        String filename = project.getProjectKey() + "-backlog." + exportFormat.getExtension();
+        // Written on an async thread, which the request's shard binding does not reach
+        StreamingResponseBody body = out -> {
+            try (ProjectShards.Scope ignored = projectShards.useProject(id)) {
+                projectExportService.export(id, exportFormat, bom, out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
 }
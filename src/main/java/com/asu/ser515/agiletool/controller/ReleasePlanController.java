@@ -1,11 +1,19 @@
 package com.asu.ser515.agiletool.controller;
 
+import com.asu.ser515.agiletool.config.ProjectShards;
 import com.asu.ser515.agiletool.dto.CreateReleasePlanDTO;
+import com.asu.ser515.agiletool.dto.CriticalPathDTO;
+import com.asu.ser515.agiletool.dto.ReleaseForecastDTO;
 import com.asu.ser515.agiletool.dto.ReleasePlanResponseDTO;
 import com.asu.ser515.agiletool.dto.UpdateReleasePlanDTO;
+import com.asu.ser515.agiletool.dto.VersionConflictDTO;
 import com.asu.ser515.agiletool.models.ReleaseStatus;
+import com.asu.ser515.agiletool.service.ReleaseForecastService;
 import com.asu.ser515.agiletool.service.ReleasePlanService;
+import com.asu.ser515.agiletool.service.StoryDependencyService;
+import com.asu.ser515.agiletool.service.VersionConflictException;
 import jakarta.validation.Valid;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -19,15 +27,22 @@ import java.util.List;
 public class ReleasePlanController {
 
     private final ReleasePlanService releasePlanService;
+    private final StoryDependencyService dependencyService;
+    private final ReleaseForecastService forecastService;
+    private final ProjectShards projectShards;
 
-    public ReleasePlanController(ReleasePlanService releasePlanService) {
+    public ReleasePlanController(ReleasePlanService releasePlanService, StoryDependencyService dependencyService,
+                                 ReleaseForecastService forecastService, ProjectShards projectShards) {
         this.releasePlanService = releasePlanService;
+        this.dependencyService = dependencyService;
+        this.forecastService = forecastService;
+        this.projectShards = projectShards;
     }
 
     @PostMapping
     @PreAuthorize("hasAnyRole('PRODUCT_OWNER', 'SYSTEM_ADMIN')")
     public ResponseEntity<?> createReleasePlan(@Valid @RequestBody CreateReleasePlanDTO dto) {
-        try {
+        try (ProjectShards.Scope ignored = projectShards.useProject(dto.getProjectId())) {
             String username = SecurityContextHolder.getContext().getAuthentication().getName();
             ReleasePlanResponseDTO response = releasePlanService.create(dto, username);
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
@@ -44,7 +59,7 @@ public class ReleasePlanController {
     public ResponseEntity<?> getReleasePlanById(@PathVariable Long id) {
         try {
             ReleasePlanResponseDTO response = releasePlanService.findById(id);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(EntityTags.of(response.getVersion())).body(response);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
         } catch (Exception e) {
@@ -58,7 +73,7 @@ public class ReleasePlanController {
     public ResponseEntity<?> getReleasePlanByKey(@PathVariable String releaseKey) {
         try {
             ReleasePlanResponseDTO response = releasePlanService.findByReleaseKey(releaseKey);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(EntityTags.of(response.getVersion())).body(response);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
         } catch (Exception e) {
@@ -67,13 +82,56 @@ public class ReleasePlanController {
         }
     }
 
+    @GetMapping("/{id}/critical-path")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> getCriticalPath(@PathVariable Long id) {
+        try {
+            CriticalPathDTO response = dependencyService.criticalPath(id);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error computing critical path: " + e.getMessage());
+        }
+    }
+
+    /** Completion-date percentiles and the chance of meeting the target date, from past weekly throughput. */
+    @GetMapping("/{id}/forecast")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> getForecast(@PathVariable Long id, @RequestParam(required = false) Integer trials) {
+        try {
+            ReleaseForecastDTO response = forecastService.forecast(id, trials);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error computing release forecast: " + e.getMessage());
+        }
+    }
+
     @PatchMapping("/{id}")
     @PreAuthorize("hasAnyRole('PRODUCT_OWNER', 'SYSTEM_ADMIN')")
     public ResponseEntity<?> updateReleasePlan(@PathVariable Long id,
-                                               @Valid @RequestBody UpdateReleasePlanDTO dto) {
+                                               @Valid @RequestBody UpdateReleasePlanDTO dto,
+                                               @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         try {
-            ReleasePlanResponseDTO response = releasePlanService.update(id, dto);
-            return ResponseEntity.ok(response);
+            ReleasePlanResponseDTO response = releasePlanService.update(id, dto, EntityTags.expectedVersion(ifMatch));
+            return ResponseEntity.ok().eTag(EntityTags.of(response.getVersion())).body(response);
+        } catch (OptimisticLockingFailureException e) {
+            String message = e instanceof VersionConflictException
+                    ? e.getMessage() : "Release plan " + id + " was modified by someone else";
+            try {
+                ReleasePlanResponseDTO current = releasePlanService.findById(id);
+                return ResponseEntity.status(HttpStatus.CONFLICT).eTag(EntityTags.of(current.getVersion()))
+                        .body(new VersionConflictDTO(message, current));
+            } catch (IllegalArgumentException notFound) {
+                // Deleted by the concurrent change
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(notFound.getMessage());
+            }
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
@@ -0,0 +1,40 @@
+package com.asu.ser515.agiletool.controller;
+
+import com.asu.ser515.agiletool.service.ShardSplitService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.NoSuchElementException;
+
+@RestController
+@RequestMapping("/api/admin/shards")
+@PreAuthorize("hasRole('SYSTEM_ADMIN')")
+public class ShardController {
+
+    private final ShardSplitService splitService;
+
+    public ShardController(ShardSplitService splitService) {
+        this.splitService = splitService;
+    }
+
+    @GetMapping
+    public ResponseEntity<?> listProjects() {
+        return ResponseEntity.ok(splitService.listProjects());
+    }
+
+    /** Moves a project out of the main database into {@code shard-<shard>.db}; its rows get new ids. */
+    @PostMapping("/{projectKey}")
+    public ResponseEntity<?> moveProject(@PathVariable String projectKey, @RequestParam int shard) {
+        try {
+            return ResponseEntity.ok(splitService.moveProject(projectKey, shard));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -1,42 +1,83 @@
 package com.asu.ser515.agiletool.controller;
 
+import com.asu.ser515.agiletool.config.ProjectShards;
 import com.asu.ser515.agiletool.dto.EstimateRequest;
 import com.asu.ser515.agiletool.dto.JiraExportRequest;
 import com.asu.ser515.agiletool.dto.JiraIssueResponse;
 import com.asu.ser515.agiletool.dto.ReleasePlanResponseDTO;
+import com.asu.ser515.agiletool.dto.SimilarStoryDTO;
+import com.asu.ser515.agiletool.dto.StoryBulkUpdateResultDTO;
+import com.asu.ser515.agiletool.dto.StoryDependenciesDTO;
+import com.asu.ser515.agiletool.dto.StoryPatchDTO;
+import com.asu.ser515.agiletool.dto.VersionConflictDTO;
 
 import com.asu.ser515.agiletool.models.*;
+import com.asu.ser515.agiletool.service.EstimateSuggestionService;
 import com.asu.ser515.agiletool.service.ReleasePlanService;
+import com.asu.ser515.agiletool.service.StoryArchiveService;
+import com.asu.ser515.agiletool.service.StoryAuditService;
+import com.asu.ser515.agiletool.service.StoryDependencyService;
+import com.asu.ser515.agiletool.service.StoryDuplicateService;
+import com.asu.ser515.agiletool.service.StoryFlagWriter;
 import com.asu.ser515.agiletool.service.UserStoryService;
+import com.asu.ser515.agiletool.service.VersionConflictException;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/stories")
 public class StoryController {
     private final UserStoryService userStoryService;
     private final ReleasePlanService releasePlanService;
-
-    public StoryController(UserStoryService userStoryService, ReleasePlanService releasePlanService) {
+    private final StoryDependencyService dependencyService;
+    private final StoryAuditService auditService;
+    private final StoryFlagWriter flagWriter;
+    private final StoryArchiveService archiveService;
+    private final StoryDuplicateService duplicateService;
+    private final EstimateSuggestionService estimateSuggestionService;
+    private final ProjectShards projectShards;
+
+    public StoryController(UserStoryService userStoryService, ReleasePlanService releasePlanService,
+                           StoryDependencyService dependencyService, StoryAuditService auditService,
+                           StoryFlagWriter flagWriter, StoryArchiveService archiveService,
+                           StoryDuplicateService duplicateService,
+                           EstimateSuggestionService estimateSuggestionService, ProjectShards projectShards) {
         this.userStoryService = userStoryService;
         this.releasePlanService = releasePlanService;
+        this.dependencyService = dependencyService;
+        this.auditService = auditService;
+        this.flagWriter = flagWriter;
+        this.archiveService = archiveService;
+        this.duplicateService = duplicateService;
+        this.estimateSuggestionService = estimateSuggestionService;
+        this.projectShards = projectShards;
     }
 
     @PostMapping
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<?> create(@Valid @RequestBody CreateStoryReq req) {
-        try {
+        Long projectId = req.getProjectId() != null ? req.getProjectId() : UserStoryService.GLOBAL_PROJECT_ID;
+        try (ProjectShards.Scope ignored = projectShards.useProject(projectId)) {
             UserStory s = userStoryService.create(
                     req.getTitle(), req.getDescription(), req.getAcceptanceCriteria(),
                     req.getBusinessValue(), req.getPriority(), req.getProjectId());
-            return ResponseEntity.status(201).body(new CreateStoryRes("User Story created successfully", s));
+            CreateStoryRes res = new CreateStoryRes("User Story created successfully", s);
+            res.setPossibleDuplicates(duplicateService.findSimilar(s.getId()));
+            return ResponseEntity.status(201).body(res);
         } catch (IllegalArgumentException | IllegalStateException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -44,15 +85,64 @@ public class StoryController {
 
     @GetMapping
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<?> list(@RequestParam(required = false) Long projectId) {
+    public ResponseEntity<?> list(@RequestParam(required = false) Long projectId,
+                                  @RequestParam(defaultValue = "false") boolean includeArchived,
+                                  @RequestParam(defaultValue = "true") boolean includeText) {
         try {
             List<UserStory> stories;
             if (projectId != null) {
-                stories = userStoryService.listByProject(projectId);
+                stories = userStoryService.listByProject(projectId, includeText);
             } else {
                 stories = userStoryService.listAll();
             }
-            return ResponseEntity.ok(stories);
+            if (includeArchived) {
+                stories = new ArrayList<>(stories);
+                stories.addAll(archiveService.listArchived(projectId));
+            }
+            return ResponseEntity.ok(flagWriter.overlay(stories));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/{id}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> get(@PathVariable Long id,
+                                 @RequestParam(defaultValue = "false") boolean includeArchived) {
+        try {
+            UserStory story;
+            try {
+                story = userStoryService.getStoryWithText(id);
+            } catch (IllegalArgumentException e) {
+                if (!includeArchived) {
+                    throw e;
+                }
+                story = archiveService.getArchived(id);
+            }
+            return ResponseEntity.ok().eTag(EntityTags.of(story.getVersion())).body(story);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/{id}/unarchive")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> unarchive(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(archiveService.unarchive(id));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /** Runs the archiving job now instead of waiting for its schedule. */
+    @PostMapping("/archive")
+    @PreAuthorize("hasRole('SYSTEM_ADMIN')")
+    public ResponseEntity<?> archiveCompleted() {
+        try {
+            return ResponseEntity.ok(Map.of("archived", archiveService.archiveCompleted()));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -60,13 +150,17 @@ public class StoryController {
 
     @PutMapping("/{id}")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<?> update(@PathVariable Long id, @Valid @RequestBody CreateStoryReq req) {
+    public ResponseEntity<?> update(@PathVariable Long id, @Valid @RequestBody CreateStoryReq req,
+                                    @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         try {
             UserStory s = userStoryService.updateUserStory(
                     id,
                     req.getTitle(), req.getDescription(), req.getAcceptanceCriteria(),
-                    req.getBusinessValue(), req.getPriority());
-            return ResponseEntity.ok(new CreateStoryRes("User Story updated successfully", s));
+                    req.getBusinessValue(), req.getPriority(), EntityTags.expectedVersion(ifMatch));
+            return ResponseEntity.ok().eTag(EntityTags.of(s.getVersion()))
+                    .body(new CreateStoryRes("User Story updated successfully", s));
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(id, e);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -87,17 +181,110 @@ public class StoryController {
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<?> updateStoryEstimation(
             @PathVariable long id,
-            @RequestBody EstimateRequest estimateRequest) {
+            @RequestBody EstimateRequest estimateRequest,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         try {
-            UserStory updated = userStoryService.updateEstimation(id, estimateRequest.getStoryPoints());
+            UserStory updated = userStoryService.updateEstimation(id, estimateRequest.getStoryPoints(),
+                    EntityTags.expectedVersion(ifMatch));
 
-            return ResponseEntity.ok(updated);
+            return ResponseEntity.ok().eTag(EntityTags.of(updated.getVersion())).body(updated);
 
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(id, e);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
 
+    /** Points suggested by the most similar estimated stories; it does not change the story. */
+    @GetMapping("/{id}/estimate/suggestion")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> suggestEstimate(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(estimateSuggestionService.suggest(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
+    @PutMapping("/{id}/move")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> moveInBacklog(
+            @PathVariable Long id,
+            @RequestBody MoveStoryReq req,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        try {
+            String rank = userStoryService.moveInBacklog(id, req.getAfterStoryId(), req.getBeforeStoryId(),
+                    EntityTags.expectedVersion(ifMatch));
+            return ResponseEntity.ok(new MoveStoryRes(id, rank));
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(id, e);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/{id}/history")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> getHistory(@PathVariable Long id,
+                                        @RequestParam(required = false) Long before,
+                                        @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(auditService.history(id, before, size));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /** Stories in the same project whose text is most like this one's, most similar first. */
+    @GetMapping("/{id}/similar")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> similar(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(duplicateService.findSimilar(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/{id}/dependencies")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> getDependencies(@PathVariable Long id) {
+        try {
+            StoryDependenciesDTO response = dependencyService.getDependencies(id);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/{id}/dependencies")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> addDependency(@PathVariable Long id, @RequestBody AddDependencyReq req) {
+        if ((req.getBlockedByStoryId() == null) == (req.getBlocksStoryId() == null)) {
+            return ResponseEntity.badRequest().body("Exactly one of blockedByStoryId or blocksStoryId is required");
+        }
+        try {
+            StoryDependenciesDTO response = req.getBlockedByStoryId() != null
+                    ? dependencyService.addDependency(req.getBlockedByStoryId(), id)
+                    : dependencyService.addDependency(id, req.getBlocksStoryId());
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{id}/dependencies/{otherId}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> removeDependency(@PathVariable Long id, @PathVariable Long otherId) {
+        try {
+            StoryDependenciesDTO response = dependencyService.removeDependency(id, otherId);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @PostMapping("/{id}/export/jira")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<?> exportToJira(@PathVariable Long id,
@@ -122,10 +309,13 @@ public class StoryController {
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<?> updateStatus(
             @PathVariable Long id,
-            @Valid @RequestBody UpdateStatusReq req) {
+            @Valid @RequestBody UpdateStatusReq req,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         try {
-            UserStory updated = userStoryService.updateStatus(id, req.getStatus());
-            return ResponseEntity.ok(updated);
+            UserStory updated = userStoryService.updateStatus(id, req.getStatus(), EntityTags.expectedVersion(ifMatch));
+            return ResponseEntity.ok().eTag(EntityTags.of(updated.getVersion())).body(updated);
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(id, e);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -155,10 +345,14 @@ public class StoryController {
     @PreAuthorize("hasAnyRole('PRODUCT_OWNER', 'SCRUM_MASTER')")
     public ResponseEntity<?> updateSprintReady(
             @PathVariable Long id,
-            @Valid @RequestBody UpdateSprintReadyReq req) {
+            @Valid @RequestBody UpdateSprintReadyReq req,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         try {
-            UserStory updated = userStoryService.updateSprintReady(id, req.isSprintReady());
-            return ResponseEntity.ok(updated);
+            StoryFlagWriter.Result result = flagWriter.write(
+                    id, StoryFlagWriter.Flag.SPRINT_READY, req.isSprintReady(), EntityTags.expectedVersion(ifMatch));
+            return flagResponse(result);
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(id, e);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -168,10 +362,14 @@ public class StoryController {
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<?> updateStar(
             @PathVariable Long id,
-            @Valid @RequestBody UpdateStarReq req) {
+            @Valid @RequestBody UpdateStarReq req,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         try {
-            UserStory updated = userStoryService.updateStarred(id, req.isStarred());
-            return ResponseEntity.ok(updated);
+            StoryFlagWriter.Result result = flagWriter.write(
+                    id, StoryFlagWriter.Flag.STARRED, req.isStarred(), EntityTags.expectedVersion(ifMatch));
+            return flagResponse(result);
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(id, e);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -181,15 +379,75 @@ public class StoryController {
     @PreAuthorize("hasAnyRole('PRODUCT_OWNER', 'SYSTEM_ADMIN')")
     public ResponseEntity<?> updateMvp(
             @PathVariable Long id,
-            @Valid @RequestBody UpdateMvpReq req) {
+            @Valid @RequestBody UpdateMvpReq req,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         try {
-            UserStory updated = userStoryService.updateMvp(id, req.isMvp());
-            return ResponseEntity.ok(updated);
+            StoryFlagWriter.Result result = flagWriter.write(
+                    id, StoryFlagWriter.Flag.MVP, req.isMvp(), EntityTags.expectedVersion(ifMatch));
+            return flagResponse(result);
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(id, e);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
 
+    @PatchMapping("/bulk")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> bulkUpdate(@Valid @RequestBody List<@Valid StoryPatchDTO> patches) {
+        // Same role rules as the single-field endpoints
+        if (patches.stream().anyMatch(p -> p != null && p.getSprintReady() != null)
+                && !hasAnyRole("PRODUCT_OWNER", "SCRUM_MASTER")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Only Product Owners and Scrum Masters can change sprint readiness");
+        }
+        if (patches.stream().anyMatch(p -> p != null && (p.getMvp() != null || p.touchesReleasePlan()))
+                && !hasAnyRole("PRODUCT_OWNER", "SYSTEM_ADMIN")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Only Product Owners and System Admins can change MVP flags or release plans");
+        }
+        // All stories of one request are in the same project's database; bulkUpdate rejects any that are not
+        Long firstId = patches.stream().filter(p -> p != null && p.getId() != null)
+                .map(StoryPatchDTO::getId).findFirst().orElse(null);
+        try (ProjectShards.Scope ignored = projectShards.useEntity(firstId)) {
+            StoryBulkUpdateResultDTO result = userStoryService.bulkUpdate(patches);
+            return ResponseEntity.ok(result);
+        } catch (VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new VersionConflictDTO(e.getMessage(), userStoryService.getStoriesByIds(e.getIds())));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // 409 with the story as it is now, so the client can reapply its change on top of it
+    private ResponseEntity<?> conflict(Long id, OptimisticLockingFailureException e) {
+        String message = e instanceof VersionConflictException
+                ? e.getMessage() : "User Story " + id + " was modified by someone else";
+        try {
+            UserStory current = userStoryService.getStoryWithText(id);
+            return ResponseEntity.status(HttpStatus.CONFLICT).eTag(EntityTags.of(current.getVersion()))
+                    .body(new VersionConflictDTO(message, current));
+        } catch (IllegalArgumentException notFound) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(notFound.getMessage());
+        }
+    }
+
+    // A change still queued by write-behind has no new version yet, so it is only acknowledged
+    private static ResponseEntity<?> flagResponse(StoryFlagWriter.Result result) {
+        if (!result.committed()) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(result.story());
+        }
+        return ResponseEntity.ok().eTag(EntityTags.of(result.story().getVersion())).body(result.story());
+    }
+
+    private static boolean hasAnyRole(String... roles) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null) {
+            return false;
+        }
+        List<String> wanted = Arrays.stream(roles).map(r -> "ROLE_" + r).toList();
+        return auth.getAuthorities().stream().map(GrantedAuthority::getAuthority).anyMatch(wanted::contains);
+    }
+
     public static class CreateStoryReq {
         @NotBlank(message = "Title is required")
         private String title;
@@ -315,6 +573,79 @@ public class StoryController {
         }
     }
 
+    public static class AddDependencyReq {
+        private Long blockedByStoryId;
+        private Long blocksStoryId;
+
+        public Long getBlockedByStoryId() {
+            return blockedByStoryId;
+        }
+
+        public void setBlockedByStoryId(Long blockedByStoryId) {
+            this.blockedByStoryId = blockedByStoryId;
+        }
+
+        public Long getBlocksStoryId() {
+            return blocksStoryId;
+        }
+
+        public void setBlocksStoryId(Long blocksStoryId) {
+            this.blocksStoryId = blocksStoryId;
+        }
+    }
+
+    public static class MoveStoryReq {
+        // Story that should end up directly above the moved one (null = top of backlog)
+        private Long afterStoryId;
+        // Story that should end up directly below the moved one
+        private Long beforeStoryId;
+
+        public Long getAfterStoryId() {
+            return afterStoryId;
+        }
+
+        public void setAfterStoryId(Long afterStoryId) {
+            this.afterStoryId = afterStoryId;
+        }
+
+        public Long getBeforeStoryId() {
+            return beforeStoryId;
+        }
+
+        public void setBeforeStoryId(Long beforeStoryId) {
+            this.beforeStoryId = beforeStoryId;
+        }
+    }
+
+    public static class MoveStoryRes {
+        private Long storyId;
+        private String backlogRank;
+
+        public MoveStoryRes() {
+        }
+
+        public MoveStoryRes(Long storyId, String backlogRank) {
+            this.storyId = storyId;
+            this.backlogRank = backlogRank;
+        }
+
+        public Long getStoryId() {
+            return storyId;
+        }
+
+        public void setStoryId(Long storyId) {
+            this.storyId = storyId;
+        }
+
+        public String getBacklogRank() {
+            return backlogRank;
+        }
+
+        public void setBacklogRank(String backlogRank) {
+            this.backlogRank = backlogRank;
+        }
+    }
+
     public static class LinkReleasePlanReq {
         @NotBlank(message = "Release plan id or key is required")
         private String releasePlanId;
@@ -370,6 +701,7 @@ public class StoryController {
     public static class CreateStoryRes {
         private String message;
         private UserStory story;
+        private List<SimilarStoryDTO> possibleDuplicates = List.of();
 
         public CreateStoryRes() {
         }
@@ -394,5 +726,13 @@ public class StoryController {
         public void setStory(UserStory v) {
             story = v;
         }
+
+        public List<SimilarStoryDTO> getPossibleDuplicates() {
+            return possibleDuplicates;
+        }
+
+        public void setPossibleDuplicates(List<SimilarStoryDTO> v) {
+            possibleDuplicates = v;
+        }
     }
 }
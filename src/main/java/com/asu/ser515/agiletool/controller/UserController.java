@@ -1,6 +1,8 @@
 package com.asu.ser515.agiletool.controller;
 
 import com.asu.ser515.agiletool.dto.ChangePasswordDTO;
+import com.asu.ser515.agiletool.dto.UserOffboardRequestDTO;
+import com.asu.ser515.agiletool.dto.UserOffboardResultDTO;
 import com.asu.ser515.agiletool.dto.UserProfileUpdateDTO;
 import com.asu.ser515.agiletool.dto.UserRoleUpdateDTO;
 import com.asu.ser515.agiletool.models.User;
@@ -42,6 +44,17 @@ public class UserController {
         }
     }
 
+    @PostMapping("/offboard")
+    @PreAuthorize("hasRole('SYSTEM_ADMIN')")
+    public ResponseEntity<?> offboardUsers(@Valid @RequestBody UserOffboardRequestDTO dto) {
+        try {
+            UserOffboardResultDTO result = userService.offboardUsers(dto.getUserIds(), dto.getReassignToUserId());
+            return ResponseEntity.ok(result);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/me")
     public ResponseEntity<?> getCurrentUser() {
         try {
@@ -0,0 +1,26 @@
+package com.asu.ser515.agiletool.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CriticalPathDTO {
+
+    private Long releasePlanId;
+
+    // Remaining story points along the longest dependency chain (DONE stories count as 0)
+    private int criticalPathPoints;
+
+    private List<StoryRefDTO> criticalPath;
+
+    // Every story of the release in an order that respects all dependencies
+    private List<StoryRefDTO> topologicalOrder;
+
+    // Unfinished stories outside the release that block stories inside it
+    private List<StoryRefDTO> externalBlockers;
+}
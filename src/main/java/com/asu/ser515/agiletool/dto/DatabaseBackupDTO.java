@@ -0,0 +1,35 @@
+package com.asu.ser515.agiletool.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DatabaseBackupDTO {
+
+    private String name;
+
+    private long sizeBytes;
+
+    private Instant createdAt;
+
+    private String sha256;
+
+    // Null for backups taken while there was no archive database
+    private Long archiveSizeBytes;
+
+    private String archiveSha256;
+
+    // Copies of the shard files and their archives, each sealed with its own checksum
+    private List<String> shardFiles;
+
+    // Null until the backup has been checked (it is checked when it is taken and on verify)
+    private Boolean verified;
+
+    private String problem;
+}
@@ -0,0 +1,25 @@
+package com.asu.ser515.agiletool.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DatabaseRestoreDTO {
+
+    private String backup;
+
+    private String restoredTo;
+
+    // Null when the backup has no archive database
+    private String archiveRestoredTo;
+
+    // Directory holding the restored shard files; null when the backup has none
+    private String shardsRestoredTo;
+
+    private long sizeBytes;
+
+    private long durationMs;
+}
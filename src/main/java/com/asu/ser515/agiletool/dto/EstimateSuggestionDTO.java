@@ -0,0 +1,26 @@
+package com.asu.ser515.agiletool.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstimateSuggestionDTO {
+
+    private Long storyId;
+
+    /** Null when no estimated story is similar enough to go by. */
+    private Integer suggestedPoints;
+
+    /**
+     * 0 to 1: the share of similarity-weighted neighbour votes for the suggestion, times the
+     * neighbours' mean similarity.
+     */
+    private double confidence;
+
+    private List<SimilarStoryDTO> neighbours;
+}
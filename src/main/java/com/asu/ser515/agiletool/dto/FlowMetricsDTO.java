@@ -0,0 +1,57 @@
+package com.asu.ser515.agiletool.dto;
+
+import com.asu.ser515.agiletool.models.StoryStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlowMetricsDTO {
+
+    private Long projectId;
+
+    // Null when the metrics cover the whole project
+    private Long releasePlanId;
+
+    private LocalDate fromWeek;
+
+    private int weeks;
+
+    private long completed;
+
+    private Percentiles leadTimeHours;
+
+    private Percentiles cycleTimeHours;
+
+    // Percentiles of stories completed per week, over the requested weeks
+    private Percentiles weeklyThroughput;
+
+    private List<WeeklyThroughput> throughput;
+
+    // Current count of started but unfinished stories, by status
+    private Map<StoryStatus, Long> workInProgress;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Percentiles {
+        private long count;
+        private double p50;
+        private double p85;
+        private double p95;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class WeeklyThroughput {
+        private LocalDate weekStart;
+        private int completed;
+    }
+}
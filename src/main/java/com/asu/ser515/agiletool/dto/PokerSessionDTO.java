@@ -0,0 +1,42 @@
+package com.asu.ser515.agiletool.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PokerSessionDTO {
+
+    private String id;
+
+    private Long projectId;
+
+    private String facilitator;
+
+    private List<String> participants;
+
+    /** Story of the current round; null before the first round. */
+    private Long storyId;
+
+    private String storyKey;
+
+    private String storyTitle;
+
+    private int round;
+
+    private boolean revealed;
+
+    /** Who has voted this round. */
+    private List<String> voted;
+
+    /** Each participant's points, only once the round is revealed. */
+    private Map<String, Integer> votes;
+
+    /** Points saved on the story at the end of this round, if any. */
+    private Integer acceptedPoints;
+}
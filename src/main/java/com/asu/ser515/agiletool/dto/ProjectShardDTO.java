@@ -0,0 +1,23 @@
+package com.asu.ser515.agiletool.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProjectShardDTO {
+
+    private Long projectId;
+
+    private String projectKey;
+
+    // 0 is the main database
+    private int shard;
+
+    // Set only on the response to a move
+    private Long rowsMoved;
+
+    private Long durationMs;
+}
@@ -0,0 +1,46 @@
+package com.asu.ser515.agiletool.dto;
+
+import com.asu.ser515.agiletool.models.ReleaseStatus;
+import com.asu.ser515.agiletool.models.StoryPriority;
+import com.asu.ser515.agiletool.models.StoryStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProjectSummaryDTO {
+
+    private Long projectId;
+
+    // Changes whenever a story or release plan of the project changes; also sent as the ETag
+    private String version;
+
+    private Rollup total;
+
+    private Map<StoryStatus, Rollup> byStatus;
+
+    private Map<StoryPriority, Rollup> byPriority;
+
+    private Rollup mvp;
+
+    private Rollup sprintReady;
+
+    private Map<ReleaseStatus, Long> releasePlansByStatus;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Rollup {
+        private long stories;
+        private long points;
+
+        public void add(long stories, long points) {
+            this.stories += stories;
+            this.points += points;
+        }
+    }
+}
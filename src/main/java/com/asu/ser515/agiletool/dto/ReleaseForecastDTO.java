@@ -0,0 +1,46 @@
+package com.asu.ser515.agiletool.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReleaseForecastDTO {
+
+    private Long releasePlanId;
+
+    // The later of today and the plan's start date
+    private LocalDate forecastFrom;
+
+    private LocalDate targetDate;
+
+    // Points of the plan's stories that are not DONE yet
+    private long remainingPoints;
+
+    // Unfinished stories without points, which the forecast cannot account for
+    private long unestimatedStories;
+
+    // Past weeks whose completed points were sampled
+    private int historyWeeks;
+
+    private int trials;
+
+    private double probabilityOnTarget;
+
+    private CompletionDates completionDates;
+
+    // Dates by which that share of the trials finished; null when later than the simulated horizon
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CompletionDates {
+        private LocalDate p50;
+        private LocalDate p70;
+        private LocalDate p85;
+        private LocalDate p95;
+    }
+}
@@ -42,4 +42,6 @@ public class ReleasePlanResponseDTO {
     private LocalDateTime updatedAt;
 
     private Integer userStoryCount;
+
+    private Long version;
 }
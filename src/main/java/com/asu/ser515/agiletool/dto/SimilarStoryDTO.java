@@ -0,0 +1,25 @@
+package com.asu.ser515.agiletool.dto;
+
+import com.asu.ser515.agiletool.models.StoryStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimilarStoryDTO {
+
+    private Long id;
+
+    private String storyKey;
+
+    private String title;
+
+    private StoryStatus status;
+
+    private Integer storyPoints;
+
+    /** Estimated Jaccard similarity of the two stories' text, 0 to 1. */
+    private double similarity;
+}
@@ -0,0 +1,21 @@
+package com.asu.ser515.agiletool.dto;
+
+import com.asu.ser515.agiletool.models.UserStory;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoryBulkUpdateResultDTO {
+
+    private int requested;
+
+    private int changed;
+
+    // Only the stories whose stored values actually changed
+    private List<UserStory> stories;
+}
@@ -0,0 +1,21 @@
+package com.asu.ser515.agiletool.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoryDependenciesDTO {
+
+    private Long storyId;
+
+    // Stories that must be finished before this one
+    private List<StoryRefDTO> blockedBy;
+
+    // Stories waiting on this one
+    private List<StoryRefDTO> blocks;
+}
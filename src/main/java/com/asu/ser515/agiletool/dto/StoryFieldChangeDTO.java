@@ -0,0 +1,17 @@
+package com.asu.ser515.agiletool.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoryFieldChangeDTO {
+
+    private String field;
+
+    private Object oldValue;
+
+    private Object newValue;
+}
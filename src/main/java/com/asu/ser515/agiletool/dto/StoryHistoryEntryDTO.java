@@ -0,0 +1,25 @@
+package com.asu.ser515.agiletool.dto;
+
+import com.asu.ser515.agiletool.models.StoryAuditAction;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoryHistoryEntryDTO {
+
+    private Long id;
+
+    private StoryAuditAction action;
+
+    private String changedBy;
+
+    private LocalDateTime changedAt;
+
+    private List<StoryFieldChangeDTO> changes;
+}
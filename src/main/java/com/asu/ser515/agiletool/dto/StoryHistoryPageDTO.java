@@ -0,0 +1,21 @@
+package com.asu.ser515.agiletool.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoryHistoryPageDTO {
+
+    private Long storyId;
+
+    // Newest first
+    private List<StoryHistoryEntryDTO> entries;
+
+    // Pass as "before" to fetch the next (older) page; null when there are no more entries
+    private Long nextBefore;
+}
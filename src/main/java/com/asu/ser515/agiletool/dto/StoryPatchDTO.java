@@ -0,0 +1,52 @@
+package com.asu.ser515.agiletool.dto;
+
+import com.asu.ser515.agiletool.models.StoryPriority;
+import com.asu.ser515.agiletool.models.StoryStatus;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One entry of a bulk story update. Fields left null are not touched; the release plan
+ * and sprint links are removed with the explicit clear flags. When {@code version} is set the
+ * whole request is rejected if the story has changed since that version was read.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoryPatchDTO {
+
+    @NotNull(message = "Story id is required")
+    private Long id;
+
+    private Long version;
+
+    private StoryStatus status;
+
+    private StoryPriority priority;
+
+    private Integer storyPoints;
+
+    private Boolean starred;
+
+    private Boolean mvp;
+
+    private Boolean sprintReady;
+
+    private Long releasePlanId;
+
+    private boolean clearReleasePlan;
+
+    private Long sprintId;
+
+    private boolean clearSprint;
+
+    public boolean touchesReleasePlan() {
+        return releasePlanId != null || clearReleasePlan;
+    }
+
+    public boolean touchesSprint() {
+        return sprintId != null || clearSprint;
+    }
+}
@@ -0,0 +1,22 @@
+package com.asu.ser515.agiletool.dto;
+
+import com.asu.ser515.agiletool.models.StoryStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoryRefDTO {
+
+    private Long id;
+
+    private String storyKey;
+
+    private String title;
+
+    private StoryStatus status;
+
+    private Integer storyPoints;
+}
@@ -0,0 +1,20 @@
+package com.asu.ser515.agiletool.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserOffboardRequestDTO {
+
+    @NotEmpty(message = "At least one user id is required")
+    private List<Long> userIds;
+
+    // Optional: stories, tasks and release plans are handed to this user instead of being left unowned
+    private Long reassignToUserId;
+}
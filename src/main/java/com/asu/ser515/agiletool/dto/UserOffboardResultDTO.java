@@ -0,0 +1,25 @@
+package com.asu.ser515.agiletool.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserOffboardResultDTO {
+
+    private int usersDeleted;
+
+    private Long reassignedToUserId;
+
+    private int storiesCreatedByUpdated;
+
+    private int storiesAssignedToUpdated;
+
+    private int tasksUpdated;
+
+    private int releasePlansUpdated;
+
+    private int membershipsRemoved;
+}
@@ -0,0 +1,19 @@
+package com.asu.ser515.agiletool.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Body of a 409 response to a conditional update: what went wrong plus the current state, so the
+ * client can merge and retry with the current version.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VersionConflictDTO {
+
+    private String message;
+
+    private Object current;
+}
@@ -0,0 +1,55 @@
+package com.asu.ser515.agiletool.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import java.time.LocalDate;
+
+/**
+ * Pre-aggregated completions for one project (or one release, when {@code releasePlanId} is
+ * non-zero) in the week starting {@code weekStart}. Histograms are encoded {@code DurationHistogram}s.
+ */
+@Entity
+@Table(name = "flow_weekly_stats", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_flow_weekly_stats_week", columnNames = {"project_id", "release_plan_id", "week_start"})
+})
+@Data
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlowWeeklyStats {
+    public static final long PROJECT_SCOPE = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @EqualsAndHashCode.Include
+    private Long id;
+
+    @Column(name = "project_id", nullable = false)
+    private Long projectId;
+
+    // PROJECT_SCOPE for project-wide rows
+    @Column(name = "release_plan_id", nullable = false)
+    private Long releasePlanId = PROJECT_SCOPE;
+
+    @Column(name = "week_start", nullable = false)
+    private LocalDate weekStart;
+
+    @Column(nullable = false)
+    private Integer completed = 0;
+
+    // Story points of the completed stories; null on rows written before points were tracked
+    @Column(name = "completed_points")
+    private Integer completedPoints = 0;
+
+    @ToString.Exclude
+    @Column(columnDefinition = "BLOB")
+    private byte[] leadTimeHistogram;
+
+    @ToString.Exclude
+    @Column(columnDefinition = "BLOB")
+    private byte[] cycleTimeHistogram;
+}
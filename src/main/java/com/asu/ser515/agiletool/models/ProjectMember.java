@@ -10,7 +10,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "project_member_roles", uniqueConstraints = {
-    @UniqueConstraint(columnNames = {"project_id", "user_id", "role"})
+    @UniqueConstraint(name = "uk_project_member_roles", columnNames = {"project_id", "user_id", "role"})
 })
 @Data
 @NoArgsConstructor
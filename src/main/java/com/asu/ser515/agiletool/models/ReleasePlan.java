@@ -1,5 +1,6 @@
 package com.asu.ser515.agiletool.models;
 
+import com.asu.ser515.agiletool.config.EntityCacheConfig;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -7,6 +8,9 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDate;
@@ -15,7 +19,12 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "release_plans")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = EntityCacheConfig.RELEASE_PLANS)
+@Table(name = "release_plans", indexes = {
+    @Index(name = "idx_release_plans_project_status", columnList = "project_id, status"),
+    @Index(name = "idx_release_plans_status", columnList = "status")
+})
 @Data
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @NoArgsConstructor
@@ -66,6 +75,11 @@ public class ReleasePlan {
     @UpdateTimestamp
     @Column(nullable = false)
     private LocalDateTime updatedAt;
+
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
     
     @OneToMany(mappedBy = "releasePlan", cascade = CascadeType.ALL)
     private Set<UserStory> userStories = new HashSet<>();
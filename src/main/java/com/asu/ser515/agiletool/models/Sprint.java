@@ -6,6 +6,7 @@ import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDate;
@@ -14,7 +15,9 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "sprints")
+@Table(name = "sprints", indexes = {
+    @Index(name = "idx_sprints_project", columnList = "project_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -62,6 +65,11 @@ public class Sprint {
     @UpdateTimestamp
     @Column(nullable = false)
     private LocalDateTime updatedAt;
+
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
     
     @OneToMany(mappedBy = "sprint", cascade = CascadeType.ALL)
     private Set<UserStory> userStories = new HashSet<>();
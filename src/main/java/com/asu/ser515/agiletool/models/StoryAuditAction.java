@@ -0,0 +1,7 @@
+package com.asu.ser515.agiletool.models;
+
+public enum StoryAuditAction {
+    CREATED,
+    UPDATED,
+    DELETED
+}
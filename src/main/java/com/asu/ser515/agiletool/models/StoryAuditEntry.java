@@ -0,0 +1,54 @@
+package com.asu.ser515.agiletool.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+import java.time.LocalDateTime;
+
+/**
+ * One append-only row of a story's change history. The story id is stored as a plain column
+ * so history survives deletion of the story. {@code diff} holds the JSON list of field changes,
+ * deflated when {@code compressed} is set.
+ */
+@Entity
+@Immutable
+@Table(name = "story_audit_log", indexes = {
+    @Index(name = "idx_story_audit_story", columnList = "story_id, id")
+})
+@Data
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoryAuditEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @EqualsAndHashCode.Include
+    private Long id;
+
+    @Column(name = "story_id", nullable = false, updatable = false)
+    private Long storyId;
+
+    @Column(name = "project_id", updatable = false)
+    private Long projectId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20, updatable = false)
+    private StoryAuditAction action;
+
+    @Column(length = 50, updatable = false)
+    private String changedBy;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime changedAt;
+
+    @Column(nullable = false, updatable = false)
+    private Boolean compressed = false;
+
+    @ToString.Exclude
+    @Column(nullable = false, updatable = false, columnDefinition = "BLOB")
+    private byte[] diff;
+}
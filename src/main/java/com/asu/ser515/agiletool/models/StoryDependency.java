@@ -0,0 +1,50 @@
+package com.asu.ser515.agiletool.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.CreationTimestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Directed edge of the story dependency graph: {@code blocker} must be finished before {@code blocked}.
+ */
+@Entity
+@Table(name = "story_dependencies", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_story_dependencies_edge", columnNames = {"blocker_story_id", "blocked_story_id"})
+}, indexes = {
+    @Index(name = "idx_story_dependencies_project", columnList = "project_id"),
+    @Index(name = "idx_story_dependencies_blocked", columnList = "blocked_story_id")
+})
+@Data
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoryDependency {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @EqualsAndHashCode.Include
+    private Long id;
+
+    @ToString.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "project_id", nullable = false)
+    private Project project;
+
+    @ToString.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "blocker_story_id", nullable = false)
+    private UserStory blocker;
+
+    @ToString.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "blocked_story_id", nullable = false)
+    private UserStory blocked;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,50 @@
+package com.asu.ser515.agiletool.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+import java.time.LocalDateTime;
+
+/**
+ * A single status change of a story, kept for flow analytics. {@code fromStatus} is null for
+ * the initial NEW status recorded when the story is created.
+ */
+@Entity
+@Immutable
+@Table(name = "story_status_transitions", indexes = {
+    @Index(name = "idx_status_transitions_story", columnList = "story_id, to_status, transitioned_at"),
+    @Index(name = "idx_status_transitions_project_time", columnList = "project_id, transitioned_at")
+})
+@Data
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoryStatusTransition {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @EqualsAndHashCode.Include
+    private Long id;
+
+    @Column(name = "story_id", nullable = false, updatable = false)
+    private Long storyId;
+
+    @Column(name = "project_id", nullable = false, updatable = false)
+    private Long projectId;
+
+    @Column(name = "release_plan_id", updatable = false)
+    private Long releasePlanId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "from_status", length = 20, updatable = false)
+    private StoryStatus fromStatus;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "to_status", nullable = false, length = 20, updatable = false)
+    private StoryStatus toStatus;
+
+    @Column(name = "transitioned_at", nullable = false, updatable = false)
+    private LocalDateTime transitionedAt;
+}
@@ -0,0 +1,103 @@
+package com.asu.ser515.agiletool.models;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores long story text deflated (fastest level) behind a two-byte {@code {0,'Z'}} header.
+ * Shorter text, and text written before compression was introduced, is stored as plain UTF-8;
+ * plain text that itself starts with a NUL byte gets a {@code {0,'T'}} header so it can never be
+ * mistaken for compressed text.
+ */
+@Converter
+public class StoryTextConverter implements AttributeConverter<String, byte[]> {
+
+    public static final int COMPRESS_THRESHOLD_BYTES = 1024;
+
+    private static final byte[] HEADER = {0, 'Z'};
+    private static final byte[] PLAIN_HEADER = {0, 'T'};
+
+    @Override
+    public byte[] convertToDatabaseColumn(String text) {
+        return text == null ? null : encode(text);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] stored) {
+        return stored == null ? null : decode(stored);
+    }
+
+    public static byte[] encode(String text) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length < COMPRESS_THRESHOLD_BYTES) {
+            return plain(utf8);
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(utf8);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(utf8.length / 2);
+            out.write(HEADER, 0, HEADER.length);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            // Incompressible text is cheaper to keep as it is
+            return out.size() < utf8.length ? out.toByteArray() : plain(utf8);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static boolean isCompressed(byte[] stored) {
+        return hasHeader(stored, HEADER);
+    }
+
+    private static boolean hasHeader(byte[] stored, byte[] header) {
+        return stored.length >= header.length && stored[0] == header[0] && stored[1] == header[1];
+    }
+
+    // Only text starting with NUL could collide with a header, everything else is stored as it is
+    private static byte[] plain(byte[] utf8) {
+        if (utf8.length == 0 || utf8[0] != 0) {
+            return utf8;
+        }
+        byte[] tagged = new byte[PLAIN_HEADER.length + utf8.length];
+        System.arraycopy(PLAIN_HEADER, 0, tagged, 0, PLAIN_HEADER.length);
+        System.arraycopy(utf8, 0, tagged, PLAIN_HEADER.length, utf8.length);
+        return tagged;
+    }
+
+    public static String decode(byte[] stored) {
+        if (hasHeader(stored, PLAIN_HEADER)) {
+            return new String(stored, PLAIN_HEADER.length, stored.length - PLAIN_HEADER.length, StandardCharsets.UTF_8);
+        }
+        if (!isCompressed(stored)) {
+            return new String(stored, StandardCharsets.UTF_8);
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(stored, HEADER.length, stored.length - HEADER.length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(stored.length * 3);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed story text");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed story text", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.asu.ser515.agiletool.models;
 
+import com.asu.ser515.agiletool.config.JsonConfig;
+import com.fasterxml.jackson.annotation.JsonFilter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
@@ -7,7 +9,10 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.LazyGroup;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.hibernate.proxy.HibernateProxy;
 import java.time.LocalDateTime;
@@ -15,11 +20,18 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "user_stories")
+@Table(name = "user_stories", indexes = {
+    @Index(name = "idx_user_stories_project_rank", columnList = "project_id, backlog_rank"),
+    @Index(name = "idx_user_stories_project", columnList = "project_id"),
+    @Index(name = "idx_user_stories_release_plan", columnList = "release_plan_id"),
+    @Index(name = "idx_user_stories_sprint", columnList = "sprint_id"),
+    @Index(name = "idx_user_stories_assignee", columnList = "assigned_to_user_id")
+})
 @Data
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonFilter(JsonConfig.LOADED_ONLY)
 public class UserStory {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -33,9 +45,19 @@ public class UserStory {
     @Column(unique = true, length = 50)
     private String storyKey;
 
+    // Long text is only read when accessed (bytecode enhancement) and compressed at rest; JSON
+    // leaves it out unless it was loaded
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("text")
+    @Convert(converter = StoryTextConverter.class)
+    @ToString.Exclude
     @Column(columnDefinition = "TEXT")
     private String description;
-    
+
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("text")
+    @Convert(converter = StoryTextConverter.class)
+    @ToString.Exclude
     @Column(columnDefinition = "TEXT")
     private String acceptanceCriteria;
     
@@ -71,6 +93,10 @@ public class UserStory {
     @Column
     private Boolean isStarred = false;
 
+    // Fractional ordering key within the project backlog, see RankKeys
+    @Column(name = "backlog_rank", length = 255)
+    private String backlogRank;
+
     @JsonIgnore
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "project_id", nullable = false)
@@ -103,6 +129,12 @@ public class UserStory {
     @UpdateTimestamp
     @Column(nullable = false)
     private LocalDateTime updatedAt;
+
+    // Bumped on every update; writes from a stale copy fail instead of overwriting newer changes
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
     
     @Column
     private LocalDateTime refinedAt;
@@ -110,6 +142,10 @@ public class UserStory {
     @Column
     private LocalDateTime estimatedAt;
 
+    // Set on stories read from the cold archive, see StoryArchiveService
+    @Transient
+    private boolean archived;
+
     @JsonIgnore
     @OneToMany(mappedBy = "userStory", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<Task> tasks = new HashSet<>();
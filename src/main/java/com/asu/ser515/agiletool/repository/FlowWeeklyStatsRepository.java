@@ -0,0 +1,24 @@
+package com.asu.ser515.agiletool.repository;
+
+import com.asu.ser515.agiletool.models.FlowWeeklyStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FlowWeeklyStatsRepository extends JpaRepository<FlowWeeklyStats, Long> {
+    Optional<FlowWeeklyStats> findByProjectIdAndReleasePlanIdAndWeekStart(Long projectId, Long releasePlanId, LocalDate weekStart);
+
+    List<FlowWeeklyStats> findByProjectIdAndReleasePlanIdAndWeekStartGreaterThanEqualOrderByWeekStartAsc(
+            Long projectId, Long releasePlanId, LocalDate from);
+
+    @Modifying
+    @Query("DELETE FROM FlowWeeklyStats f WHERE f.projectId = :projectId")
+    int deleteByProjectId(@Param("projectId") Long projectId);
+}
@@ -1,7 +1,13 @@
 package com.asu.ser515.agiletool.repository;
 
+import com.asu.ser515.agiletool.config.EntityCacheConfig;
 import com.asu.ser515.agiletool.models.Project;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,11 +15,17 @@ import java.util.Optional;
 
 @Repository
 public interface ProjectRepository extends JpaRepository<Project, Long> {
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = EntityCacheConfig.LOOKUP_QUERIES)})
     Optional<Project> findByProjectKey(String projectKey);
     boolean existsByProjectKey(String projectKey);
 
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = EntityCacheConfig.LOOKUP_QUERIES)})
     Optional<Project> findByProjectCode(String projectCode);
     boolean existsByProjectCode(String projectCode);
 
-    List<Project> findByMembers_Username(String username);
+    // Inner join, so SQLite can start from the user and follow idx_project_members_user
+    @Query("SELECT p FROM Project p JOIN p.members m WHERE m.username = :username")
+    List<Project> findByMembers_Username(@Param("username") String username);
 }
@@ -1,8 +1,14 @@
 package com.asu.ser515.agiletool.repository;
 
+import com.asu.ser515.agiletool.config.EntityCacheConfig;
 import com.asu.ser515.agiletool.models.ReleasePlan;
 import com.asu.ser515.agiletool.models.ReleaseStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,10 +17,17 @@ import java.util.Optional;
 @Repository
 public interface ReleasePlanRepository extends JpaRepository<ReleasePlan, Long> {
 
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = EntityCacheConfig.LOOKUP_QUERIES)})
     List<ReleasePlan> findByProjectId(Long projectId);
     List<ReleasePlan> findByStatus(ReleaseStatus status);
     Optional<ReleasePlan> findByIdAndProjectId(Long id, Long projectId);
     List<ReleasePlan> findAllByOrderByIdAsc();
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = EntityCacheConfig.LOOKUP_QUERIES)})
     Optional<ReleasePlan> findByReleaseKey(String releaseKey);
     boolean existsByReleaseKey(String releaseKey);
+
+    @Query("SELECT rp.status, COUNT(rp) FROM ReleasePlan rp WHERE rp.project.id = :projectId GROUP BY rp.status")
+    List<Object[]> countByStatusForProject(@Param("projectId") Long projectId);
 }
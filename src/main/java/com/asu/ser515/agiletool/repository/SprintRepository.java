@@ -0,0 +1,12 @@
+package com.asu.ser515.agiletool.repository;
+
+import com.asu.ser515.agiletool.models.Sprint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SprintRepository extends JpaRepository<Sprint, Long> {
+    List<Sprint> findByProjectId(Long projectId);
+}
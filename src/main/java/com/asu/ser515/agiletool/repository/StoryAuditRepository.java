@@ -0,0 +1,15 @@
+package com.asu.ser515.agiletool.repository;
+
+import com.asu.ser515.agiletool.models.StoryAuditEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StoryAuditRepository extends JpaRepository<StoryAuditEntry, Long> {
+    List<StoryAuditEntry> findByStoryIdOrderByIdDesc(Long storyId, Limit limit);
+
+    List<StoryAuditEntry> findByStoryIdAndIdLessThanOrderByIdDesc(Long storyId, Long beforeId, Limit limit);
+}
@@ -0,0 +1,33 @@
+package com.asu.ser515.agiletool.repository;
+
+import com.asu.ser515.agiletool.models.StoryDependency;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StoryDependencyRepository extends JpaRepository<StoryDependency, Long> {
+
+    @Query("SELECT d.blocker.id AS blockerId, d.blocked.id AS blockedId FROM StoryDependency d "
+            + "WHERE d.project.id = :projectId")
+    List<EdgeView> findEdgesByProjectId(@Param("projectId") Long projectId);
+
+    boolean existsByBlockerIdAndBlockedId(Long blockerId, Long blockedId);
+
+    @Modifying
+    @Query("DELETE FROM StoryDependency d WHERE d.blocker.id = :blockerId AND d.blocked.id = :blockedId")
+    int deleteEdge(@Param("blockerId") Long blockerId, @Param("blockedId") Long blockedId);
+
+    @Modifying
+    @Query("DELETE FROM StoryDependency d WHERE d.blocker.id = :storyId OR d.blocked.id = :storyId")
+    int deleteAllForStory(@Param("storyId") Long storyId);
+
+    interface EdgeView {
+        Long getBlockerId();
+        Long getBlockedId();
+    }
+}
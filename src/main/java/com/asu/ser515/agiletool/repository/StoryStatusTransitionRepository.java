@@ -0,0 +1,22 @@
+package com.asu.ser515.agiletool.repository;
+
+import com.asu.ser515.agiletool.models.StoryStatus;
+import com.asu.ser515.agiletool.models.StoryStatusTransition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StoryStatusTransitionRepository extends JpaRepository<StoryStatusTransition, Long> {
+    @Query("SELECT DISTINCT t.storyId FROM StoryStatusTransition t WHERE t.storyId IN :storyIds AND t.toStatus = :status")
+    List<Long> findStoryIdsReachedStatus(@Param("storyIds") Collection<Long> storyIds, @Param("status") StoryStatus status);
+
+    Optional<StoryStatusTransition> findFirstByStoryIdAndToStatusOrderByTransitionedAtAsc(Long storyId, StoryStatus toStatus);
+
+    List<StoryStatusTransition> findByProjectIdOrderByTransitionedAtAsc(Long projectId);
+}
@@ -1,14 +1,29 @@
 package com.asu.ser515.agiletool.repository;
 
+import com.asu.ser515.agiletool.config.EntityCacheConfig;
 import com.asu.ser515.agiletool.models.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = EntityCacheConfig.LOOKUP_QUERIES)})
     Optional<User> findByUsername(String username);
+
     Optional<User> findByEmail(String email);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
-}
\ No newline at end of file
+
+    // Single round trip for login: matches either column and fetches roles in the same query
+    @Query("SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.roles WHERE u.username = :login OR u.email = :login")
+    List<User> findAllByUsernameOrEmailWithRoles(@Param("login") String login);
+}
@@ -1,14 +1,238 @@
 package com.asu.ser515.agiletool.repository;
 
+import com.asu.ser515.agiletool.models.ReleasePlan;
+import com.asu.ser515.agiletool.models.Sprint;
+import com.asu.ser515.agiletool.models.StoryPriority;
+import com.asu.ser515.agiletool.models.StoryStatus;
 import com.asu.ser515.agiletool.models.UserStory;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserStoryRepository extends JpaRepository<UserStory, Long> {
-    List<UserStory> findAllByOrderByIdAsc();
 
     List<UserStory> findAllByProjectIdOrderByIdAsc(Long projectId);
+
+    List<UserStory> findAllByProjectIdOrderByBacklogRankAscIdAsc(Long projectId);
+
+    // The *WithText finders read the lazy text columns in the same query instead of one per story
+    @EntityGraph(type = EntityGraph.EntityGraphType.LOAD, attributePaths = {"description", "acceptanceCriteria"})
+    @Query("SELECT s FROM UserStory s WHERE s.project.id = :projectId ORDER BY s.backlogRank, s.id")
+    List<UserStory> findWithTextByProjectId(@Param("projectId") Long projectId);
+
+    @EntityGraph(type = EntityGraph.EntityGraphType.LOAD, attributePaths = {"description", "acceptanceCriteria"})
+    @Query("SELECT s FROM UserStory s ORDER BY s.id")
+    List<UserStory> findAllWithText();
+
+    @EntityGraph(type = EntityGraph.EntityGraphType.LOAD, attributePaths = {"description", "acceptanceCriteria"})
+    @Query("SELECT s FROM UserStory s WHERE s.id = :id")
+    Optional<UserStory> findWithTextById(@Param("id") Long id);
+
+    @Query("SELECT s.status, COUNT(s) FROM UserStory s WHERE s.project.id = :projectId "
+            + "AND (:releasePlanId IS NULL OR s.releasePlan.id = :releasePlanId) GROUP BY s.status")
+    List<Object[]> countByStatus(@Param("projectId") Long projectId, @Param("releasePlanId") Long releasePlanId);
+
+    // One row per (status, priority, mvp, sprint-ready) combination: at most a few dozen rows per project
+    @Query("SELECT s.status, s.priority, s.isMvp, s.sprintReady, COUNT(s), SUM(COALESCE(s.storyPoints, 0)) "
+            + "FROM UserStory s WHERE s.project.id = :projectId "
+            + "GROUP BY s.status, s.priority, s.isMvp, s.sprintReady")
+    List<Object[]> summarizeByProject(@Param("projectId") Long projectId);
+
+    @Query("SELECT s.id, s.createdAt, s.storyPoints FROM UserStory s WHERE s.project.id = :projectId")
+    List<Object[]> findCreatedAtByProjectId(@Param("projectId") Long projectId);
+
+    @Query("SELECT MAX(s.backlogRank) FROM UserStory s WHERE s.project.id = :projectId")
+    String findMaxBacklogRank(@Param("projectId") Long projectId);
+
+    Optional<UserStory> findFirstByProjectIdAndBacklogRankGreaterThanAndIdNotOrderByBacklogRankAsc(
+            Long projectId, String backlogRank, Long excludedId);
+
+    Optional<UserStory> findFirstByProjectIdAndBacklogRankLessThanAndIdNotOrderByBacklogRankDesc(
+            Long projectId, String backlogRank, Long excludedId);
+
+    // Read in index order (project_id, backlog_rank, id); where unranked (legacy) rows land is up to the database
+    @Query("SELECT s.id AS id, s.backlogRank AS backlogRank FROM UserStory s WHERE s.project.id = :projectId "
+            + "ORDER BY s.backlogRank, s.id")
+    List<RankView> findRanksByProjectId(@Param("projectId") Long projectId);
+
+    @Query("SELECT DISTINCT s.project.id FROM UserStory s WHERE s.backlogRank IS NULL")
+    List<Long> findProjectIdsWithUnrankedStories();
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE UserStory s SET s.backlogRank = :rank WHERE s.id = :id")
+    int updateBacklogRank(@Param("id") Long id, @Param("rank") String rank);
+
+    // Flat snapshot of the bulk-editable columns, loaded without hydrating entities or their associations
+    @Query("SELECT s.id AS id, p.id AS projectId, s.status AS status, s.priority AS priority, "
+            + "s.storyPoints AS storyPoints, s.isStarred AS starred, s.isMvp AS mvp, s.sprintReady AS sprintReady, "
+            + "rp.id AS releasePlanId, sp.id AS sprintId, s.version AS version "
+            + "FROM UserStory s JOIN s.project p LEFT JOIN s.releasePlan rp LEFT JOIN s.sprint sp "
+            + "WHERE s.id IN :ids")
+    List<StoryStateView> findStateByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE UserStory s SET s.status = :status, s.updatedAt = :now "
+            + "WHERE s.id IN :ids")
+    int bulkUpdateStatus(@Param("ids") Collection<Long> ids, @Param("status") StoryStatus status,
+                         @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE UserStory s SET s.priority = :priority, s.updatedAt = :now "
+            + "WHERE s.id IN :ids")
+    int bulkUpdatePriority(@Param("ids") Collection<Long> ids, @Param("priority") StoryPriority priority,
+                           @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE UserStory s SET s.storyPoints = :storyPoints, s.estimatedAt = :now, s.updatedAt = :now "
+            + "WHERE s.id IN :ids")
+    int bulkUpdateStoryPoints(@Param("ids") Collection<Long> ids, @Param("storyPoints") Integer storyPoints,
+                              @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE UserStory s SET s.isStarred = :starred, s.updatedAt = :now "
+            + "WHERE s.id IN :ids")
+    int bulkUpdateStarred(@Param("ids") Collection<Long> ids, @Param("starred") Boolean starred,
+                          @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE UserStory s SET s.isMvp = :mvp, s.updatedAt = :now "
+            + "WHERE s.id IN :ids")
+    int bulkUpdateMvp(@Param("ids") Collection<Long> ids, @Param("mvp") Boolean mvp,
+                      @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE UserStory s SET s.sprintReady = :sprintReady, s.updatedAt = :now "
+            + "WHERE s.id IN :ids")
+    int bulkUpdateSprintReady(@Param("ids") Collection<Long> ids, @Param("sprintReady") Boolean sprintReady,
+                              @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE UserStory s SET s.releasePlan = :releasePlan, s.updatedAt = :now "
+            + "WHERE s.id IN :ids")
+    int bulkUpdateReleasePlan(@Param("ids") Collection<Long> ids, @Param("releasePlan") ReleasePlan releasePlan,
+                              @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE UserStory s SET s.sprint = :sprint, s.updatedAt = :now "
+            + "WHERE s.id IN :ids")
+    int bulkUpdateSprint(@Param("ids") Collection<Long> ids, @Param("sprint") Sprint sprint,
+                         @Param("now") LocalDateTime now);
+
+    // The bulkUpdate* statements leave the version alone so a story changed in several fields moves one version
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE UserStory s SET s.version = s.version + 1 WHERE s.id IN :ids")
+    int bumpVersions(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT s.id AS id, s.storyKey AS storyKey, s.title AS title, s.status AS status, "
+            + "s.storyPoints AS storyPoints, s.project.id AS projectId FROM UserStory s WHERE s.id IN :ids")
+    List<StoryRefView> findRefsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT s.id AS id, s.storyKey AS storyKey, s.title AS title, s.status AS status, "
+            + "s.storyPoints AS storyPoints, s.project.id AS projectId FROM UserStory s "
+            + "WHERE s.releasePlan.id = :releasePlanId")
+    List<StoryRefView> findRefsByReleasePlanId(@Param("releasePlanId") Long releasePlanId);
+
+    @Query("SELECT s.id AS id, s.project.id AS projectId, s.title AS title, s.description AS description, "
+            + "s.acceptanceCriteria AS acceptanceCriteria, s.iWant AS want, s.soThat AS soThat, "
+            + "s.storyPoints AS storyPoints FROM UserStory s WHERE s.project.id = :projectId")
+    List<StoryTextView> findTextsByProjectId(@Param("projectId") Long projectId);
+
+    @Query("SELECT s.id AS id, s.project.id AS projectId, s.title AS title, s.description AS description, "
+            + "s.acceptanceCriteria AS acceptanceCriteria, s.iWant AS want, s.soThat AS soThat, "
+            + "s.storyPoints AS storyPoints FROM UserStory s "
+            + "WHERE s.project.id = :projectId AND s.storyPoints IS NOT NULL")
+    List<StoryTextView> findEstimatedTextsByProjectId(@Param("projectId") Long projectId);
+
+    @Query("SELECT s.id AS id, s.project.id AS projectId, s.title AS title, s.description AS description, "
+            + "s.acceptanceCriteria AS acceptanceCriteria, s.iWant AS want, s.soThat AS soThat, "
+            + "s.storyPoints AS storyPoints FROM UserStory s WHERE s.id = :id")
+    Optional<StoryTextView> findTextById(@Param("id") Long id);
+
+    // Read-only scalar rows, so a long export never accumulates managed entities
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT s.id AS id, s.storyKey AS storyKey, s.title AS title, s.description AS description, "
+            + "s.acceptanceCriteria AS acceptanceCriteria, s.asA AS asA, s.iWant AS want, s.soThat AS soThat, "
+            + "s.status AS status, s.priority AS priority, s.storyPoints AS storyPoints, "
+            + "s.businessValue AS businessValue, s.isMvp AS mvp, s.sprintReady AS sprintReady, "
+            + "rp.releaseKey AS releaseKey, sp.name AS sprintName, a.username AS assignee, "
+            + "s.backlogRank AS backlogRank, s.createdAt AS createdAt, s.updatedAt AS updatedAt "
+            + "FROM UserStory s LEFT JOIN s.releasePlan rp LEFT JOIN s.sprint sp LEFT JOIN s.assignedTo a "
+            + "WHERE s.project.id = :projectId ORDER BY s.backlogRank ASC, s.id ASC")
+    Stream<StoryExportView> streamExportRows(@Param("projectId") Long projectId);
+
+    interface StoryExportView {
+        Long getId();
+        String getStoryKey();
+        String getTitle();
+        String getDescription();
+        String getAcceptanceCriteria();
+        String getAsA();
+        String getWant();
+        String getSoThat();
+        StoryStatus getStatus();
+        StoryPriority getPriority();
+        Integer getStoryPoints();
+        Integer getBusinessValue();
+        Boolean getMvp();
+        Boolean getSprintReady();
+        String getReleaseKey();
+        String getSprintName();
+        String getAssignee();
+        String getBacklogRank();
+        LocalDateTime getCreatedAt();
+        LocalDateTime getUpdatedAt();
+    }
+
+    interface RankView {
+        Long getId();
+        String getBacklogRank();
+    }
+
+    interface StoryTextView {
+        Long getId();
+        Long getProjectId();
+        String getTitle();
+        String getDescription();
+        String getAcceptanceCriteria();
+        String getWant();
+        String getSoThat();
+        Integer getStoryPoints();
+    }
+
+    interface StoryRefView {
+        Long getId();
+        String getStoryKey();
+        String getTitle();
+        StoryStatus getStatus();
+        Integer getStoryPoints();
+        Long getProjectId();
+    }
+
+    interface StoryStateView {
+        Long getId();
+        Long getProjectId();
+        StoryStatus getStatus();
+        StoryPriority getPriority();
+        Integer getStoryPoints();
+        Boolean getStarred();
+        Boolean getMvp();
+        Boolean getSprintReady();
+        Long getReleasePlanId();
+        Long getSprintId();
+        Long getVersion();
+    }
 }
@@ -0,0 +1,195 @@
+package com.asu.ser515.agiletool.service;
+
+import com.asu.ser515.agiletool.config.ProjectShards;
+import com.asu.ser515.agiletool.models.UserStory;
+import com.asu.ser515.agiletool.repository.UserStoryRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maintains the manual backlog order. Moving a story writes only that story's rank key;
+ * a project is rebalanced (all keys rewritten evenly spaced) in the background once one of
+ * its keys grows past {@code backlog.rank.max-length}, or when it still has unranked stories.
+ */
+@Service
+public class BacklogRankService {
+
+    // Stories rewritten per UPDATE when rebalancing; two bind parameters each
+    private static final int REBALANCE_CHUNK = 400;
+
+    private final UserStoryRepository storyRepo;
+    private final EntityManager entityManager;
+    private final ProjectShards shards;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxKeyLength;
+    private final Set<Long> pendingRebalance = ConcurrentHashMap.newKeySet();
+    private volatile boolean backfillDone;
+
+    public BacklogRankService(UserStoryRepository storyRepo,
+                              EntityManager entityManager,
+                              ProjectShards shards,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${backlog.rank.max-length:32}") int maxKeyLength) {
+        this.storyRepo = storyRepo;
+        this.entityManager = entityManager;
+        this.shards = shards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxKeyLength = maxKeyLength;
+    }
+
+    /**
+     * Rank for a story appended to the bottom of the project backlog.
+     */
+    public String nextRank(Long projectId) {
+        String last = storyRepo.findMaxBacklogRank(projectId);
+        String rank = RankKeys.between(last, null);
+        scheduleIfTooLong(projectId, rank);
+        return rank;
+    }
+
+    /**
+     * Moves a story directly after {@code afterStoryId} and/or directly before {@code beforeStoryId}.
+     * Supplying one neighbour is enough; the other side is looked up by rank. With neither, the
+     * story goes to the top of the backlog.
+     */
+    @Transactional
+    public String move(Long storyId, Long afterStoryId, Long beforeStoryId) {
+        return move(storyId, afterStoryId, beforeStoryId, true);
+    }
+
+    private String move(Long storyId, Long afterStoryId, Long beforeStoryId, boolean mayRebalance) {
+        UserStory story = storyRepo.findById(storyId)
+                .orElseThrow(() -> new IllegalArgumentException("User Story not found with id: " + storyId));
+        Long projectId = story.getProject().getId();
+
+        if (storyId.equals(afterStoryId) || storyId.equals(beforeStoryId)) {
+            throw new IllegalArgumentException("A story cannot be moved relative to itself");
+        }
+
+        UserStory after = afterStoryId != null ? neighbour(afterStoryId, projectId) : null;
+        UserStory before = beforeStoryId != null ? neighbour(beforeStoryId, projectId) : null;
+
+        if (mayRebalance && (story.getBacklogRank() == null
+                || (after != null && after.getBacklogRank() == null)
+                || (before != null && before.getBacklogRank() == null))) {
+            // Legacy rows without keys: rank the whole project once, then retry against fresh keys
+            rebalanceProject(projectId);
+            return move(storyId, afterStoryId, beforeStoryId, false);
+        }
+
+        String lower;
+        String upper;
+        if (after != null && before != null) {
+            lower = after.getBacklogRank();
+            upper = before.getBacklogRank();
+        } else if (after != null) {
+            lower = after.getBacklogRank();
+            upper = storyRepo.findFirstByProjectIdAndBacklogRankGreaterThanAndIdNotOrderByBacklogRankAsc(
+                    projectId, lower, storyId).map(UserStory::getBacklogRank).orElse(null);
+        } else if (before != null) {
+            upper = before.getBacklogRank();
+            lower = storyRepo.findFirstByProjectIdAndBacklogRankLessThanAndIdNotOrderByBacklogRankDesc(
+                    projectId, upper, storyId).map(UserStory::getBacklogRank).orElse(null);
+        } else {
+            lower = null;
+            upper = storyRepo.findFirstByProjectIdAndBacklogRankGreaterThanAndIdNotOrderByBacklogRankAsc(
+                    projectId, "", storyId).map(UserStory::getBacklogRank).orElse(null);
+        }
+
+        if (lower != null && upper != null && lower.compareTo(upper) >= 0) {
+            throw new IllegalArgumentException("Story " + afterStoryId + " must come before story " + beforeStoryId);
+        }
+        if (Objects.equals(lower, upper)) {
+            if (!mayRebalance) {
+                throw new IllegalStateException("Could not compute a backlog rank for story " + storyId);
+            }
+            // Duplicate keys can only come from concurrent writers; fix the project and retry
+            rebalanceProject(projectId);
+            return move(storyId, afterStoryId, beforeStoryId, false);
+        }
+
+        String rank = RankKeys.between(lower, upper);
+        storyRepo.updateBacklogRank(storyId, rank);
+        scheduleIfTooLong(projectId, rank);
+        return rank;
+    }
+
+    /**
+     * Rewrites every rank key of the project, preserving the current order, with one
+     * {@code CASE} update per {@value #REBALANCE_CHUNK} stories.
+     */
+    @Transactional
+    public void rebalanceProject(Long projectId) {
+        // Current order with unranked (legacy) stories last, in creation order
+        List<Long> ids = new ArrayList<>();
+        List<Long> unranked = new ArrayList<>();
+        for (UserStoryRepository.RankView row : storyRepo.findRanksByProjectId(projectId)) {
+            (row.getBacklogRank() == null ? unranked : ids).add(row.getId());
+        }
+        ids.addAll(unranked);
+        List<String> keys = RankKeys.spread(ids.size());
+        entityManager.flush();
+        for (int from = 0; from < ids.size(); from += REBALANCE_CHUNK) {
+            int to = Math.min(from + REBALANCE_CHUNK, ids.size());
+            StringBuilder jpql = new StringBuilder("UPDATE UserStory s SET s.backlogRank = CASE s.id");
+            for (int i = from; i < to; i++) {
+                jpql.append(" WHEN :id").append(i - from).append(" THEN :rank").append(i - from);
+            }
+            jpql.append(" END WHERE s.id IN :ids");
+            Query update = entityManager.createQuery(jpql.toString()).setParameter("ids", ids.subList(from, to));
+            for (int i = from; i < to; i++) {
+                update.setParameter("id" + (i - from), ids.get(i)).setParameter("rank" + (i - from), keys.get(i));
+            }
+            update.executeUpdate();
+        }
+        // Managed stories still hold their old keys
+        entityManager.clear();
+        pendingRebalance.remove(projectId);
+    }
+
+    public boolean isRebalancePending(Long projectId) {
+        return pendingRebalance.contains(projectId);
+    }
+
+    @Scheduled(initialDelayString = "${backlog.rank.rebalance-initial-delay-ms:10000}",
+            fixedDelayString = "${backlog.rank.rebalance-interval-ms:60000}")
+    public void rebalancePending() {
+        if (!backfillDone) {
+            // New stories are always ranked on create, so only rows from before ranking existed need this
+            pendingRebalance.addAll(shards.collect(storyRepo::findProjectIdsWithUnrankedStories));
+            backfillDone = true;
+        }
+        for (Long projectId : List.copyOf(pendingRebalance)) {
+            try (ProjectShards.Scope ignored = shards.useProject(projectId)) {
+                transactionTemplate.executeWithoutResult(status -> rebalanceProject(projectId));
+            }
+        }
+    }
+
+    private UserStory neighbour(Long id, Long projectId) {
+        UserStory neighbour = storyRepo.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("User Story not found with id: " + id));
+        if (!neighbour.getProject().getId().equals(projectId)) {
+            throw new IllegalArgumentException("Stories must belong to the same project");
+        }
+        return neighbour;
+    }
+
+    private void scheduleIfTooLong(Long projectId, String rank) {
+        if (rank.length() > maxKeyLength) {
+            pendingRebalance.add(projectId);
+        }
+    }
+}
@@ -5,23 +5,33 @@ import com.asu.ser515.agiletool.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private LoginUserCache userCache;
+
     @Override
     public UserDetails loadUserByUsername(String usernameOrEmail) throws UsernameNotFoundException {
-        // Allow login via either username or email
-        User user = userRepository.findByUsername(usernameOrEmail)
-                .or(() -> userRepository.findByEmail(usernameOrEmail))
+        // Allow login via either username or email; a username match wins if both columns match different rows
+        List<User> candidates = userRepository.findAllByUsernameOrEmailWithRoles(usernameOrEmail);
+        User user = candidates.stream()
+                .filter(u -> usernameOrEmail.equals(u.getUsername()))
+                .findFirst()
+                .or(() -> candidates.stream().findFirst())
                 .orElseThrow(() -> new UsernameNotFoundException(
                         "User not found with username or email: " + usernameOrEmail));
 
@@ -29,6 +39,28 @@ public class CustomUserDetailsService implements UserDetailsService {
             throw new UsernameNotFoundException("User account is inactive");
         }
 
+        // The provider caches the result under the username but looks it up by the login as typed
+        userCache.putAlias(usernameOrEmail, user.getUsername());
+        return toUserDetails(user);
+    }
+
+    /**
+     * Called by the authentication provider after a successful login when the stored hash
+     * was produced with a lower BCrypt strength than the one currently configured.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newEncodedPassword) {
+        User user = userRepository.findByUsername(userDetails.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException(
+                        "User not found with username: " + userDetails.getUsername()));
+        user.setPassword(newEncodedPassword);
+        userRepository.save(user);
+        userCache.removeUserFromCache(user.getUsername());
+        return toUserDetails(user);
+    }
+
+    private UserDetails toUserDetails(User user) {
         Set<SimpleGrantedAuthority> authorities = user.getRoles().stream()
                 .map(role -> new SimpleGrantedAuthority("ROLE_" + role.name()))
                 .collect(Collectors.toSet());
@@ -0,0 +1,572 @@
+package com.asu.ser515.agiletool.service;
+
+import com.asu.ser515.agiletool.config.ProjectShards;
+import com.asu.ser515.agiletool.config.SerializedWriteTransactionManager;
+import com.asu.ser515.agiletool.config.ShardPools;
+import com.asu.ser515.agiletool.dto.DatabaseBackupDTO;
+import com.asu.ser515.agiletool.dto.DatabaseRestoreDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.core.DB;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Takes consistent snapshots of the live database with SQLite's online backup API. The copy is made
+ * from a dedicated read-only connection that holds one read transaction for the whole run, so it
+ * sees a single WAL snapshot while writers carry on; pages are copied a few at a time with a pause
+ * between steps. Each backup is integrity-checked and gets a {@code .sha256} sidecar (sha256sum
+ * format) before it is moved into place; only the newest {@code backup.retention} are kept.
+ *
+ * <p>The archive database travels with it: the same connection attaches {@code archive.file} and
+ * copies it to {@code <name>.archive.db} from the same read transaction, with its own checksum.
+ * So do the shard files of projects kept apart (see {@link ProjectShards}): each is copied to
+ * {@code <name>.shard-<n>.db}, and its archive to {@code <name>.shard-<n>.archive.db}, from a
+ * snapshot started together with the main one while no write is open. Verify, restore and pruning
+ * treat the set as one backup.
+ */
+@Service
+public class DatabaseBackupService {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseBackupService.class);
+
+    private static final String PREFIX = "agile_tool-";
+    private static final DateTimeFormatter NAME_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final Pattern BACKUP_NAME = Pattern.compile("agile_tool-(\\d{8}-\\d{6}-\\d{3})\\.db");
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9._-]+\\.db");
+    private static final String ARCHIVE_SUFFIX = ".archive.db";
+    private static final Pattern SHARD_FILE = Pattern.compile("\\.shard-(\\d+)(\\.archive)?\\.db");
+    private static final int SQLITE_OK = 0;
+    // Sleep between retries of a step that found the database busy or locked
+    private static final int BUSY_RETRY_MILLIS = 50;
+
+    private final Path databaseFile;
+    private final Path archiveFile;
+    private final Path directory;
+    private final boolean enabled;
+    private final int retention;
+    private final int pagesPerStep;
+    private final int stepPauseMillis;
+    private final int busyTimeoutMillis;
+    private final int busyRetries;
+    private final ReentrantLock running = new ReentrantLock();
+    private final Timer backupTimer;
+    private final Counter failures;
+    private final PlatformTransactionManager transactionManager;
+    private final ProjectShards shards;
+    private final ShardPools shardPools;
+
+    public DatabaseBackupService(@Value("${spring.datasource.url}") String url,
+                                 @Value("${archive.file:${user.dir}/agile_tool_archive.db}") String archiveFile,
+                                 @Value("${backup.directory:${user.dir}/backups}") String directory,
+                                 @Value("${backup.enabled:true}") boolean enabled,
+                                 @Value("${backup.retention:7}") int retention,
+                                 @Value("${backup.pages-per-step:256}") int pagesPerStep,
+                                 @Value("${backup.step-pause-ms:5}") int stepPauseMillis,
+                                 @Value("${sqlite.busy-timeout-ms:5000}") int busyTimeoutMillis,
+                                 PlatformTransactionManager transactionManager,
+                                 ProjectShards shards,
+                                 ShardPools shardPools,
+                                 MeterRegistry meterRegistry) {
+        String file = url.replaceFirst("^jdbc:sqlite:", "").replaceFirst("^file:", "");
+        int query = file.indexOf('?');
+        this.databaseFile = Paths.get(query < 0 ? file : file.substring(0, query)).toAbsolutePath();
+        this.archiveFile = Paths.get(archiveFile).toAbsolutePath();
+        this.directory = Paths.get(directory).toAbsolutePath();
+        this.transactionManager = transactionManager;
+        this.shards = shards;
+        this.shardPools = shardPools;
+        this.enabled = enabled;
+        this.retention = Math.max(1, retention);
+        this.pagesPerStep = Math.max(1, pagesPerStep);
+        this.stepPauseMillis = Math.max(0, stepPauseMillis);
+        this.busyTimeoutMillis = busyTimeoutMillis;
+        // The step pause may be zero, so busy retries get their own sleep and together span the busy timeout
+        this.busyRetries = Math.max(1, busyTimeoutMillis / BUSY_RETRY_MILLIS);
+        this.backupTimer = Timer.builder("database.backup.duration")
+                .description("Time to take, check and store a database backup")
+                .register(meterRegistry);
+        this.failures = Counter.builder("database.backup.failures")
+                .description("Database backups that failed or did not pass their integrity check")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${backup.interval-ms:21600000}", fixedDelayString = "${backup.interval-ms:21600000}")
+    public void scheduledBackup() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            DatabaseBackupDTO backup = createBackup();
+            log.info("Database backup {} written ({} bytes)", backup.getName(), backup.getSizeBytes());
+        } catch (RuntimeException e) {
+            log.error("Scheduled database backup failed", e);
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if another backup is still running
+     */
+    public DatabaseBackupDTO createBackup() {
+        if (!running.tryLock()) {
+            throw new IllegalStateException("A backup is already running");
+        }
+        long started = System.nanoTime();
+        Path partial = null;
+        Path archivePartial = null;
+        // Final name of each shard copy and where it is written first
+        Map<String, Path> shardCopies = new LinkedHashMap<>();
+        try {
+            Files.createDirectories(directory);
+            Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+            String name = PREFIX + NAME_TIME.format(createdAt.atOffset(ZoneOffset.UTC)) + ".db";
+            String archiveName = archiveName(name);
+            Path target = directory.resolve(name);
+            partial = directory.resolve(name + ".partial");
+            archivePartial = directory.resolve(archiveName + ".partial");
+            for (int shard : shards.all()) {
+                if (shard != ProjectShards.MAIN) {
+                    String shardName = shardName(name, shard);
+                    shardCopies.put(shardName, directory.resolve(shardName + ".partial"));
+                    shardCopies.put(archiveName(shardName), directory.resolve(archiveName(shardName) + ".partial"));
+                }
+            }
+
+            boolean withArchive = copySnapshot(partial, archivePartial, shardCopies);
+            String sha256 = seal(partial, name);
+            String archiveSha256 = null;
+            Long archiveSize = null;
+            if (withArchive) {
+                archiveSha256 = seal(archivePartial, archiveName);
+                Files.move(archivePartial, directory.resolve(archiveName), StandardCopyOption.ATOMIC_MOVE);
+                archiveSize = Files.size(directory.resolve(archiveName));
+            }
+            for (Map.Entry<String, Path> copy : shardCopies.entrySet()) {
+                seal(copy.getValue(), copy.getKey());
+                Files.move(copy.getValue(), directory.resolve(copy.getKey()), StandardCopyOption.ATOMIC_MOVE);
+            }
+            // The main file goes last: once it is listed, its companions are already in place
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+            prune();
+
+            backupTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            return new DatabaseBackupDTO(name, Files.size(target), createdAt, sha256, archiveSize, archiveSha256,
+                    List.copyOf(shardCopies.keySet()), true, null);
+        } catch (IOException | SQLException | RuntimeException e) {
+            failures.increment();
+            deleteQuietly(partial);
+            deleteQuietly(archivePartial);
+            shardCopies.values().forEach(DatabaseBackupService::deleteQuietly);
+            if (e instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new RuntimeException("Backup failed: " + e.getMessage(), e);
+        } finally {
+            running.unlock();
+        }
+    }
+
+    public List<DatabaseBackupDTO> listBackups() {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> BACKUP_NAME.matcher(name).matches())
+                    .sorted((a, b) -> b.compareTo(a))
+                    .map(name -> describe(name, null, null))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Recomputes the checksum and runs SQLite's quick_check on the stored file. */
+    public DatabaseBackupDTO verify(String name) {
+        Path file = existingBackup(name);
+        String problem;
+        try {
+            problem = verifyFile(file, name);
+            String archiveName = archiveName(name);
+            Path archive = directory.resolve(archiveName);
+            if (problem == null && Files.exists(archive)) {
+                String archiveProblem = verifyFile(archive, archiveName);
+                problem = archiveProblem == null ? null : "Archive: " + archiveProblem;
+            }
+            for (String shardFile : shardFiles(name)) {
+                if (problem == null) {
+                    String shardProblem = verifyFile(directory.resolve(shardFile), shardFile);
+                    problem = shardProblem == null ? null : shardFile + ": " + shardProblem;
+                }
+            }
+        } catch (IOException | SQLException e) {
+            problem = e.getMessage();
+        }
+        return describe(name, problem == null, problem);
+    }
+
+    /**
+     * Copies a verified backup into a new database file under {@code <backup.directory>/restored},
+     * and its archive, if it has one, next to it as {@code <target>_archive.db}. Shard files go to
+     * {@code <target>_shards/shard-<n>.db} and {@code shard-<n>_archive.db}, the layout of
+     * {@code sqlite.shards.dir}. The live databases are never touched: stop the application and swap
+     * the files to put them into service.
+     */
+    public DatabaseRestoreDTO restore(String name, String targetName) {
+        existingBackup(name);
+        String fileName = targetName == null || targetName.isBlank() ? name : targetName.trim();
+        if (!FILE_NAME.matcher(fileName).matches()) {
+            throw new IllegalArgumentException("Restore target must be a plain file name ending in .db");
+        }
+        DatabaseBackupDTO verified = verify(name);
+        if (!Boolean.TRUE.equals(verified.getVerified())) {
+            throw new IllegalStateException("Backup " + name + " failed verification: " + verified.getProblem());
+        }
+        Path target = directory.resolve("restored").resolve(fileName);
+        Path archiveSource = directory.resolve(archiveName(name));
+        Path archiveTarget = Files.exists(archiveSource)
+                ? target.resolveSibling(fileName.substring(0, fileName.length() - ".db".length()) + "_archive.db")
+                : null;
+        List<String> shardFiles = shardFiles(name);
+        Path shardsTarget = shardFiles.isEmpty() ? null
+                : target.resolveSibling(fileName.substring(0, fileName.length() - ".db".length()) + "_shards");
+        if (Files.exists(target) || (archiveTarget != null && Files.exists(archiveTarget))
+                || (shardsTarget != null && Files.exists(shardsTarget))) {
+            throw new IllegalArgumentException("Restore target " + fileName + ", its archive or its shards already exist");
+        }
+        long started = System.nanoTime();
+        try {
+            Files.createDirectories(target.getParent());
+            restoreFile(directory.resolve(name), target);
+            if (archiveTarget != null) {
+                restoreFile(archiveSource, archiveTarget);
+            }
+            if (shardsTarget != null) {
+                Files.createDirectories(shardsTarget);
+                for (String shardFile : shardFiles) {
+                    Matcher matcher = SHARD_FILE.matcher(shardFile.substring(name.length() - ".db".length()));
+                    matcher.matches();
+                    String restoredName = "shard-" + matcher.group(1) + (matcher.group(2) != null ? "_archive" : "") + ".db";
+                    restoreFile(directory.resolve(shardFile), shardsTarget.resolve(restoredName));
+                }
+            }
+            return new DatabaseRestoreDTO(name, target.toString(),
+                    archiveTarget == null ? null : archiveTarget.toString(),
+                    shardsTarget == null ? null : shardsTarget.toString(), Files.size(target),
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException | SQLException | RuntimeException e) {
+            deleteQuietly(target);
+            deleteQuietly(archiveTarget);
+            deleteTreeQuietly(shardsTarget);
+            if (e instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new RuntimeException("Restore failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Copies main, the archive when its file exists, and each shard with its archive into the
+     * partial files of {@code shardCopies} (in pairs, shard then archive); returns whether the
+     * archive was copied.
+     */
+    private boolean copySnapshot(Path partial, Path archivePartial, Map<String, Path> shardCopies) throws SQLException {
+        boolean withArchive = Files.exists(archiveFile);
+        List<Path> shardPartials = new ArrayList<>(shardCopies.values());
+        List<Connection> shardSources = new ArrayList<>();
+        try (Connection source = open(databaseFile, true)) {
+            if (withArchive) {
+                attachArchive(source, archiveFile);
+            }
+            // Pin one read transaction so every step copies the same snapshot and the backup never restarts
+            source.setAutoCommit(false);
+            for (String shardName : shardCopies.keySet()) {
+                Matcher matcher = SHARD_FILE.matcher(shardName);
+                if (matcher.find() && matcher.group(2) == null) {
+                    int shard = Integer.parseInt(matcher.group(1));
+                    Connection shardSource = open(shardPools.file(shard), true);
+                    shardSources.add(shardSource);
+                    attachArchive(shardSource, shardPools.archiveFile(shard));
+                    shardSource.setAutoCommit(false);
+                }
+            }
+            if ((withArchive || !shardSources.isEmpty())
+                    && transactionManager instanceof SerializedWriteTransactionManager writer) {
+                // Archiving commits to two files separately, and projects move between files; start
+                // every snapshot while no write is open anywhere
+                writer.betweenWrites(() -> {
+                    pinSnapshot(source, withArchive);
+                    for (Connection shardSource : shardSources) {
+                        pinSnapshot(shardSource, true);
+                    }
+                });
+            } else {
+                pinSnapshot(source, withArchive);
+            }
+            DB db = source.unwrap(SQLiteConnection.class).getDatabase();
+            backup(db, "main", partial);
+            if (withArchive) {
+                backup(db, "archive", archivePartial);
+            }
+            source.rollback();
+            for (int i = 0; i < shardSources.size(); i++) {
+                DB shardDb = shardSources.get(i).unwrap(SQLiteConnection.class).getDatabase();
+                backup(shardDb, "main", shardPartials.get(2 * i));
+                backup(shardDb, "archive", shardPartials.get(2 * i + 1));
+                shardSources.get(i).rollback();
+            }
+        } finally {
+            for (Connection shardSource : shardSources) {
+                shardSource.close();
+            }
+        }
+        // The copies inherit WAL mode from the source; self-contained files are easier to move around
+        List<Path> copies = new ArrayList<>(withArchive ? List.of(partial, archivePartial) : List.of(partial));
+        copies.addAll(shardPartials);
+        for (Path copy : copies) {
+            try (Connection connection = open(copy, false);
+                 Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=DELETE");
+            }
+        }
+        return withArchive;
+    }
+
+    private static void attachArchive(Connection source, Path archive) throws SQLException {
+        try (Statement statement = source.createStatement()) {
+            statement.execute("ATTACH DATABASE '" + archive.toString().replace("'", "''") + "' AS archive");
+        }
+    }
+
+    private static void pinSnapshot(Connection source, boolean withArchive) throws SQLException {
+        try (Statement statement = source.createStatement()) {
+            for (String schema : withArchive ? List.of("main", "archive") : List.of("main")) {
+                try (ResultSet rs = statement.executeQuery("SELECT count(*) FROM " + schema + ".sqlite_master")) {
+                    rs.next();
+                }
+            }
+        }
+    }
+
+    private void backup(DB db, String schema, Path target) throws SQLException {
+        int rc = db.backup(schema, target.toString(), (remaining, pageCount) -> pause(),
+                BUSY_RETRY_MILLIS, busyRetries, pagesPerStep);
+        if (rc != SQLITE_OK) {
+            throw new SQLException("SQLite backup of " + schema + " returned " + rc);
+        }
+    }
+
+    private void restoreFile(Path source, Path target) throws SQLException {
+        try (Connection connection = open(target, false)) {
+            DB db = connection.unwrap(SQLiteConnection.class).getDatabase();
+            int rc = db.restore("main", source.toString(), (remaining, pageCount) -> pause(),
+                    BUSY_RETRY_MILLIS, busyRetries, pagesPerStep);
+            if (rc != SQLITE_OK) {
+                throw new SQLException("SQLite restore of " + source.getFileName() + " returned " + rc);
+            }
+        }
+        String problem = check(target);
+        if (problem != null) {
+            throw new RuntimeException("Restored " + target.getFileName() + " failed its integrity check: " + problem);
+        }
+    }
+
+    /** Integrity-checks a finished copy and writes its checksum sidecar; returns the checksum. */
+    private String seal(Path copy, String name) throws IOException, SQLException {
+        String problem = check(copy);
+        if (problem != null) {
+            throw new RuntimeException("Backup " + name + " failed its integrity check: " + problem);
+        }
+        String sha256 = sha256(copy);
+        Files.writeString(directory.resolve(name + ".sha256"), sha256 + "  " + name + "\n", StandardCharsets.UTF_8);
+        return sha256;
+    }
+
+    private String verifyFile(Path file, String name) throws IOException, SQLException {
+        String expected = readChecksum(name);
+        if (expected == null) {
+            return "Checksum file is missing";
+        }
+        if (!expected.equals(sha256(file))) {
+            return "Checksum does not match";
+        }
+        return check(file);
+    }
+
+    private void pause() {
+        if (stepPauseMillis == 0) {
+            return;
+        }
+        try {
+            Thread.sleep(stepPauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Returns null when SQLite's quick_check passes, otherwise its first complaint. */
+    private String check(Path file) throws SQLException {
+        try (Connection connection = open(file, true);
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("PRAGMA quick_check")) {
+            String result = rs.next() ? rs.getString(1) : "no result";
+            return "ok".equals(result) ? null : result;
+        }
+    }
+
+    private Connection open(Path file, boolean readOnly) throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setReadOnly(readOnly);
+        config.setBusyTimeout(busyTimeoutMillis);
+        return config.createConnection("jdbc:sqlite:" + file);
+    }
+
+    private void prune() throws IOException {
+        List<DatabaseBackupDTO> backups = listBackups();
+        for (DatabaseBackupDTO old : backups.subList(Math.min(retention, backups.size()), backups.size())) {
+            // Main file first, so a half-pruned backup is no longer listed
+            Files.deleteIfExists(directory.resolve(old.getName()));
+            Files.deleteIfExists(directory.resolve(old.getName() + ".sha256"));
+            Files.deleteIfExists(directory.resolve(archiveName(old.getName())));
+            Files.deleteIfExists(directory.resolve(archiveName(old.getName()) + ".sha256"));
+            for (String shardFile : old.getShardFiles()) {
+                Files.deleteIfExists(directory.resolve(shardFile));
+                Files.deleteIfExists(directory.resolve(shardFile + ".sha256"));
+            }
+        }
+    }
+
+    private DatabaseBackupDTO describe(String name, Boolean verified, String problem) {
+        Matcher matcher = BACKUP_NAME.matcher(name);
+        Instant createdAt = matcher.matches()
+                ? LocalDateTime.parse(matcher.group(1), NAME_TIME).toInstant(ZoneOffset.UTC)
+                : null;
+        String archiveName = archiveName(name);
+        Path archive = directory.resolve(archiveName);
+        try {
+            boolean withArchive = Files.exists(archive);
+            return new DatabaseBackupDTO(name, Files.size(directory.resolve(name)), createdAt, readChecksum(name),
+                    withArchive ? Files.size(archive) : null, withArchive ? readChecksum(archiveName) : null,
+                    shardFiles(name), verified, problem);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String archiveName(String name) {
+        return name.substring(0, name.length() - ".db".length()) + ARCHIVE_SUFFIX;
+    }
+
+    private static String shardName(String name, int shard) {
+        return name.substring(0, name.length() - ".db".length()) + ".shard-" + shard + ".db";
+    }
+
+    /** The shard copies stored with a backup, each shard followed by its archive. */
+    private List<String> shardFiles(String name) {
+        String base = name.substring(0, name.length() - ".db".length());
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(file -> file.startsWith(base) && SHARD_FILE.matcher(file.substring(base.length())).matches())
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path existingBackup(String name) {
+        if (name == null || !BACKUP_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Not a backup name: " + name);
+        }
+        Path file = directory.resolve(name);
+        if (!Files.isRegularFile(file)) {
+            throw new NoSuchElementException("Backup not found: " + name);
+        }
+        return file;
+    }
+
+    private String readChecksum(String name) throws IOException {
+        Path sidecar = directory.resolve(name + ".sha256");
+        if (!Files.exists(sidecar)) {
+            return null;
+        }
+        String content = Files.readString(sidecar, StandardCharsets.UTF_8).trim();
+        int space = content.indexOf(' ');
+        return space < 0 ? content : content.substring(0, space);
+    }
+
+    private static String sha256(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void deleteTreeQuietly(Path dir) {
+        if (dir == null || !Files.isDirectory(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(DatabaseBackupService::deleteQuietly);
+        } catch (IOException e) {
+            log.warn("Could not clean up {}", dir, e);
+        }
+        deleteQuietly(dir);
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.asu.ser515.agiletool.service;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Small mergeable histogram of durations in minutes. Buckets grow geometrically (eight per
+ * doubling, about 9% relative error) up to roughly four years, so a whole distribution fits in
+ * a few hundred bytes and percentiles can be read without keeping individual samples.
+ */
+public final class DurationHistogram {
+
+    private static final int SUB_BUCKETS = 8;
+    private static final int MAX_EXPONENT = 21;
+    private static final int BUCKETS = 1 + MAX_EXPONENT * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+
+    public void record(long minutes) {
+        counts[bucketOf(Math.max(0, minutes))]++;
+        total++;
+    }
+
+    public void merge(DurationHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+    }
+
+    public long count() {
+        return total;
+    }
+
+    /**
+     * Approximate value at the given percentile (0-100), in minutes; 0 when empty.
+     */
+    public double percentile(double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return representative(i);
+            }
+        }
+        return representative(BUCKETS - 1);
+    }
+
+    /**
+     * Sparse encoding: (bucket, count) pairs for non-empty buckets only.
+     */
+    public byte[] toBytes() {
+        int used = 0;
+        for (long c : counts) {
+            if (c > 0) {
+                used++;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(used * (Short.BYTES + Long.BYTES));
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] > 0) {
+                buffer.putShort((short) i).putLong(counts[i]);
+            }
+        }
+        return buffer.array();
+    }
+
+    public static DurationHistogram fromBytes(byte[] bytes) {
+        DurationHistogram histogram = new DurationHistogram();
+        if (bytes == null) {
+            return histogram;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.remaining() >= Short.BYTES + Long.BYTES) {
+            int bucket = buffer.getShort();
+            long count = buffer.getLong();
+            if (bucket >= 0 && bucket < BUCKETS) {
+                histogram.counts[bucket] += count;
+                histogram.total += count;
+            }
+        }
+        return histogram;
+    }
+
+    private static int bucketOf(long minutes) {
+        if (minutes < 1) {
+            return 0;
+        }
+        double position = Math.log(minutes) / Math.log(2) * SUB_BUCKETS;
+        return (int) Math.min(BUCKETS - 1, 1 + Math.floor(position));
+    }
+
+    private static double representative(int bucket) {
+        if (bucket == 0) {
+            return 0;
+        }
+        // Geometric midpoint of the bucket's [lower, upper) range
+        return Math.pow(2, (bucket - 0.5) / SUB_BUCKETS);
+    }
+}
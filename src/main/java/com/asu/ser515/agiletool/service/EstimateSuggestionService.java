@@ -0,0 +1,197 @@
+package com.asu.ser515.agiletool.service;
+
+import com.asu.ser515.agiletool.dto.EstimateSuggestionDTO;
+import com.asu.ser515.agiletool.dto.SimilarStoryDTO;
+import com.asu.ser515.agiletool.models.StoryStatus;
+import com.asu.ser515.agiletool.models.UserStory;
+import com.asu.ser515.agiletool.repository.UserStoryRepository;
+import com.asu.ser515.agiletool.repository.UserStoryRepository.StoryRefView;
+import com.asu.ser515.agiletool.repository.UserStoryRepository.StoryTextView;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Story-point suggestions from the most similar already estimated stories of the same project,
+ * archived ones included
+ * (TF-IDF cosine over title, I want / so that, description and acceptance criteria). Each
+ * project's index is built on first use and then kept in step as stories are estimated,
+ * edited and deleted.
+ */
+@Service
+public class EstimateSuggestionService {
+
+    private final UserStoryRepository storyRepo;
+    // The archive service invalidates this one after each run, so it is looked up on use
+    private final ObjectProvider<StoryArchiveService> archiveService;
+    private final ProjectIndexes<TfIdfIndex> indexes;
+    private final int neighbours;
+    private final double minSimilarity;
+    private final Timer suggestionTimer;
+
+    public EstimateSuggestionService(UserStoryRepository storyRepo,
+                                     ObjectProvider<StoryArchiveService> archiveService,
+                                     PlatformTransactionManager transactionManager,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${estimation.neighbours:7}") int neighbours,
+                                     @Value("${estimation.min-similarity:0.1}") double minSimilarity) {
+        this.storyRepo = storyRepo;
+        this.archiveService = archiveService;
+        this.indexes = new ProjectIndexes<>(transactionManager, this::build, index -> index.lock);
+        this.neighbours = Math.max(1, neighbours);
+        this.minSimilarity = minSimilarity;
+        this.suggestionTimer = Timer.builder("stories.estimate.suggestion")
+                .description("Time to find the nearest estimated stories for a suggestion")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Suggests the points most of the story's nearest estimated neighbours carry, weighting each
+     * by its similarity. The story's own current estimate is never one of the votes. Runs without
+     * a surrounding transaction so a first suggestion builds the index from its own snapshot.
+     */
+    public EstimateSuggestionDTO suggest(Long storyId) {
+        StoryTextView story = storyRepo.findTextById(storyId)
+                .orElseThrow(() -> new IllegalArgumentException("User Story not found with id: " + storyId));
+        Map<String, Integer> counts = TfIdfIndex.termCounts(story.getTitle(), story.getWant(), story.getSoThat(),
+                story.getDescription(), story.getAcceptanceCriteria());
+
+        long started = System.nanoTime();
+        TfIdfIndex index = indexes.getOrBuild(story.getProjectId());
+        List<TfIdfIndex.Neighbour> nearest;
+        index.lock.readLock().lock();
+        try {
+            nearest = index.nearest(counts, storyId, neighbours, minSimilarity);
+        } finally {
+            index.lock.readLock().unlock();
+        }
+        suggestionTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        if (nearest.isEmpty()) {
+            return new EstimateSuggestionDTO(storyId, null, 0, List.of());
+        }
+
+        Map<Integer, Double> votes = new TreeMap<>();
+        for (TfIdfIndex.Neighbour neighbour : nearest) {
+            votes.merge(neighbour.points(), neighbour.similarity(), Double::sum);
+        }
+        // TreeMap order settles ties on the smaller estimate
+        Map.Entry<Integer, Double> winner = null;
+        for (Map.Entry<Integer, Double> vote : votes.entrySet()) {
+            if (winner == null || vote.getValue() > winner.getValue()) {
+                winner = vote;
+            }
+        }
+        // Vote share times mean similarity reduces to the winner's weight per neighbour
+        double confidence = winner.getValue() / nearest.size();
+
+        List<Long> ids = nearest.stream().map(TfIdfIndex.Neighbour::id).toList();
+        Map<Long, SimilarStoryDTO> refs = new HashMap<>();
+        for (StoryRefView ref : storyRepo.findRefsByIdIn(ids)) {
+            refs.put(ref.getId(), new SimilarStoryDTO(ref.getId(), ref.getStoryKey(), ref.getTitle(), ref.getStatus(),
+                    null, 0));
+        }
+        if (refs.size() < ids.size()) {
+            List<Long> missing = ids.stream().filter(id -> !refs.containsKey(id)).toList();
+            for (Object[] row : archiveService.getObject().findArchivedRefs(missing)) {
+                refs.put((Long) row[0], new SimilarStoryDTO((Long) row[0], (String) row[1], (String) row[2],
+                        StoryStatus.valueOf((String) row[3]), null, 0));
+            }
+        }
+        // Neighbours deleted since the index last saw them are left out
+        List<SimilarStoryDTO> similar = nearest.stream()
+                .filter(neighbour -> refs.containsKey(neighbour.id()))
+                .map(neighbour -> {
+                    SimilarStoryDTO ref = refs.get(neighbour.id());
+                    ref.setStoryPoints(neighbour.points());
+                    ref.setSimilarity(Math.round(neighbour.similarity() * 1000) / 1000.0);
+                    return ref;
+                })
+                .toList();
+        return new EstimateSuggestionDTO(storyId, winner.getKey(), Math.round(confidence * 100) / 100.0, similar);
+    }
+
+    /**
+     * Brings the story's entry up to date once its transaction commits: estimated stories are
+     * (re)indexed, others dropped. Text is only read when the index needs it.
+     */
+    public void storyChanged(UserStory story) {
+        Long projectId = story.getProject().getId();
+        TfIdfIndex index = indexes.get(projectId);
+        if (index == null) {
+            // Nothing to update, but a build in progress may have read the table before this change
+            afterCommit(() -> indexes.invalidate(projectId));
+            return;
+        }
+        Long storyId = story.getId();
+        Integer storyPoints = story.getStoryPoints();
+        if (storyPoints == null) {
+            afterCommit(() -> indexes.update(projectId, i -> i.remove(storyId)));
+            return;
+        }
+        boolean textLoaded = Hibernate.isPropertyInitialized(story, "description")
+                && Hibernate.isPropertyInitialized(story, "acceptanceCriteria");
+        boolean indexed;
+        index.lock.readLock().lock();
+        try {
+            indexed = index.contains(storyId);
+        } finally {
+            index.lock.readLock().unlock();
+        }
+        if (indexed && !textLoaded) {
+            afterCommit(() -> indexes.update(projectId, i -> i.setPoints(storyId, storyPoints)));
+            return;
+        }
+        Map<String, Integer> counts = TfIdfIndex.termCounts(story.getTitle(), story.getIWant(), story.getSoThat(),
+                story.getDescription(), story.getAcceptanceCriteria());
+        afterCommit(() -> indexes.update(projectId, i -> i.put(storyId, storyPoints, counts)));
+    }
+
+    public void storyRemoved(Long storyId, Long projectId) {
+        afterCommit(() -> indexes.update(projectId, index -> index.remove(storyId)));
+    }
+
+    /**
+     * Forgets a project's index; it is rebuilt from the hot and archived tables on next use.
+     */
+    public void invalidate(Long projectId) {
+        indexes.invalidate(projectId);
+    }
+
+    private TfIdfIndex build(Long projectId) {
+        TfIdfIndex index = new TfIdfIndex();
+        for (StoryTextView story : storyRepo.findEstimatedTextsByProjectId(projectId)) {
+            index.put(story.getId(), story.getStoryPoints(), TfIdfIndex.termCounts(story.getTitle(),
+                    story.getWant(), story.getSoThat(), story.getDescription(), story.getAcceptanceCriteria()));
+        }
+        for (Object[] row : archiveService.getObject().findArchivedEstimatedTexts(projectId)) {
+            index.put((Long) row[0], (Integer) row[6], TfIdfIndex.termCounts((String) row[1], (String) row[2],
+                    (String) row[3], (String) row[4], (String) row[5]));
+        }
+        return index;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
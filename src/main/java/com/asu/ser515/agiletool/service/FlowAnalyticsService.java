@@ -0,0 +1,373 @@
+package com.asu.ser515.agiletool.service;
+
+import com.asu.ser515.agiletool.config.ProjectShards;
+import com.asu.ser515.agiletool.dto.FlowMetricsDTO;
+import com.asu.ser515.agiletool.models.FlowWeeklyStats;
+import com.asu.ser515.agiletool.models.StoryStatus;
+import com.asu.ser515.agiletool.models.StoryStatusTransition;
+import com.asu.ser515.agiletool.models.UserStory;
+import com.asu.ser515.agiletool.repository.FlowWeeklyStatsRepository;
+import com.asu.ser515.agiletool.repository.StoryStatusTransitionRepository;
+import com.asu.ser515.agiletool.repository.UserStoryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cycle time, lead time, throughput and WIP per project and release. Every status change is
+ * appended to {@code story_status_transitions}; when a story reaches DONE for the first time its
+ * lead time (created to done) and cycle time (first IN_PROGRESS to done) are folded into weekly
+ * histogram rows after the edit commits, so dashboards only read one row per week.
+ */
+@Service
+public class FlowAnalyticsService {
+
+    private static final Logger log = LoggerFactory.getLogger(FlowAnalyticsService.class);
+    private static final int MAX_WEEKS = 104;
+    private static final int CHUNK_SIZE = 500;
+    private static final int APPLY_ATTEMPTS = 5;
+
+    private final StoryStatusTransitionRepository transitionRepo;
+    private final FlowWeeklyStatsRepository statsRepo;
+    private final UserStoryRepository storyRepo;
+    private final StoryArchiveService archiveService;
+    private final ProjectShards shards;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter droppedCompletions;
+    private final Object aggregateLock = new Object();
+    // Applies aggregates off the committing thread, which still holds the database writer in afterCommit
+    private final ExecutorService aggregateWriter = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "flow-metrics-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public FlowAnalyticsService(StoryStatusTransitionRepository transitionRepo,
+                                FlowWeeklyStatsRepository statsRepo,
+                                UserStoryRepository storyRepo,
+                                StoryArchiveService archiveService,
+                                ProjectShards shards,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry) {
+        this.transitionRepo = transitionRepo;
+        this.statsRepo = statsRepo;
+        this.storyRepo = storyRepo;
+        this.archiveService = archiveService;
+        this.shards = shards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.droppedCompletions = Counter.builder("flow.aggregates.dropped")
+                .description("Completed stories missing from the weekly flow aggregates until the next rebuild")
+                .register(meterRegistry);
+    }
+
+    /** Lets queued aggregates finish; rebuild() recovers any that do not. */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        aggregateWriter.shutdown();
+        aggregateWriter.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private record Completion(Long storyId, Long projectId, Long releasePlanId, int points,
+                              LocalDateTime createdAt, LocalDateTime completedAt) {
+    }
+
+    public void recordTransition(UserStory story, StoryStatus from) {
+        recordTransitions(List.of(story), Collections.singletonMap(story.getId(), from), false);
+    }
+
+    public void recordCreated(UserStory story) {
+        recordTransitions(List.of(story), Map.of(), true);
+    }
+
+    /**
+     * Appends a transition for every story whose status differs from {@code previous}. Must run
+     * inside the transaction that changed the stories.
+     */
+    public void recordTransitions(List<UserStory> stories, Map<Long, StoryStatus> previous) {
+        recordTransitions(stories, previous, false);
+    }
+
+    private void recordTransitions(List<UserStory> stories, Map<Long, StoryStatus> previous, boolean created) {
+        LocalDateTime now = LocalDateTime.now();
+        List<StoryStatusTransition> transitions = new ArrayList<>();
+        Set<Long> doneIds = new HashSet<>();
+        for (UserStory story : stories) {
+            StoryStatus from = created ? null : previous.get(story.getId());
+            if (story.getStatus() == null || (!created && from == story.getStatus())) {
+                continue;
+            }
+            transitions.add(new StoryStatusTransition(null, story.getId(), story.getProject().getId(),
+                    story.getReleasePlanId(), from, story.getStatus(), now));
+            if (story.getStatus() == StoryStatus.DONE) {
+                doneIds.add(story.getId());
+            }
+        }
+        if (transitions.isEmpty()) {
+            return;
+        }
+
+        List<Long> doneList = new ArrayList<>(doneIds);
+        Set<Long> doneBefore = new HashSet<>();
+        for (int i = 0; i < doneList.size(); i += CHUNK_SIZE) {
+            doneBefore.addAll(transitionRepo.findStoryIdsReachedStatus(
+                    doneList.subList(i, Math.min(i + CHUNK_SIZE, doneList.size())), StoryStatus.DONE));
+        }
+        transitionRepo.saveAll(transitions);
+
+        List<Completion> completions = new ArrayList<>();
+        for (UserStory story : stories) {
+            if (doneIds.contains(story.getId()) && !doneBefore.contains(story.getId())) {
+                completions.add(new Completion(story.getId(), story.getProject().getId(), story.getReleasePlanId(),
+                        points(story.getStoryPoints()), story.getCreatedAt() != null ? story.getCreatedAt() : now, now));
+            }
+        }
+        if (completions.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // The writer thread applies them to the database the stories were changed in
+            int shard = ProjectShards.current();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aggregateWriter.execute(() -> {
+                        try (ProjectShards.Scope ignored = shards.useShard(shard)) {
+                            applyCompletions(completions);
+                        }
+                    });
+                }
+            });
+        } else {
+            applyCompletions(completions);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public FlowMetricsDTO metrics(Long projectId, Long releasePlanId, int weeks) {
+        int span = Math.max(1, Math.min(weeks, MAX_WEEKS));
+        LocalDate fromWeek = weekOf(LocalDate.now()).minusWeeks(span - 1L);
+        long scope = releasePlanId != null ? releasePlanId : FlowWeeklyStats.PROJECT_SCOPE;
+
+        Map<LocalDate, Integer> perWeek = new LinkedHashMap<>();
+        for (int i = 0; i < span; i++) {
+            perWeek.put(fromWeek.plusWeeks(i), 0);
+        }
+        DurationHistogram lead = new DurationHistogram();
+        DurationHistogram cycle = new DurationHistogram();
+        long completed = 0;
+        for (FlowWeeklyStats row : statsRepo
+                .findByProjectIdAndReleasePlanIdAndWeekStartGreaterThanEqualOrderByWeekStartAsc(projectId, scope, fromWeek)) {
+            perWeek.merge(row.getWeekStart(), row.getCompleted(), Integer::sum);
+            lead.merge(DurationHistogram.fromBytes(row.getLeadTimeHistogram()));
+            cycle.merge(DurationHistogram.fromBytes(row.getCycleTimeHistogram()));
+            completed += row.getCompleted();
+        }
+
+        List<FlowMetricsDTO.WeeklyThroughput> throughput = new ArrayList<>();
+        perWeek.forEach((week, count) -> throughput.add(new FlowMetricsDTO.WeeklyThroughput(week, count)));
+
+        Map<StoryStatus, Long> wip = new EnumMap<>(StoryStatus.class);
+        for (Object[] row : storyRepo.countByStatus(projectId, releasePlanId)) {
+            StoryStatus status = (StoryStatus) row[0];
+            if (status == StoryStatus.IN_PROGRESS || status == StoryStatus.IN_REVIEW || status == StoryStatus.BLOCKED) {
+                wip.put(status, (Long) row[1]);
+            }
+        }
+
+        return new FlowMetricsDTO(projectId, releasePlanId, fromWeek, span, completed,
+                hours(lead), hours(cycle), weeklyPercentiles(perWeek.values()), throughput, wip);
+    }
+
+    /**
+     * Recomputes a project's weekly rows from its transition log, e.g. after a crash between an
+     * edit committing and its aggregates being applied. Returns the number of completions found.
+     */
+    public int rebuild(Long projectId) {
+        // Same order as applyCompletions: aggregate lock first, then the database writer
+        synchronized (aggregateLock) {
+            return transactionTemplate.execute(status -> rebuildRows(projectId));
+        }
+    }
+
+    private int rebuildRows(Long projectId) {
+        Map<Long, LocalDateTime> createdAt = new HashMap<>();
+        Map<Long, Integer> storyPoints = new HashMap<>();
+        // Stories moved to the archive completed too; without them rebuilt throughput runs low
+        List<Object[]> stories = new ArrayList<>(storyRepo.findCreatedAtByProjectId(projectId));
+        stories.addAll(archiveService.findArchivedCreatedAt(projectId));
+        for (Object[] row : stories) {
+            createdAt.put((Long) row[0], (LocalDateTime) row[1]);
+            storyPoints.put((Long) row[0], points((Integer) row[2]));
+        }
+
+        Map<Long, LocalDateTime> started = new HashMap<>();
+        Set<Long> done = new HashSet<>();
+        Map<String, FlowWeeklyStats> rows = new LinkedHashMap<>();
+        Map<String, DurationHistogram[]> histograms = new HashMap<>();
+        int completions = 0;
+        for (StoryStatusTransition t : transitionRepo.findByProjectIdOrderByTransitionedAtAsc(projectId)) {
+            if (t.getToStatus() == StoryStatus.IN_PROGRESS) {
+                started.putIfAbsent(t.getStoryId(), t.getTransitionedAt());
+            }
+            if (t.getToStatus() != StoryStatus.DONE || !done.add(t.getStoryId())) {
+                continue;
+            }
+            completions++;
+            LocalDateTime created = createdAt.getOrDefault(t.getStoryId(), t.getTransitionedAt());
+            for (long scope : scopes(t.getReleasePlanId())) {
+                LocalDate week = weekOf(t.getTransitionedAt().toLocalDate());
+                String key = scope + "/" + week;
+                FlowWeeklyStats row = rows.computeIfAbsent(key, k -> newRow(projectId, scope, week));
+                DurationHistogram[] h = histograms.computeIfAbsent(key,
+                        k -> new DurationHistogram[] {new DurationHistogram(), new DurationHistogram()});
+                addCompletion(row, h[0], h[1], storyPoints.getOrDefault(t.getStoryId(), 0), created,
+                        started.get(t.getStoryId()), t.getTransitionedAt());
+            }
+        }
+        rows.forEach((key, row) -> {
+            row.setLeadTimeHistogram(histograms.get(key)[0].toBytes());
+            row.setCycleTimeHistogram(histograms.get(key)[1].toBytes());
+        });
+
+        statsRepo.deleteByProjectId(projectId);
+        statsRepo.flush();
+        statsRepo.saveAll(rows.values());
+        return completions;
+    }
+
+    private void applyCompletions(List<Completion> completions) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                synchronized (aggregateLock) {
+                    transactionTemplate.executeWithoutResult(status -> completions.forEach(this::applyCompletion));
+                }
+                return;
+            } catch (RuntimeException e) {
+                // Usually the wait for the database writer timed out under load. The edit itself has
+                // already committed, so back off without holding the aggregate lock and try again;
+                // rebuild() recovers the aggregates if every attempt fails
+                if (attempt >= APPLY_ATTEMPTS) {
+                    droppedCompletions.increment(completions.size());
+                    log.error("Failed to update flow metrics for {} completed stories after {} attempts",
+                            completions.size(), attempt, e);
+                    return;
+                }
+                try {
+                    Thread.sleep(50L * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    droppedCompletions.increment(completions.size());
+                    log.warn("Interrupted while updating flow metrics for {} completed stories",
+                            completions.size(), e);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void applyCompletion(Completion c) {
+        LocalDateTime started = transitionRepo
+                .findFirstByStoryIdAndToStatusOrderByTransitionedAtAsc(c.storyId(), StoryStatus.IN_PROGRESS)
+                .map(StoryStatusTransition::getTransitionedAt)
+                .orElse(null);
+        LocalDate week = weekOf(c.completedAt().toLocalDate());
+        for (long scope : scopes(c.releasePlanId())) {
+            FlowWeeklyStats row = statsRepo
+                    .findByProjectIdAndReleasePlanIdAndWeekStart(c.projectId(), scope, week)
+                    .orElseGet(() -> newRow(c.projectId(), scope, week));
+            DurationHistogram lead = DurationHistogram.fromBytes(row.getLeadTimeHistogram());
+            DurationHistogram cycle = DurationHistogram.fromBytes(row.getCycleTimeHistogram());
+            addCompletion(row, lead, cycle, c.points(), c.createdAt(), started, c.completedAt());
+            row.setLeadTimeHistogram(lead.toBytes());
+            row.setCycleTimeHistogram(cycle.toBytes());
+            statsRepo.save(row);
+        }
+    }
+
+    private static void addCompletion(FlowWeeklyStats row, DurationHistogram lead, DurationHistogram cycle, int points,
+                                      LocalDateTime createdAt, LocalDateTime startedAt, LocalDateTime completedAt) {
+        row.setCompleted(row.getCompleted() + 1);
+        // Rows from before points were tracked stay unknown until rebuild() recounts them
+        if (row.getCompletedPoints() != null) {
+            row.setCompletedPoints(row.getCompletedPoints() + points);
+        }
+        lead.record(Duration.between(createdAt, completedAt).toMinutes());
+        if (startedAt != null && !startedAt.isAfter(completedAt)) {
+            cycle.record(Duration.between(startedAt, completedAt).toMinutes());
+        }
+    }
+
+    private static FlowWeeklyStats newRow(Long projectId, long scope, LocalDate week) {
+        FlowWeeklyStats row = new FlowWeeklyStats();
+        row.setProjectId(projectId);
+        row.setReleasePlanId(scope);
+        row.setWeekStart(week);
+        return row;
+    }
+
+    private static int points(Integer storyPoints) {
+        return storyPoints != null ? storyPoints : 0;
+    }
+
+    private static List<Long> scopes(Long releasePlanId) {
+        return releasePlanId == null || Objects.equals(releasePlanId, FlowWeeklyStats.PROJECT_SCOPE)
+                ? List.of(FlowWeeklyStats.PROJECT_SCOPE)
+                : List.of(FlowWeeklyStats.PROJECT_SCOPE, releasePlanId);
+    }
+
+    static LocalDate weekOf(LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    private static FlowMetricsDTO.Percentiles hours(DurationHistogram histogram) {
+        return new FlowMetricsDTO.Percentiles(histogram.count(),
+                toHours(histogram.percentile(50)), toHours(histogram.percentile(85)), toHours(histogram.percentile(95)));
+    }
+
+    private static double toHours(double minutes) {
+        return Math.round(minutes / 60.0 * 10) / 10.0;
+    }
+
+    private static FlowMetricsDTO.Percentiles weeklyPercentiles(Collection<Integer> counts) {
+        List<Integer> sorted = new ArrayList<>(counts);
+        sorted.sort(null);
+        return new FlowMetricsDTO.Percentiles(sorted.size(),
+                nearestRank(sorted, 50), nearestRank(sorted, 85), nearestRank(sorted, 95));
+    }
+
+    private static double nearestRank(List<Integer> sorted, double percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+}
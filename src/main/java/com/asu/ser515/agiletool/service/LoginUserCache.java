@@ -0,0 +1,104 @@
+package com.asu.ser515.agiletool.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Short-lived cache of {@link UserDetails} used by the authentication provider so that
+ * repeated logins within the TTL do not hit the database. Entries are evicted by
+ * {@link UserService} whenever credentials, roles or the account itself change.
+ *
+ * <p>The provider looks entries up by the login as typed, which may be an email address, but
+ * stores them under the username; {@link CustomUserDetailsService} records such logins as
+ * aliases of the username they resolved to.
+ */
+@Component
+public class LoginUserCache implements UserCache {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, String> aliases = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    public LoginUserCache(@Value("${security.login.cache-ttl-seconds:30}") long ttlSeconds,
+                          @Value("${security.login.cache-max-entries:10000}") int maxEntries) {
+        this.ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public UserDetails getUserFromCache(String username) {
+        if (username == null) {
+            return null;
+        }
+        // A username match wins over an email that happens to equal it, as in the database lookup
+        String key = entries.containsKey(username) ? username : aliases.getOrDefault(username, username);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.cachedAt() > ttlNanos) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return copyOf(entry.user());
+    }
+
+    @Override
+    public void putUserInCache(UserDetails user) {
+        if (ttlNanos <= 0) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            long now = System.nanoTime();
+            entries.values().removeIf(e -> now - e.cachedAt() > ttlNanos);
+            if (entries.size() >= maxEntries) {
+                entries.clear();
+            }
+            aliases.values().removeIf(username -> !entries.containsKey(username));
+        }
+        entries.put(user.getUsername(), new Entry(copyOf(user), System.nanoTime()));
+    }
+
+    /**
+     * Remembers that {@code login} (typically an email address) resolved to {@code username}.
+     */
+    public void putAlias(String login, String username) {
+        if (ttlNanos <= 0 || login.equals(username)) {
+            return;
+        }
+        if (aliases.size() >= maxEntries) {
+            aliases.clear();
+        }
+        aliases.put(login, username);
+    }
+
+    @Override
+    public void removeUserFromCache(String username) {
+        if (username != null) {
+            entries.remove(username);
+            // Also forget logins that resolved to this user, or that a new user with this name would now own
+            aliases.remove(username);
+            aliases.values().removeIf(username::equals);
+        }
+    }
+
+    // The provider manager erases credentials on the authenticated principal, so never hand out the cached instance
+    private static UserDetails copyOf(UserDetails user) {
+        return User.withUserDetails(user).build();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private record Entry(UserDetails user, long cachedAt) {
+    }
+}
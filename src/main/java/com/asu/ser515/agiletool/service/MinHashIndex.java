@@ -0,0 +1,221 @@
+package com.asu.ser515.agiletool.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * MinHash signatures over word-pair shingles, kept in a banded LSH index. Two texts with Jaccard
+ * similarity s share at least one band with probability 1 - (1 - s^ROWS)^BANDS, so a query only
+ * compares against stories that landed in one of its buckets instead of the whole backlog.
+ * Signatures and bucket chains live in flat primitive arrays indexed by slot; not thread-safe on
+ * its own, callers hold {@link #lock}.
+ */
+final class MinHashIndex {
+
+    static final int HASHES = 64;
+    static final int BANDS = 16;
+    static final int ROWS = HASHES / BANDS;
+
+    private static final long[] SEEDS = new SplittableRandom(0x5EED_5EEDL).longs(HASHES).toArray();
+
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Integer> slots = new HashMap<>();
+    private long[] ids;
+    private int[] signatures;
+    private int[][] heads;
+    private int[][] next;
+    private int[] freeSlots;
+    private int freeCount;
+    private int used;
+
+    MinHashIndex() {
+        allocate(64);
+    }
+
+    record Match(long id, double similarity) {
+    }
+
+    /**
+     * Signature of the texts taken together, or null when they contain no words worth comparing.
+     * Shingles are consecutive word pairs within one text (a lone word stands for itself).
+     */
+    static int[] signature(String... texts) {
+        Set<Long> shingles = new LinkedHashSet<>();
+        for (String text : texts) {
+            List<String> words = StoryWords.of(text);
+            if (words.size() == 1) {
+                shingles.add(hash(words.get(0)));
+            }
+            for (int i = 1; i < words.size(); i++) {
+                shingles.add(mix(hash(words.get(i - 1)) * 31 + hash(words.get(i))));
+            }
+        }
+        if (shingles.isEmpty()) {
+            return null;
+        }
+        int[] signature = new int[HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (long shingle : shingles) {
+            for (int i = 0; i < HASHES; i++) {
+                int h = (int) (mix(shingle ^ SEEDS[i]) >>> 32);
+                if (h < signature[i]) {
+                    signature[i] = h;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /** Adds the story, replacing its previous signature; a null signature just removes it. */
+    void put(long id, int[] signature) {
+        remove(id);
+        if (signature == null) {
+            return;
+        }
+        if (freeCount == 0 && used == ids.length) {
+            grow();
+        }
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : used++;
+        ids[slot] = id;
+        System.arraycopy(signature, 0, signatures, slot * HASHES, HASHES);
+        link(slot);
+        slots.put(id, slot);
+    }
+
+    void remove(long id) {
+        Integer slot = slots.remove(id);
+        if (slot == null) {
+            return;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            int bucket = bucket(signatures, slot * HASHES, band);
+            int previous = -1;
+            for (int s = heads[band][bucket]; s != -1; previous = s, s = next[band][s]) {
+                if (s == slot) {
+                    if (previous == -1) {
+                        heads[band][bucket] = next[band][s];
+                    } else {
+                        next[band][previous] = next[band][s];
+                    }
+                    break;
+                }
+            }
+        }
+        ids[slot] = 0;
+        freeSlots[freeCount++] = slot;
+    }
+
+    int[] signatureOf(long id) {
+        Integer slot = slots.get(id);
+        return slot == null ? null : Arrays.copyOfRange(signatures, slot * HASHES, (slot + 1) * HASHES);
+    }
+
+    int size() {
+        return slots.size();
+    }
+
+    /**
+     * Stories sharing at least one band with the signature whose estimated similarity (share of
+     * equal MinHash values) reaches {@code minSimilarity}, most similar first.
+     */
+    List<Match> query(int[] signature, long excludeId, double minSimilarity, int limit) {
+        BitSet seen = new BitSet(used);
+        List<Match> matches = new ArrayList<>();
+        for (int band = 0; band < BANDS; band++) {
+            for (int s = heads[band][bucket(signature, 0, band)]; s != -1; s = next[band][s]) {
+                if (seen.get(s) || ids[s] == excludeId || !sameBand(signature, s, band)) {
+                    continue;
+                }
+                seen.set(s);
+                int equal = 0;
+                for (int i = 0, offset = s * HASHES; i < HASHES; i++) {
+                    if (signatures[offset + i] == signature[i]) {
+                        equal++;
+                    }
+                }
+                double similarity = (double) equal / HASHES;
+                if (similarity >= minSimilarity) {
+                    matches.add(new Match(ids[s], similarity));
+                }
+            }
+        }
+        matches.sort(Comparator.comparingDouble(Match::similarity).reversed().thenComparingLong(Match::id));
+        return matches.size() > limit ? matches.subList(0, limit) : matches;
+    }
+
+    private boolean sameBand(int[] signature, int slot, int band) {
+        int offset = slot * HASHES + band * ROWS;
+        for (int r = 0; r < ROWS; r++) {
+            if (signatures[offset + r] != signature[band * ROWS + r]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int bucket(int[] values, int offset, int band) {
+        long h = band;
+        for (int r = 0; r < ROWS; r++) {
+            h = h * 31 + values[offset + band * ROWS + r];
+        }
+        return (int) mix(h) & (heads[band].length - 1);
+    }
+
+    private void link(int slot) {
+        for (int band = 0; band < BANDS; band++) {
+            int bucket = bucket(signatures, slot * HASHES, band);
+            next[band][slot] = heads[band][bucket];
+            heads[band][bucket] = slot;
+        }
+    }
+
+    private void allocate(int capacity) {
+        ids = new long[capacity];
+        signatures = new int[capacity * HASHES];
+        freeSlots = new int[capacity];
+        heads = new int[BANDS][capacity * 2];
+        next = new int[BANDS][capacity];
+        for (int[] bandHeads : heads) {
+            Arrays.fill(bandHeads, -1);
+        }
+    }
+
+    // Doubles every array and re-buckets the live slots; free slots keep their numbers
+    private void grow() {
+        long[] oldIds = ids;
+        int[] oldSignatures = signatures;
+        int[] oldFree = Arrays.copyOf(freeSlots, freeCount);
+        allocate(oldIds.length * 2);
+        System.arraycopy(oldIds, 0, ids, 0, oldIds.length);
+        System.arraycopy(oldSignatures, 0, signatures, 0, oldSignatures.length);
+        System.arraycopy(oldFree, 0, freeSlots, 0, oldFree.length);
+        for (int slot : slots.values()) {
+            link(slot);
+        }
+    }
+
+    private static long hash(String word) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < word.length(); i++) {
+            h = (h ^ word.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // MurmurHash3 finalizer
+    private static long mix(long h) {
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb53a1dd3e5a7L;
+        return h ^ (h >>> 33);
+    }
+}
@@ -0,0 +1,104 @@
+package com.asu.ser515.agiletool.service;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Monte Carlo completion forecast: each trial burns down the remaining points one week at a time,
+ * every week's throughput drawn at random from the history. Trials are split across a fork-join
+ * pool, each subtask with its own {@link SplittableRandom} split off before forking, so a seed
+ * gives the same result however the work is scheduled. Results are a histogram of weeks needed.
+ */
+final class MonteCarloForecast {
+
+    private static final int TRIALS_PER_TASK = 2048;
+
+    private MonteCarloForecast() {
+    }
+
+    /**
+     * Counts of trials by weeks needed: {@code counts[w]} finished in week {@code w} (1 to
+     * {@code maxWeeks}), {@code counts[maxWeeks + 1]} had not finished by then.
+     */
+    static int[] simulate(int[] weeklyThroughput, long remaining, int trials, int maxWeeks,
+                          SplittableRandom random, ForkJoinPool pool) {
+        if (weeklyThroughput.length == 0) {
+            throw new IllegalArgumentException("No weekly throughput to sample");
+        }
+        return pool.invoke(new Trials(weeklyThroughput, remaining, trials, maxWeeks, random));
+    }
+
+    /** Fewest weeks within which at least {@code percentile}% of the trials finished. */
+    static int percentile(int[] counts, double percentile) {
+        long trials = 0;
+        for (int count : counts) {
+            trials += count;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * trials));
+        long seen = 0;
+        for (int weeks = 0; weeks < counts.length; weeks++) {
+            seen += counts[weeks];
+            if (seen >= rank) {
+                return weeks;
+            }
+        }
+        return counts.length - 1;
+    }
+
+    /** Share of trials that finished within {@code weeks} weeks. */
+    static double probabilityWithin(int[] counts, int weeks) {
+        long trials = 0;
+        long within = 0;
+        for (int w = 0; w < counts.length; w++) {
+            trials += counts[w];
+            if (w <= weeks && w < counts.length - 1) {
+                within += counts[w];
+            }
+        }
+        return trials == 0 ? 0 : (double) within / trials;
+    }
+
+    private static final class Trials extends RecursiveTask<int[]> {
+        private final int[] samples;
+        private final long remaining;
+        private final int trials;
+        private final int maxWeeks;
+        private final SplittableRandom random;
+
+        Trials(int[] samples, long remaining, int trials, int maxWeeks, SplittableRandom random) {
+            this.samples = samples;
+            this.remaining = remaining;
+            this.trials = trials;
+            this.maxWeeks = maxWeeks;
+            this.random = random;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (trials > TRIALS_PER_TASK) {
+                int half = trials / 2;
+                Trials left = new Trials(samples, remaining, half, maxWeeks, random.split());
+                left.fork();
+                int[] counts = new Trials(samples, remaining, trials - half, maxWeeks, random).compute();
+                int[] leftCounts = left.join();
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] += leftCounts[i];
+                }
+                return counts;
+            }
+            int[] counts = new int[maxWeeks + 2];
+            int n = samples.length;
+            for (int t = 0; t < trials; t++) {
+                long left = remaining;
+                int weeks = 0;
+                while (left > 0 && weeks <= maxWeeks) {
+                    left -= samples[random.nextInt(n)];
+                    weeks++;
+                }
+                counts[Math.min(weeks, maxWeeks + 1)]++;
+            }
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.asu.ser515.agiletool.service;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+/**
+ * Raised when the password hashing pool is saturated and a login is shed instead of queued.
+ */
+public class PasswordHashingRejectedException extends AuthenticationServiceException {
+
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+
+    public PasswordHashingRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,333 @@
+package com.asu.ser515.agiletool.service;
+
+import com.asu.ser515.agiletool.config.ProjectShards;
+import com.asu.ser515.agiletool.dto.PokerSessionDTO;
+import com.asu.ser515.agiletool.repository.ProjectRepository;
+import com.asu.ser515.agiletool.repository.UserStoryRepository;
+import com.asu.ser515.agiletool.repository.UserStoryRepository.StoryRefView;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Planning-poker sessions. Rounds, votes and reveals live only in memory (a concurrent map of
+ * sessions, one lock per session) and every change is pushed to the session's subscribers as a
+ * server-sent {@code state} event. The database is written once per round, when the facilitator
+ * accepts an estimate.
+ */
+@Service
+public class PlanningPokerService {
+
+    private final UserStoryService userStoryService;
+    private final UserStoryRepository storyRepo;
+    private final ProjectRepository projectRepo;
+    private final ProjectShards shards;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final int maxSessions;
+    private final long idleTimeoutMs;
+    private final long emitterTimeoutMs;
+    private final Counter voteCounter;
+
+    public PlanningPokerService(UserStoryService userStoryService,
+                                UserStoryRepository storyRepo,
+                                ProjectRepository projectRepo,
+                                ProjectShards shards,
+                                MeterRegistry meterRegistry,
+                                @Value("${poker.max-sessions:200}") int maxSessions,
+                                @Value("${poker.idle-timeout-minutes:120}") long idleTimeoutMinutes,
+                                @Value("${poker.emitter-timeout-ms:1800000}") long emitterTimeoutMs) {
+        this.userStoryService = userStoryService;
+        this.storyRepo = storyRepo;
+        this.projectRepo = projectRepo;
+        this.shards = shards;
+        this.maxSessions = maxSessions;
+        this.idleTimeoutMs = TimeUnit.MINUTES.toMillis(idleTimeoutMinutes);
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.voteCounter = Counter.builder("poker.votes")
+                .description("Planning-poker votes cast")
+                .register(meterRegistry);
+        Gauge.builder("poker.sessions.active", sessions, Map::size)
+                .description("Open planning-poker sessions")
+                .register(meterRegistry);
+    }
+
+    public PokerSessionDTO create(Long projectId, String facilitator) {
+        if (projectId == null || !projectRepo.existsById(projectId)) {
+            throw new NoSuchElementException("Project not found with id: " + projectId);
+        }
+        if (sessions.size() >= maxSessions) {
+            throw new IllegalStateException("Too many open planning-poker sessions, close one first");
+        }
+        Session session = new Session(UUID.randomUUID().toString(), projectId, facilitator);
+        sessions.put(session.id, session);
+        return session.snapshot();
+    }
+
+    public PokerSessionDTO get(String sessionId) {
+        Session session = session(sessionId);
+        synchronized (session) {
+            return session.snapshot();
+        }
+    }
+
+    public boolean isFacilitator(String sessionId, String username) {
+        return session(sessionId).facilitator.equals(username);
+    }
+
+    /** Joins the user and streams the session's state, starting with the current one. */
+    public SseEmitter subscribe(String sessionId, String username) {
+        Session session = session(sessionId);
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        emitter.onCompletion(() -> session.emitters.remove(emitter));
+        emitter.onTimeout(() -> session.emitters.remove(emitter));
+        emitter.onError(e -> session.emitters.remove(emitter));
+        session.emitters.add(emitter);
+        Update update;
+        synchronized (session) {
+            session.participants.add(username);
+            session.touch();
+            update = session.update();
+        }
+        broadcast(session, update);
+        return emitter;
+    }
+
+    /** Starts a new round on a story of the session's project; earlier votes are discarded. */
+    public PokerSessionDTO startRound(String sessionId, Long storyId) {
+        Session session = session(sessionId);
+        List<StoryRefView> refs;
+        try (ProjectShards.Scope ignored = shards.useProject(session.projectId)) {
+            refs = storyId == null ? List.of() : storyRepo.findRefsByIdIn(List.of(storyId));
+        }
+        if (refs.isEmpty()) {
+            throw new NoSuchElementException("User Story not found with id: " + storyId);
+        }
+        StoryRefView story = refs.get(0);
+        if (!session.projectId.equals(story.getProjectId())) {
+            throw new IllegalArgumentException("Story " + storyId + " does not belong to the session's project");
+        }
+        Update update;
+        synchronized (session) {
+            session.storyId = story.getId();
+            session.storyKey = story.getStoryKey();
+            session.storyTitle = story.getTitle();
+            session.round++;
+            session.revealed = false;
+            session.acceptedPoints = null;
+            session.votes.clear();
+            session.touch();
+            update = session.update();
+        }
+        return broadcast(session, update);
+    }
+
+    /** Casts or changes the user's vote; votes stay hidden until the round is revealed. */
+    public PokerSessionDTO vote(String sessionId, String username, int points) {
+        if (points < 0) {
+            throw new IllegalArgumentException("Story points must not be negative");
+        }
+        Session session = session(sessionId);
+        Update update;
+        synchronized (session) {
+            if (session.storyId == null || session.revealed) {
+                throw new IllegalStateException("No round is open for voting");
+            }
+            session.participants.add(username);
+            session.votes.put(username, points);
+            session.touch();
+            voteCounter.increment();
+            update = session.update();
+        }
+        return broadcast(session, update);
+    }
+
+    public PokerSessionDTO reveal(String sessionId) {
+        Session session = session(sessionId);
+        Update update;
+        synchronized (session) {
+            if (session.storyId == null) {
+                throw new IllegalStateException("No round has been started");
+            }
+            if (session.votes.isEmpty()) {
+                throw new IllegalStateException("Nobody has voted yet");
+            }
+            session.revealed = true;
+            session.touch();
+            update = session.update();
+        }
+        return broadcast(session, update);
+    }
+
+    /**
+     * Saves the agreed points on the round's story, the only write a round makes. The round is
+     * marked as being accepted so it cannot be accepted twice, and the write itself runs without
+     * the session lock so votes and reads are not held up behind the database.
+     */
+    public PokerSessionDTO accept(String sessionId, int points) {
+        Session session = session(sessionId);
+        Long storyId;
+        int round;
+        synchronized (session) {
+            if (session.storyId == null || !session.revealed) {
+                throw new IllegalStateException("Reveal the votes before accepting an estimate");
+            }
+            if (session.acceptedPoints != null || session.accepting) {
+                throw new IllegalStateException("This round's estimate was already saved");
+            }
+            session.accepting = true;
+            storyId = session.storyId;
+            round = session.round;
+        }
+
+        try (ProjectShards.Scope ignored = shards.useProject(session.projectId)) {
+            userStoryService.updateEstimation(storyId, points, null);
+        } catch (RuntimeException e) {
+            synchronized (session) {
+                session.accepting = false;
+            }
+            throw e;
+        }
+        Update update;
+        synchronized (session) {
+            session.accepting = false;
+            // A new round may have started during the write; the estimate is saved either way
+            if (session.round == round) {
+                session.acceptedPoints = points;
+            }
+            session.touch();
+            update = session.update();
+        }
+        return broadcast(session, update);
+    }
+
+    public void close(String sessionId) {
+        Session session = sessions.remove(sessionId);
+        if (session == null) {
+            throw new NoSuchElementException("Planning-poker session not found: " + sessionId);
+        }
+        disconnect(session);
+    }
+
+    private static void disconnect(Session session) {
+        for (SseEmitter emitter : session.emitters) {
+            try {
+                emitter.send(SseEmitter.event().name("closed").data(session.id));
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+            }
+        }
+        session.emitters.clear();
+    }
+
+    /** Keeps idle connections open through proxies, drops dead ones and expires idle sessions. */
+    @Scheduled(fixedDelayString = "${poker.heartbeat-ms:25000}")
+    public void heartbeat() {
+        long idleSince = System.currentTimeMillis() - idleTimeoutMs;
+        for (Session session : sessions.values()) {
+            if (session.lastActivity < idleSince) {
+                if (sessions.remove(session.id, session)) {
+                    disconnect(session);
+                }
+                continue;
+            }
+            for (SseEmitter emitter : session.emitters) {
+                try {
+                    emitter.send(SseEmitter.event().comment("ping"));
+                } catch (IOException | IllegalStateException e) {
+                    session.emitters.remove(emitter);
+                }
+            }
+        }
+    }
+
+    private Session session(String sessionId) {
+        Session session = sessionId == null ? null : sessions.get(sessionId);
+        if (session == null) {
+            throw new NoSuchElementException("Planning-poker session not found: " + sessionId);
+        }
+        return session;
+    }
+
+    /**
+     * Sends a state outside the session lock, so a slow subscriber delays other sends but never a
+     * state change. A state older than one already sent is skipped rather than sent out of order.
+     */
+    private static PokerSessionDTO broadcast(Session session, Update update) {
+        synchronized (session.sendLock) {
+            if (update.revision() > session.sentRevision) {
+                session.sentRevision = update.revision();
+                for (SseEmitter emitter : session.emitters) {
+                    try {
+                        emitter.send(SseEmitter.event().name("state").data(update.state()));
+                    } catch (IOException | IllegalStateException e) {
+                        session.emitters.remove(emitter);
+                    }
+                }
+            }
+        }
+        return update.state();
+    }
+
+    private record Update(long revision, PokerSessionDTO state) {
+    }
+
+    private static final class Session {
+        final String id;
+        final Long projectId;
+        final String facilitator;
+        final Set<String> participants = new LinkedHashSet<>();
+        final Map<String, Integer> votes = new LinkedHashMap<>();
+        final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+        final Object sendLock = new Object();
+        long sentRevision;
+        long revision;
+        boolean accepting;
+        Long storyId;
+        String storyKey;
+        String storyTitle;
+        int round;
+        boolean revealed;
+        Integer acceptedPoints;
+        volatile long lastActivity = System.currentTimeMillis();
+
+        Session(String id, Long projectId, String facilitator) {
+            this.id = id;
+            this.projectId = projectId;
+            this.facilitator = facilitator;
+            participants.add(facilitator);
+        }
+
+        void touch() {
+            lastActivity = System.currentTimeMillis();
+        }
+
+        // Called with the session lock held
+        Update update() {
+            return new Update(++revision, snapshot());
+        }
+
+        PokerSessionDTO snapshot() {
+            return new PokerSessionDTO(id, projectId, facilitator, new ArrayList<>(participants), storyId, storyKey,
+                    storyTitle, round, revealed, new ArrayList<>(votes.keySet()),
+                    revealed ? new LinkedHashMap<>(votes) : null, acceptedPoints);
+        }
+    }
+}
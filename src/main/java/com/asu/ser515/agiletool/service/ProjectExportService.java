@@ -0,0 +1,187 @@
+package com.asu.ser515.agiletool.service;
+
+import com.asu.ser515.agiletool.repository.UserStoryRepository;
+import com.asu.ser515.agiletool.repository.UserStoryRepository.StoryExportView;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Writes a project's backlog straight from a forward-only cursor to the response, one row at a
+ * time, so memory use does not depend on the number of stories.
+ */
+@Service
+public class ProjectExportService {
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format parse(String value) {
+            try {
+                return Format.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new IllegalArgumentException("Unsupported export format: " + value + " (use csv or ndjson)");
+            }
+        }
+    }
+
+    private record Column(String name, Function<StoryExportView, Object> value) {
+    }
+
+    private static final List<Column> COLUMNS = List.of(
+            new Column("id", StoryExportView::getId),
+            new Column("storyKey", StoryExportView::getStoryKey),
+            new Column("title", StoryExportView::getTitle),
+            new Column("status", StoryExportView::getStatus),
+            new Column("priority", StoryExportView::getPriority),
+            new Column("storyPoints", StoryExportView::getStoryPoints),
+            new Column("businessValue", StoryExportView::getBusinessValue),
+            new Column("isMvp", StoryExportView::getMvp),
+            new Column("sprintReady", StoryExportView::getSprintReady),
+            new Column("releaseKey", StoryExportView::getReleaseKey),
+            new Column("sprint", StoryExportView::getSprintName),
+            new Column("assignee", StoryExportView::getAssignee),
+            new Column("backlogRank", StoryExportView::getBacklogRank),
+            new Column("asA", StoryExportView::getAsA),
+            new Column("iWant", StoryExportView::getWant),
+            new Column("soThat", StoryExportView::getSoThat),
+            new Column("description", StoryExportView::getDescription),
+            new Column("acceptanceCriteria", StoryExportView::getAcceptanceCriteria),
+            new Column("createdAt", StoryExportView::getCreatedAt),
+            new Column("updatedAt", StoryExportView::getUpdatedAt));
+
+    // Rows buffered between flushes to the client
+    private static final int FLUSH_EVERY = 1000;
+
+    private final UserStoryRepository storyRepo;
+    private final ObjectMapper objectMapper;
+
+    public ProjectExportService(UserStoryRepository storyRepo, ObjectMapper objectMapper) {
+        this.storyRepo = storyRepo;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Streams every story of the project in backlog order. With {@code excelBom} a UTF-8 byte
+     * order mark is written first so spreadsheet tools detect the encoding of CSV files.
+     */
+    @Transactional(readOnly = true)
+    public void export(Long projectId, Format format, boolean excelBom, OutputStream out) {
+        try (Stream<StoryExportView> rows = storyRepo.streamExportRows(projectId)) {
+            if (format == Format.CSV) {
+                writeCsv(rows.iterator(), excelBom, out);
+            } else {
+                writeNdjson(rows.iterator(), out);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeCsv(Iterator<StoryExportView> rows, boolean excelBom, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (excelBom) {
+            writer.write('\uFEFF');
+        }
+        for (int i = 0; i < COLUMNS.size(); i++) {
+            writer.write(i == 0 ? "" : ",");
+            writer.write(COLUMNS.get(i).name());
+        }
+        writer.write("\r\n");
+
+        long count = 0;
+        while (rows.hasNext()) {
+            StoryExportView row = rows.next();
+            for (int i = 0; i < COLUMNS.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeCsvField(writer, COLUMNS.get(i).value().apply(row));
+            }
+            writer.write("\r\n");
+            if (++count % FLUSH_EVERY == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+    }
+
+    private void writeNdjson(Iterator<StoryExportView> rows, OutputStream out) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+        json.setRootValueSeparator(null);
+        long count = 0;
+        while (rows.hasNext()) {
+            StoryExportView row = rows.next();
+            json.writeStartObject();
+            for (Column column : COLUMNS) {
+                json.writeFieldName(column.name());
+                Object value = column.value().apply(row);
+                if (value == null || value instanceof Number || value instanceof Boolean) {
+                    json.writeObject(value);
+                } else {
+                    json.writeString(value.toString());
+                }
+            }
+            json.writeEndObject();
+            json.writeRaw('\n');
+            if (++count % FLUSH_EVERY == 0) {
+                json.flush();
+            }
+        }
+        json.flush();
+    }
+
+    /**
+     * RFC 4180 quoting. Text starting with a formula character is prefixed with an apostrophe so
+     * spreadsheets do not evaluate user-entered content.
+     */
+    private static void writeCsvField(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (!(value instanceof Number) && !text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        boolean quote = text.indexOf(',') >= 0 || text.indexOf('"') >= 0
+                || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
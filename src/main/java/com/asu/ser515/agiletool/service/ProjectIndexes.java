@@ -0,0 +1,96 @@
+package com.asu.ser515.agiletool.service;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Lazily built in-memory indexes, one per project, kept in step with committed changes.
+ *
+ * <p>An index is built outside the map from a fresh read snapshot and then published. Every change
+ * bumps a per-project counter before it looks for the index; a build that sees the counter move
+ * after publishing may have missed a change, so it withdraws its index and builds again. A
+ * change therefore either lands in the published index or forces a rebuild, never neither.
+ */
+final class ProjectIndexes<T> {
+
+    private static final int BUILD_ATTEMPTS = 3;
+
+    private final Map<Long, T> indexes = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> changes = new ConcurrentHashMap<>();
+    private final TransactionTemplate snapshotTx;
+    private final Function<Long, T> builder;
+    private final Function<T, ReadWriteLock> locks;
+
+    ProjectIndexes(PlatformTransactionManager transactionManager, Function<Long, T> builder,
+                   Function<T, ReadWriteLock> locks) {
+        this.snapshotTx = new TransactionTemplate(transactionManager);
+        this.snapshotTx.setReadOnly(true);
+        // A snapshot started by the caller's transaction could predate changes already counted
+        this.snapshotTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.builder = builder;
+        this.locks = locks;
+    }
+
+    /** The project's index if it has been built, otherwise null. */
+    T get(Long projectId) {
+        return indexes.get(projectId);
+    }
+
+    T getOrBuild(Long projectId) {
+        T index = indexes.get(projectId);
+        if (index != null) {
+            return index;
+        }
+        AtomicLong counter = counter(projectId);
+        for (int attempt = 1; ; attempt++) {
+            long seen = counter.get();
+            T built = snapshotTx.execute(status -> builder.apply(projectId));
+            T existing = indexes.putIfAbsent(projectId, built);
+            if (existing != null) {
+                return existing;
+            }
+            if (counter.get() == seen) {
+                return built;
+            }
+            indexes.remove(projectId, built);
+            if (attempt == BUILD_ATTEMPTS) {
+                // Busy project: answer from this snapshot and leave publishing to a later call
+                return built;
+            }
+        }
+    }
+
+    /** Applies a committed change to the project's index under its write lock, if it is built. */
+    void update(Long projectId, Consumer<T> change) {
+        counter(projectId).incrementAndGet();
+        T index = indexes.get(projectId);
+        if (index == null) {
+            return;
+        }
+        ReadWriteLock lock = locks.apply(index);
+        lock.writeLock().lock();
+        try {
+            change.accept(index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Forgets the project's index, including one being built right now; it is rebuilt on next use. */
+    void invalidate(Long projectId) {
+        counter(projectId).incrementAndGet();
+        indexes.remove(projectId);
+    }
+
+    private AtomicLong counter(Long projectId) {
+        return changes.computeIfAbsent(projectId, id -> new AtomicLong());
+    }
+}
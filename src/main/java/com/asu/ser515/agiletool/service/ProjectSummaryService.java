@@ -0,0 +1,123 @@
+package com.asu.ser515.agiletool.service;
+
+import com.asu.ser515.agiletool.dto.ProjectSummaryDTO;
+import com.asu.ser515.agiletool.dto.ProjectSummaryDTO.Rollup;
+import com.asu.ser515.agiletool.models.ReleaseStatus;
+import com.asu.ser515.agiletool.models.StoryPriority;
+import com.asu.ser515.agiletool.models.StoryStatus;
+import com.asu.ser515.agiletool.repository.ReleasePlanRepository;
+import com.asu.ser515.agiletool.repository.UserStoryRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dashboard rollups for a project, computed with one grouped query over its stories (plus one
+ * over its release plans) and cached under a per-project version. Services that change stories
+ * or release plans call {@link #projectChanged(Long)}, which bumps the version once their
+ * transaction commits; unchanged projects are answered from memory or with 304 via the ETag.
+ */
+@Service
+public class ProjectSummaryService {
+
+    private final UserStoryRepository storyRepo;
+    private final ReleasePlanRepository releasePlanRepo;
+
+    // Versions restart with the process, so prefix them to keep ETags from earlier runs invalid
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+    private final Map<Long, ProjectSummaryDTO> summaries = new ConcurrentHashMap<>();
+
+    public ProjectSummaryService(UserStoryRepository storyRepo, ReleasePlanRepository releasePlanRepo) {
+        this.storyRepo = storyRepo;
+        this.releasePlanRepo = releasePlanRepo;
+    }
+
+    public String currentVersion(Long projectId) {
+        return epoch + "-" + versions.getOrDefault(projectId, 0L);
+    }
+
+    public void projectChanged(Long projectId) {
+        if (projectId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(projectId);
+                }
+            });
+        } else {
+            bump(projectId);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public ProjectSummaryDTO getSummary(Long projectId) {
+        // Read the version before querying: a change committing meanwhile bumps it again, so a
+        // summary is never cached under a version newer than its data
+        String version = currentVersion(projectId);
+        ProjectSummaryDTO cached = summaries.get(projectId);
+        if (cached != null && cached.getVersion().equals(version)) {
+            return cached;
+        }
+
+        Rollup total = new Rollup();
+        Rollup mvp = new Rollup();
+        Rollup sprintReady = new Rollup();
+        Map<StoryStatus, Rollup> byStatus = new EnumMap<>(StoryStatus.class);
+        for (StoryStatus status : StoryStatus.values()) {
+            byStatus.put(status, new Rollup());
+        }
+        Map<StoryPriority, Rollup> byPriority = new EnumMap<>(StoryPriority.class);
+        for (StoryPriority priority : StoryPriority.values()) {
+            byPriority.put(priority, new Rollup());
+        }
+
+        for (Object[] row : storyRepo.summarizeByProject(projectId)) {
+            long stories = ((Number) row[4]).longValue();
+            long points = row[5] != null ? ((Number) row[5]).longValue() : 0;
+            total.add(stories, points);
+            if (row[0] != null) {
+                byStatus.get((StoryStatus) row[0]).add(stories, points);
+            }
+            if (row[1] != null) {
+                byPriority.get((StoryPriority) row[1]).add(stories, points);
+            }
+            if (Boolean.TRUE.equals(row[2])) {
+                mvp.add(stories, points);
+            }
+            if (Boolean.TRUE.equals(row[3])) {
+                sprintReady.add(stories, points);
+            }
+        }
+
+        Map<ReleaseStatus, Long> releasePlans = new EnumMap<>(ReleaseStatus.class);
+        for (ReleaseStatus status : ReleaseStatus.values()) {
+            releasePlans.put(status, 0L);
+        }
+        for (Object[] row : releasePlanRepo.countByStatusForProject(projectId)) {
+            if (row[0] != null) {
+                releasePlans.put((ReleaseStatus) row[0], ((Number) row[1]).longValue());
+            }
+        }
+
+        ProjectSummaryDTO summary = new ProjectSummaryDTO(projectId, version, total, byStatus, byPriority,
+                mvp, sprintReady, releasePlans);
+        summaries.put(projectId, summary);
+        return summary;
+    }
+
+    private void bump(Long projectId) {
+        versions.put(projectId, sequence.incrementAndGet());
+        summaries.remove(projectId);
+    }
+}
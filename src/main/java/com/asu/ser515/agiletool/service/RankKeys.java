@@ -0,0 +1,139 @@
+package com.asu.ser515.agiletool.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fractional (lexorank-style) ordering keys. A key is a base-36 fraction written without its
+ * leading "0." and without trailing zeros, so plain string comparison matches numeric order and
+ * there is always room for another key between any two distinct keys. Keys added at either end
+ * step by one unit in the {@value #END_STEP_DIGITS}th digit instead of halving the gap, so they
+ * keep a fixed width however many stories are appended.
+ */
+public final class RankKeys {
+
+    private static final String DIGITS = "0123456789abcdefghijklmnopqrstuvwxyz";
+    private static final int BASE = DIGITS.length();
+    static final int END_STEP_DIGITS = 4;
+
+    private RankKeys() {
+    }
+
+    /**
+     * Returns a key strictly between {@code before} and {@code after}. A null bound means the
+     * start or end of the list respectively.
+     */
+    public static String between(String before, String after) {
+        String a = before == null ? "" : before;
+        if (after != null && a.compareTo(after) >= 0) {
+            throw new IllegalArgumentException("Rank " + before + " must sort before " + after);
+        }
+        validate(a);
+        if (after != null) {
+            validate(after);
+        }
+        if (after == null) {
+            String next = step(a, 1);
+            return next != null ? next : midpoint(a, null);
+        }
+        if (a.isEmpty()) {
+            String previous = step(after, -1);
+            if (previous != null) {
+                return previous;
+            }
+        }
+        return midpoint(a, after);
+    }
+
+    /**
+     * Returns {@code count} evenly spaced keys of the shortest equal width, used when a
+     * project's keys are rebuilt from scratch. They fill the middle half of the key space, leaving
+     * a quarter free at each end for stories added to the top or bottom afterwards.
+     */
+    public static List<String> spread(int count) {
+        List<String> keys = new ArrayList<>(count);
+        if (count <= 0) {
+            return keys;
+        }
+        int width = 1;
+        long capacity = BASE;
+        // Leave at least ~BASE free slots between neighbours so later inserts stay short
+        while (capacity / 2 / (count + 1L) < BASE && width < 12) {
+            width++;
+            capacity *= BASE;
+        }
+        long step = capacity / 2 / (count + 1L);
+        for (int i = 1; i <= count; i++) {
+            keys.add(stripTrailingZeros(toDigits(capacity / 4 + step * i, width)));
+        }
+        return keys;
+    }
+
+    // The key's first END_STEP_DIGITS digits moved by one unit, or null when that leaves (0, 1)
+    private static String step(String key, int direction) {
+        long value = 0;
+        for (int i = 0; i < END_STEP_DIGITS; i++) {
+            value = value * BASE + DIGITS.indexOf(digitAt(key, i));
+        }
+        // Truncating to the prefix never moves a key up, so a unit either way stays on the right side of it
+        value += direction;
+        long capacity = (long) Math.pow(BASE, END_STEP_DIGITS);
+        if (value <= 0 || value >= capacity) {
+            return null;
+        }
+        return stripTrailingZeros(toDigits(value, END_STEP_DIGITS));
+    }
+
+    private static String midpoint(String a, String b) {
+        if (b != null) {
+            int n = 0;
+            while (n < b.length() && digitAt(a, n) == b.charAt(n)) {
+                n++;
+            }
+            if (n > 0) {
+                return b.substring(0, n) + midpoint(a.length() > n ? a.substring(n) : "", b.substring(n));
+            }
+        }
+        int digitA = a.isEmpty() ? 0 : DIGITS.indexOf(a.charAt(0));
+        int digitB = b != null ? DIGITS.indexOf(b.charAt(0)) : BASE;
+        if (digitB - digitA > 1) {
+            return String.valueOf(DIGITS.charAt((digitA + digitB + 1) / 2));
+        }
+        if (b != null && b.length() > 1) {
+            return b.substring(0, 1);
+        }
+        return DIGITS.charAt(digitA) + midpoint(a.isEmpty() ? "" : a.substring(1), null);
+    }
+
+    private static char digitAt(String s, int index) {
+        return index < s.length() ? s.charAt(index) : '0';
+    }
+
+    private static void validate(String key) {
+        for (int i = 0; i < key.length(); i++) {
+            if (DIGITS.indexOf(key.charAt(i)) < 0) {
+                throw new IllegalArgumentException("Invalid rank key: " + key);
+            }
+        }
+        if (!key.isEmpty() && key.charAt(key.length() - 1) == '0') {
+            throw new IllegalArgumentException("Rank key must not end with 0: " + key);
+        }
+    }
+
+    private static String toDigits(long value, int width) {
+        char[] out = new char[width];
+        for (int i = width - 1; i >= 0; i--) {
+            out[i] = DIGITS.charAt((int) (value % BASE));
+            value /= BASE;
+        }
+        return new String(out);
+    }
+
+    private static String stripTrailingZeros(String key) {
+        int end = key.length();
+        while (end > 1 && key.charAt(end - 1) == '0') {
+            end--;
+        }
+        return key.substring(0, end);
+    }
+}
@@ -0,0 +1,155 @@
+package com.asu.ser515.agiletool.service;
+
+import com.asu.ser515.agiletool.dto.ReleaseForecastDTO;
+import com.asu.ser515.agiletool.models.FlowWeeklyStats;
+import com.asu.ser515.agiletool.models.ReleasePlan;
+import com.asu.ser515.agiletool.models.StoryStatus;
+import com.asu.ser515.agiletool.repository.FlowWeeklyStatsRepository;
+import com.asu.ser515.agiletool.repository.ReleasePlanRepository;
+import com.asu.ser515.agiletool.repository.UserStoryRepository;
+import com.asu.ser515.agiletool.repository.UserStoryRepository.StoryRefView;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probabilistic release forecasts: how many weeks the points still open in a release plan take
+ * when every week completes as many points as a randomly drawn past week of the project did.
+ * History comes from the weekly flow rows, so archived stories still count.
+ */
+@Service
+public class ReleaseForecastService {
+
+    private static final double[] PERCENTILES = {50, 70, 85, 95};
+
+    private final ReleasePlanRepository releasePlanRepo;
+    private final UserStoryRepository storyRepo;
+    private final FlowWeeklyStatsRepository statsRepo;
+    private final int defaultTrials;
+    private final int maxTrials;
+    private final int historyWeeks;
+    private final int maxWeeks;
+    private final Timer forecastTimer;
+
+    public ReleaseForecastService(ReleasePlanRepository releasePlanRepo,
+                                  UserStoryRepository storyRepo,
+                                  FlowWeeklyStatsRepository statsRepo,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${forecast.trials:10000}") int defaultTrials,
+                                  @Value("${forecast.max-trials:100000}") int maxTrials,
+                                  @Value("${forecast.history-weeks:520}") int historyWeeks,
+                                  @Value("${forecast.max-weeks:520}") int maxWeeks) {
+        this.releasePlanRepo = releasePlanRepo;
+        this.storyRepo = storyRepo;
+        this.statsRepo = statsRepo;
+        this.maxTrials = Math.max(1, maxTrials);
+        this.defaultTrials = Math.max(1, Math.min(defaultTrials, this.maxTrials));
+        this.historyWeeks = Math.max(1, historyWeeks);
+        this.maxWeeks = Math.max(1, maxWeeks);
+        this.forecastTimer = Timer.builder("releases.forecast")
+                .description("Time to sample throughput and simulate a release forecast")
+                .register(meterRegistry);
+    }
+
+    @Transactional(readOnly = true)
+    public ReleaseForecastDTO forecast(Long releasePlanId, Integer trials) {
+        ReleasePlan plan = releasePlanRepo.findById(releasePlanId)
+                .orElseThrow(() -> new IllegalArgumentException("Release plan not found with id: " + releasePlanId));
+        long remaining = 0;
+        long unestimated = 0;
+        for (StoryRefView story : storyRepo.findRefsByReleasePlanId(releasePlanId)) {
+            if (story.getStatus() == StoryStatus.DONE) {
+                continue;
+            }
+            if (story.getStoryPoints() == null) {
+                unestimated++;
+            } else {
+                remaining += story.getStoryPoints();
+            }
+        }
+
+        LocalDate today = LocalDate.now();
+        LocalDate from = plan.getStartDate().isAfter(today) ? plan.getStartDate() : today;
+        LocalDate target = plan.getTargetDate();
+        if (remaining == 0) {
+            ReleaseForecastDTO.CompletionDates done = new ReleaseForecastDTO.CompletionDates(from, from, from, from);
+            return new ReleaseForecastDTO(releasePlanId, from, target, 0, unestimated, 0, 0,
+                    from.isAfter(target) ? 0 : 1, done);
+        }
+
+        long started = System.nanoTime();
+        int[] throughput = weeklyPoints(plan.getProject().getId(), today);
+        int runs = trials == null ? defaultTrials : Math.max(1, Math.min(trials, maxTrials));
+        int[] counts = MonteCarloForecast.simulate(throughput, remaining, runs, maxWeeks,
+                new SplittableRandom(), ForkJoinPool.commonPool());
+        forecastTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+
+        LocalDate[] dates = new LocalDate[PERCENTILES.length];
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            int weeks = MonteCarloForecast.percentile(counts, PERCENTILES[i]);
+            dates[i] = weeks > maxWeeks ? null : completionDate(from, weeks);
+        }
+        // Work finishing in week w is done by the last day of that week
+        long weeksToTarget = Math.floorDiv(ChronoUnit.DAYS.between(from, target) + 1, 7);
+        double onTarget = MonteCarloForecast.probabilityWithin(counts, (int) Math.min(weeksToTarget, maxWeeks));
+        return new ReleaseForecastDTO(releasePlanId, from, target, remaining, unestimated, throughput.length, runs,
+                Math.round(onTarget * 1000) / 1000.0,
+                new ReleaseForecastDTO.CompletionDates(dates[0], dates[1], dates[2], dates[3]));
+    }
+
+    /**
+     * Points completed in each finished week from the project's first completion on, with weeks
+     * that completed nothing as zeros. Weeks recorded before points were tracked are left out.
+     */
+    private int[] weeklyPoints(Long projectId, LocalDate today) {
+        LocalDate currentWeek = FlowAnalyticsService.weekOf(today);
+        Map<LocalDate, FlowWeeklyStats> rows = new HashMap<>();
+        LocalDate first = null;
+        for (FlowWeeklyStats row : statsRepo.findByProjectIdAndReleasePlanIdAndWeekStartGreaterThanEqualOrderByWeekStartAsc(
+                projectId, FlowWeeklyStats.PROJECT_SCOPE, currentWeek.minusWeeks(historyWeeks))) {
+            if (!row.getWeekStart().isBefore(currentWeek)) {
+                break;
+            }
+            rows.put(row.getWeekStart(), row);
+            if (first == null) {
+                first = row.getWeekStart();
+            }
+        }
+        if (first == null) {
+            throw new IllegalStateException("Project " + projectId + " has no finished weeks of completed stories to sample");
+        }
+
+        int[] samples = new int[(int) ChronoUnit.WEEKS.between(first, currentWeek)];
+        int n = 0;
+        boolean anyPoints = false;
+        for (LocalDate week = first; week.isBefore(currentWeek); week = week.plusWeeks(1)) {
+            FlowWeeklyStats row = rows.get(week);
+            if (row != null && row.getCompletedPoints() == null) {
+                continue;
+            }
+            samples[n] = row == null ? 0 : row.getCompletedPoints();
+            anyPoints |= samples[n] > 0;
+            n++;
+        }
+        if (!anyPoints) {
+            throw new IllegalStateException("Project " + projectId + " has no completed story points to sample;"
+                    + " older weeks may need a flow-metrics rebuild");
+        }
+        return Arrays.copyOf(samples, n);
+    }
+
+    private static LocalDate completionDate(LocalDate from, int weeks) {
+        return weeks == 0 ? from : from.plusWeeks(weeks).minusDays(1);
+    }
+}
@@ -1,5 +1,6 @@
 package com.asu.ser515.agiletool.service;
 
+import com.asu.ser515.agiletool.config.ProjectShards;
 import com.asu.ser515.agiletool.dto.CreateReleasePlanDTO;
 import com.asu.ser515.agiletool.dto.ReleasePlanResponseDTO;
 import com.asu.ser515.agiletool.dto.UpdateReleasePlanDTO;
@@ -9,9 +10,15 @@ import com.asu.ser515.agiletool.repository.ReleasePlanRepository;
 import com.asu.ser515.agiletool.repository.UserRepository;
 import com.asu.ser515.agiletool.repository.UserStoryRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,18 +28,33 @@ public class ReleasePlanService {
     private final ProjectRepository projectRepo;
     private final UserRepository userRepo;
     private final UserStoryRepository userStoryRepo;
+    private final StoryAuditService auditService;
+    private final ProjectSummaryService summaryService;
+    private final ProjectShards shards;
+    private final TransactionTemplate readTx;
 
     private static final String RELEASE_KEY_PREFIX = "REL";
     private static final int PAD = 3;
+    // Plans created in a shard file carry its number: REL-<shard>-<n>
+    private static final Pattern SHARD_KEY = Pattern.compile("^" + RELEASE_KEY_PREFIX + "-(\\d{1,4})-\\d+$");
 
     public ReleasePlanService(ReleasePlanRepository releasePlanRepo,
                               ProjectRepository projectRepo,
                               UserRepository userRepo,
-                              UserStoryRepository userStoryRepo) {
+                              UserStoryRepository userStoryRepo,
+                              StoryAuditService auditService,
+                              ProjectSummaryService summaryService,
+                              ProjectShards shards,
+                              PlatformTransactionManager transactionManager) {
         this.releasePlanRepo = releasePlanRepo;
         this.projectRepo = projectRepo;
         this.userRepo = userRepo;
         this.userStoryRepo = userStoryRepo;
+        this.auditService = auditService;
+        this.summaryService = summaryService;
+        this.shards = shards;
+        this.readTx = new TransactionTemplate(transactionManager);
+        this.readTx.setReadOnly(true);
     }
 
     @Transactional
@@ -75,10 +97,13 @@ public class ReleasePlanService {
 
         releasePlan = releasePlanRepo.save(releasePlan);
 
-        String releaseKey = RELEASE_KEY_PREFIX + "-" + String.format("%0" + PAD + "d", releasePlan.getId());
+        int shard = ProjectShards.current();
+        String releaseKey = RELEASE_KEY_PREFIX + "-" + (shard == ProjectShards.MAIN ? "" : shard + "-")
+                + String.format("%0" + PAD + "d", ProjectShards.localId(releasePlan.getId()));
         releasePlan.setReleaseKey(releaseKey);
 
         releasePlan = releasePlanRepo.save(releasePlan);
+        summaryService.projectChanged(project.getId());
 
         return toResponseDTO(releasePlan);
     }
@@ -90,17 +115,34 @@ public class ReleasePlanService {
         return toResponseDTO(releasePlan);
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Keys of plans created in a shard name it; older keys are looked for in the main database first,
+     * then in the shards their projects moved to.
+     */
     public ReleasePlanResponseDTO findByReleaseKey(String releaseKey) {
-        ReleasePlan releasePlan = releasePlanRepo.findByReleaseKey(releaseKey)
-                .orElseThrow(() -> new IllegalArgumentException("Release plan not found with key: " + releaseKey));
-        return toResponseDTO(releasePlan);
+        Matcher shardKey = SHARD_KEY.matcher(releaseKey == null ? "" : releaseKey);
+        List<Integer> candidates = shards.all();
+        if (shardKey.matches()) {
+            int shard = Integer.parseInt(shardKey.group(1));
+            candidates = candidates.contains(shard) ? List.of(shard) : List.of();
+        }
+        for (int shard : candidates) {
+            try (ProjectShards.Scope ignored = shards.useShard(shard)) {
+                Optional<ReleasePlanResponseDTO> found = readTx.execute(status ->
+                        releasePlanRepo.findByReleaseKey(releaseKey).map(this::toResponseDTO));
+                if (found != null && found.isPresent()) {
+                    return found.get();
+                }
+            }
+        }
+        throw new IllegalArgumentException("Release plan not found with key: " + releaseKey);
     }
 
     @Transactional
-    public ReleasePlanResponseDTO update(Long id, UpdateReleasePlanDTO dto) {
+    public ReleasePlanResponseDTO update(Long id, UpdateReleasePlanDTO dto, Long expectedVersion) {
         ReleasePlan releasePlan = releasePlanRepo.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Release plan not found with id: " + id));
+        VersionConflictException.check("Release plan", id, expectedVersion, releasePlan.getVersion());
 
         if (dto.getName() != null && !dto.getName().isBlank()) {
             releasePlan.setName(dto.getName());
@@ -125,7 +167,9 @@ public class ReleasePlanService {
             throw new IllegalArgumentException("Target date must be after start date");
         }
 
-        releasePlan = releasePlanRepo.save(releasePlan);
+        // Flushed so the response already carries the incremented version
+        releasePlan = releasePlanRepo.saveAndFlush(releasePlan);
+        summaryService.projectChanged(projectIdOf(releasePlan));
         return toResponseDTO(releasePlan);
     }
 
@@ -134,14 +178,15 @@ public class ReleasePlanService {
         ReleasePlan releasePlan = releasePlanRepo.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Release plan not found with id: " + id));
         releasePlanRepo.delete(releasePlan);
+        summaryService.projectChanged(projectIdOf(releasePlan));
     }
 
-    @Transactional(readOnly = true)
+    /** Every shard in turn, main first; shard ids are higher, so the list stays in id order. */
     public List<ReleasePlanResponseDTO> listAll() {
-        return releasePlanRepo.findAllByOrderByIdAsc()
+        return shards.collect(() -> readTx.execute(status -> releasePlanRepo.findAllByOrderByIdAsc()
                 .stream()
                 .map(this::toResponseDTO)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList())));
     }
 
     @Transactional(readOnly = true)
@@ -156,12 +201,11 @@ public class ReleasePlanService {
                 .collect(Collectors.toList());
     }
 
-    @Transactional(readOnly = true)
     public List<ReleasePlanResponseDTO> listByStatus(ReleaseStatus status) {
-        return releasePlanRepo.findByStatus(status)
+        return shards.collect(() -> readTx.execute(tx -> releasePlanRepo.findByStatus(status)
                 .stream()
                 .map(this::toResponseDTO)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList())));
     }
 
     @Transactional
@@ -210,8 +254,10 @@ public class ReleasePlanService {
             throw new IllegalArgumentException("User story is not assigned to this release plan");
         }
 
+        Map<String, Object> before = StoryAuditService.snapshot(userStory);
         userStory.setReleasePlan(null);
         userStoryRepo.save(userStory);
+        auditService.recordUpdated(userStory, before);
 
         return toResponseDTO(releasePlan);
     }
@@ -238,12 +284,18 @@ public class ReleasePlanService {
             throw new IllegalArgumentException("User story must belong to the same project as the release plan");
         }
 
+        Map<String, Object> before = StoryAuditService.snapshot(userStory);
         userStory.setReleasePlan(releasePlan);
         userStoryRepo.save(userStory);
+        auditService.recordUpdated(userStory, before);
 
         return toResponseDTO(releasePlan);
     }
 
+    private static Long projectIdOf(ReleasePlan releasePlan) {
+        return releasePlan.getProject() != null ? releasePlan.getProject().getId() : null;
+    }
+
     private ReleasePlanResponseDTO toResponseDTO(ReleasePlan releasePlan) {
         ReleasePlanResponseDTO dto = new ReleasePlanResponseDTO();
         dto.setId(releasePlan.getId());
@@ -256,6 +308,7 @@ public class ReleasePlanService {
         dto.setStatus(releasePlan.getStatus());
         dto.setCreatedAt(releasePlan.getCreatedAt());
         dto.setUpdatedAt(releasePlan.getUpdatedAt());
+        dto.setVersion(releasePlan.getVersion());
 
         if (releasePlan.getProject() != null) {
             dto.setProjectId(releasePlan.getProject().getId());
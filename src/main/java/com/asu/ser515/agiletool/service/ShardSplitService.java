@@ -0,0 +1,306 @@
+package com.asu.ser515.agiletool.service;
+
+import com.asu.ser515.agiletool.config.ProjectShards;
+import com.asu.ser515.agiletool.config.SerializedWriteTransactionManager;
+import com.asu.ser515.agiletool.config.ShardPools;
+import com.asu.ser515.agiletool.dto.ProjectShardDTO;
+import com.asu.ser515.agiletool.models.Project;
+import com.asu.ser515.agiletool.models.ReleasePlan;
+import com.asu.ser515.agiletool.repository.ProjectRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves a project out of the main database into a shard file of its own (see {@link ProjectShards}),
+ * with its release plans, sprints, stories, tasks, history and archived stories. Rows get new ids in
+ * the shard's range ({@code id + (shard << 40)}); story and release keys stay as they are.
+ *
+ * <p>The move holds the writers of main and the shard, so no write to either runs meanwhile. The
+ * rows are copied into the shard in one transaction, then deleted from main and the project
+ * recorded in {@code project_shards} in another, and finally removed from the main archive. A
+ * failure before the second commit leaves the project in main, and the next attempt overwrites the
+ * partial copy; one after it leaves archive rows behind, which moving the project again removes.
+ */
+@Service
+public class ShardSplitService {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardSplitService.class);
+
+    // Columns pointing at other rows of the project, which change id with it
+    private static final Map<String, List<String>> REFERENCES = Map.of(
+            "user_stories", List.of("release_plan_id", "sprint_id"),
+            "tasks", List.of("user_story_id"),
+            "story_dependencies", List.of("blocker_story_id", "blocked_story_id"),
+            "story_status_transitions", List.of("story_id", "release_plan_id"),
+            "story_audit_log", List.of("story_id"),
+            "flow_weekly_stats", List.of("release_plan_id"));
+    private static final List<String> ARCHIVED_TABLES = List.of("user_stories", "tasks");
+
+    private final ProjectRepository projectRepo;
+    private final ProjectShards shards;
+    private final ShardPools shardPools;
+    private final DataSource mainWritePool;
+    private final PlatformTransactionManager transactionManager;
+    private final EntityManagerFactory entityManagerFactory;
+    private final StoryAuditService auditService;
+    private final StoryFlagWriter flagWriter;
+    private final ProjectSummaryService summaryService;
+    private final StoryDuplicateService duplicateService;
+    private final StoryDependencyService dependencyService;
+    private final EstimateSuggestionService estimateSuggestionService;
+    private final Timer moves;
+
+    public ShardSplitService(ProjectRepository projectRepo,
+                             ProjectShards shards,
+                             ShardPools shardPools,
+                             @Qualifier("sqliteWritePool") DataSource mainWritePool,
+                             PlatformTransactionManager transactionManager,
+                             EntityManagerFactory entityManagerFactory,
+                             StoryAuditService auditService,
+                             StoryFlagWriter flagWriter,
+                             ProjectSummaryService summaryService,
+                             StoryDuplicateService duplicateService,
+                             StoryDependencyService dependencyService,
+                             EstimateSuggestionService estimateSuggestionService,
+                             MeterRegistry meterRegistry) {
+        this.projectRepo = projectRepo;
+        this.shards = shards;
+        this.shardPools = shardPools;
+        this.mainWritePool = mainWritePool;
+        this.transactionManager = transactionManager;
+        this.entityManagerFactory = entityManagerFactory;
+        this.auditService = auditService;
+        this.flagWriter = flagWriter;
+        this.summaryService = summaryService;
+        this.duplicateService = duplicateService;
+        this.dependencyService = dependencyService;
+        this.estimateSuggestionService = estimateSuggestionService;
+        this.moves = Timer.builder("sqlite.shards.moves")
+                .description("Time taken to move a project into a shard file")
+                .register(meterRegistry);
+    }
+
+    /** Every project with the database holding it. */
+    public List<ProjectShardDTO> listProjects() {
+        return projectRepo.findAll().stream()
+                .sorted(Comparator.comparing(Project::getId))
+                .map(project -> new ProjectShardDTO(project.getId(), project.getProjectKey(),
+                        shards.shardOf(project.getId()), null, null))
+                .toList();
+    }
+
+    public ProjectShardDTO moveProject(String projectKey, int shard) {
+        if (shard <= ProjectShards.MAIN || shard > ProjectShards.MAX_SHARD) {
+            throw new IllegalArgumentException("Shard must be between 1 and " + ProjectShards.MAX_SHARD);
+        }
+        Project project = projectRepo.findByProjectKey(projectKey)
+                .orElseThrow(() -> new NoSuchElementException("Project not found: " + projectKey));
+        Long projectId = project.getId();
+        int current = shards.shardOf(projectId);
+        if (current != ProjectShards.MAIN && current != shard) {
+            throw new IllegalStateException("Project " + projectKey + " is already on shard " + current);
+        }
+        if (!(transactionManager instanceof SerializedWriteTransactionManager writer)) {
+            throw new IllegalStateException("Moving projects needs the serialized write transaction manager");
+        }
+
+        // Queued audit entries and flags still carry main ids; write them before the rows move
+        auditService.flush();
+        flagWriter.flushNow();
+
+        long started = System.nanoTime();
+        long[] moved = new long[1];
+        try {
+            writer.betweenWrites(List.of(ProjectShards.MAIN, shard), () -> {
+                if (shards.shardOf(projectId) != shard) {
+                    try (Connection target = shardPools.openForMaintenance(shard)) {
+                        moved[0] = copyToShard(target, projectId, ProjectShards.idBase(shard));
+                    }
+                    removeFromMain(projectId, shard);
+                    // Writers waiting for main re-check the mapping once they hold it
+                    shards.reload();
+                }
+                removeArchivedFromMain(projectId);
+            });
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not move project " + projectKey + " to shard " + shard
+                    + ": " + e.getMessage(), e);
+        } finally {
+            moves.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+
+        // Cached release plans and query results still hold the old ids
+        Cache cache = entityManagerFactory.getCache().unwrap(Cache.class);
+        cache.evictEntityData(ReleasePlan.class);
+        cache.evictQueryRegions();
+        summaryService.projectChanged(projectId);
+        duplicateService.invalidate(projectId);
+        dependencyService.invalidate(projectId);
+        estimateSuggestionService.invalidate(projectId);
+
+        long durationMs = (System.nanoTime() - started) / 1_000_000;
+        log.info("Moved project {} to shard {}: {} rows in {} ms", projectKey, shard, moved[0], durationMs);
+        return new ProjectShardDTO(projectId, projectKey, shard, moved[0], durationMs);
+    }
+
+    /** Copies the project's hot and archived rows into the shard, replacing any left by an earlier attempt. */
+    private long copyToShard(Connection target, Long projectId, long idBase) throws SQLException {
+        target.setAutoCommit(false);
+        try {
+            long copied = 0;
+            for (String table : ProjectShards.PROJECT_TABLES.reversed()) {
+                delete(target, "main", table, projectId);
+            }
+            for (String table : ProjectShards.PROJECT_TABLES) {
+                copied += copy(target, "shared", "main", table, projectId, idBase);
+            }
+            if (hasTable(target, "shared_archive", "user_stories") && hasTable(target, "shared_archive", "tasks")) {
+                for (String table : ARCHIVED_TABLES.reversed()) {
+                    delete(target, "archive", table, projectId);
+                }
+                for (String table : ARCHIVED_TABLES) {
+                    copied += copy(target, "shared_archive", "archive", table, projectId, idBase);
+                    // Archived ids must not be handed out again by the shard's hot table
+                    try (PreparedStatement update = target.prepareStatement("UPDATE main.sqlite_sequence "
+                            + "SET seq = MAX(seq, (SELECT COALESCE(MAX(id), 0) FROM archive." + table + ")) "
+                            + "WHERE name = ?")) {
+                        update.setString(1, table);
+                        update.executeUpdate();
+                    }
+                }
+            }
+            target.commit();
+            return copied;
+        } catch (SQLException | RuntimeException e) {
+            target.rollback();
+            throw e;
+        }
+    }
+
+    private void removeFromMain(Long projectId, int shard) throws SQLException {
+        try (Connection main = mainWritePool.getConnection()) {
+            main.setAutoCommit(false);
+            try {
+                for (String table : ProjectShards.PROJECT_TABLES.reversed()) {
+                    delete(main, "main", table, projectId);
+                }
+                try (PreparedStatement insert = main.prepareStatement(
+                        "INSERT INTO project_shards (project_id, shard) VALUES (?, ?)")) {
+                    insert.setLong(1, projectId);
+                    insert.setInt(2, shard);
+                    insert.executeUpdate();
+                }
+                main.commit();
+            } catch (SQLException | RuntimeException e) {
+                main.rollback();
+                throw e;
+            } finally {
+                main.setAutoCommit(true);
+            }
+        }
+    }
+
+    private void removeArchivedFromMain(Long projectId) throws SQLException {
+        try (Connection main = mainWritePool.getConnection()) {
+            if (!hasTable(main, "archive", "user_stories") || !hasTable(main, "archive", "tasks")) {
+                return;
+            }
+            main.setAutoCommit(false);
+            try {
+                for (String table : ARCHIVED_TABLES.reversed()) {
+                    delete(main, "archive", table, projectId);
+                }
+                main.commit();
+            } catch (SQLException | RuntimeException e) {
+                main.rollback();
+                throw e;
+            } finally {
+                main.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static long copy(Connection connection, String source, String target, String table, Long projectId,
+                             long idBase) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        List<String> references = REFERENCES.getOrDefault(table, List.of());
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT name FROM pragma_table_info(?, ?) ORDER BY cid")) {
+            query.setString(1, table);
+            query.setString(2, source);
+            try (ResultSet rows = query.executeQuery()) {
+                while (rows.next()) {
+                    String column = rows.getString(1);
+                    columns.add(column);
+                    if (column.equals("id")) {
+                        values.add("id + " + idBase);
+                    } else if (references.contains(column)) {
+                        values.add("CASE WHEN " + column + " > 0 THEN " + column + " + " + idBase
+                                + " ELSE " + column + " END");
+                    } else {
+                        values.add(column);
+                    }
+                }
+            }
+        }
+        if (columns.isEmpty()) {
+            return 0;
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + target + "." + table
+                + " (" + String.join(", ", columns) + ") SELECT " + String.join(", ", values)
+                + " FROM " + source + "." + table + " WHERE " + ofProject(source, table))) {
+            insert.setLong(1, projectId);
+            return insert.executeUpdate();
+        }
+    }
+
+    private static void delete(Connection connection, String schema, String table, Long projectId)
+            throws SQLException {
+        if (!hasTable(connection, schema, table)) {
+            return;
+        }
+        try (PreparedStatement delete = connection.prepareStatement(
+                "DELETE FROM " + schema + "." + table + " WHERE " + ofProject(schema, table))) {
+            delete.setLong(1, projectId);
+            delete.executeUpdate();
+        }
+    }
+
+    // Tasks belong to the project through their story, every other table names it
+    private static String ofProject(String schema, String table) {
+        return table.equals("tasks")
+                ? "user_story_id IN (SELECT id FROM " + schema + ".user_stories WHERE project_id = ?)"
+                : "project_id = ?";
+    }
+
+    private static boolean hasTable(Connection connection, String schema, String table) throws SQLException {
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT 1 FROM pragma_table_list WHERE schema = ? AND name = ?")) {
+            query.setString(1, schema);
+            query.setString(2, table);
+            try (ResultSet rows = query.executeQuery()) {
+                return rows.next();
+            }
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package com.asu.ser515.agiletool.service;
+
+import com.asu.ser515.agiletool.config.ProjectShards;
+import com.asu.ser515.agiletool.models.StoryTextConverter;
+import com.asu.ser515.agiletool.models.UserStory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.hibernate.query.NativeQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps {@code user_stories} small by moving finished work into the attached {@code archive}
+ * database: DONE stories of COMPLETED release plans that have not changed for
+ * {@code archive.min-age-days}, together with their tasks. Archived stories are read back with
+ * {@code includeArchived} and can be moved back with {@link #unarchive(Long)}.
+ *
+ * <p>SQLite does not commit a transaction over several WAL databases atomically, so a batch is
+ * moved in two transactions: the stories are copied first, then deleted from the hot tables only
+ * where the row (and each of its tasks) is still identical to its copy. A crash or a concurrent
+ * edit can leave a story in both places, where readers prefer the hot row and the next run
+ * retries, but never in neither.
+ *
+ * <p>Stories with dependency edges stay hot, as do the stories holding the highest story or task
+ * id: ids are rowids, and SQLite hands the largest one out again once it has left the table.
+ *
+ * <p>Each shard file (see {@link ProjectShards}) has an archive of its own, attached to its
+ * connections as {@code archive} too; runs go through the shards one after the other.
+ */
+@Service
+public class StoryArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(StoryArchiveService.class);
+    private static final String STORIES = "user_stories";
+    private static final String TASKS = "tasks";
+
+    // Archived rows may point at release plans, sprints or users deleted since; those links are dropped on the way back
+    private static final Map<String, String> STORY_REFERENCES = Map.of(
+            "release_plan_id", "release_plans",
+            "sprint_id", "sprints",
+            "created_by_user_id", "users",
+            "assigned_to_user_id", "users");
+    private static final Map<String, String> TASK_REFERENCES = Map.of("assigned_to_user_id", "users");
+
+    private final EntityManager entityManager;
+    private final ProjectShards shards;
+    private final TransactionTemplate writeTx;
+    private final TransactionTemplate readTx;
+    private final ProjectSummaryService summaryService;
+    private final StoryDuplicateService duplicateService;
+    private final EstimateSuggestionService estimateSuggestionService;
+    private final boolean enabled;
+    private final int minAgeDays;
+    private final int batchSize;
+    private final Counter archivedCounter;
+    private final Counter unarchivedCounter;
+    private final Counter failedRuns;
+
+    private List<String> storyColumns;
+    private List<String> taskColumns;
+
+    public StoryArchiveService(EntityManager entityManager,
+                               ProjectShards shards,
+                               PlatformTransactionManager transactionManager,
+                               ProjectSummaryService summaryService,
+                               StoryDuplicateService duplicateService,
+                               EstimateSuggestionService estimateSuggestionService,
+                               MeterRegistry meterRegistry,
+                               @Value("${archive.enabled:true}") boolean enabled,
+                               @Value("${archive.min-age-days:30}") int minAgeDays,
+                               @Value("${archive.batch-size:200}") int batchSize) {
+        this.entityManager = entityManager;
+        this.shards = shards;
+        this.writeTx = new TransactionTemplate(transactionManager);
+        this.readTx = new TransactionTemplate(transactionManager);
+        this.readTx.setReadOnly(true);
+        this.summaryService = summaryService;
+        this.duplicateService = duplicateService;
+        this.estimateSuggestionService = estimateSuggestionService;
+        this.enabled = enabled;
+        this.minAgeDays = minAgeDays;
+        this.batchSize = Math.max(1, batchSize);
+        this.archivedCounter = Counter.builder("stories.archived")
+                .description("Stories moved to the archive database")
+                .register(meterRegistry);
+        this.unarchivedCounter = Counter.builder("stories.unarchived")
+                .description("Stories moved back from the archive database")
+                .register(meterRegistry);
+        this.failedRuns = Counter.builder("stories.archive.failures")
+                .description("Scheduled archive runs that stopped on an error")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The archive tables mirror the hot ones column for column (plus {@code archived_at}); columns
+     * added to the hot tables by later migrations are added here too.
+     */
+    @PostConstruct
+    void prepareArchive() {
+        writeTx.executeWithoutResult(status -> {
+            storyColumns = mirror(STORIES);
+            taskColumns = mirror(TASKS);
+            entityManager.createNativeQuery("CREATE INDEX IF NOT EXISTS archive.idx_archived_stories_project "
+                    + "ON user_stories (project_id)").executeUpdate();
+            entityManager.createNativeQuery("CREATE INDEX IF NOT EXISTS archive.idx_archived_tasks_story "
+                    + "ON tasks (user_story_id)").executeUpdate();
+        });
+    }
+
+    @Scheduled(initialDelayString = "${archive.initial-delay-ms:300000}", fixedDelayString = "${archive.interval-ms:86400000}")
+    public void scheduledArchive() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int archived = archiveCompleted();
+            if (archived > 0) {
+                log.info("Archived {} completed stories", archived);
+            }
+        } catch (RuntimeException e) {
+            // Batches already moved stay archived; the rest are picked up by the next run
+            failedRuns.increment();
+            log.error("Story archiving failed", e);
+        }
+    }
+
+    /** Moves every eligible story in batches of {@code archive.batch-size}; returns how many moved. */
+    public int archiveCompleted() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(minAgeDays);
+        int total = 0;
+        for (int shard : shards.all()) {
+            try (ProjectShards.Scope ignored = shards.useShard(shard)) {
+                total += archiveCompleted(cutoff);
+            }
+        }
+        return total;
+    }
+
+    private int archiveCompleted(LocalDateTime cutoff) {
+        int total = 0;
+        Long afterId = 0L;
+        while (true) {
+            Long from = afterId;
+            List<Long> batch = readTx.execute(status -> candidates(cutoff, from));
+            if (batch == null || batch.isEmpty()) {
+                return total;
+            }
+            total += moveToArchive(batch);
+            afterId = batch.get(batch.size() - 1);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> candidates(LocalDateTime cutoff, Long afterId) {
+        List<Number> ids = entityManager.createNativeQuery("SELECT s.id FROM user_stories s "
+                        + "JOIN release_plans r ON r.id = s.release_plan_id "
+                        + "WHERE r.status = 'COMPLETED' AND s.status = 'DONE' AND s.updated_at < :cutoff AND s.id > :afterId "
+                        + "AND s.id < (SELECT MAX(id) FROM user_stories) "
+                        + "AND NOT EXISTS (SELECT 1 FROM story_dependencies d WHERE d.blocker_story_id = s.id) "
+                        + "AND NOT EXISTS (SELECT 1 FROM story_dependencies d WHERE d.blocked_story_id = s.id) "
+                        + "AND NOT EXISTS (SELECT 1 FROM tasks t WHERE t.user_story_id = s.id "
+                        + "AND t.id = (SELECT MAX(id) FROM tasks)) "
+                        + "ORDER BY s.id LIMIT :limit")
+                .setParameter("cutoff", cutoff)
+                .setParameter("afterId", afterId)
+                .setParameter("limit", batchSize)
+                .getResultList();
+        return ids.stream().map(Number::longValue).toList();
+    }
+
+    private int moveToArchive(List<Long> ids) {
+        LocalDateTime now = LocalDateTime.now();
+        writeTx.executeWithoutResult(status -> {
+            entityManager.createNativeQuery("DELETE FROM archive.tasks WHERE user_story_id IN (:ids)")
+                    .setParameter("ids", ids)
+                    .executeUpdate();
+            entityManager.createNativeQuery("INSERT OR REPLACE INTO archive.user_stories (" + String.join(", ", storyColumns)
+                            + ", archived_at) SELECT " + String.join(", ", storyColumns) + ", :now FROM main.user_stories "
+                            + "WHERE id IN (:ids)")
+                    .setParameter("now", now)
+                    .setParameter("ids", ids)
+                    .executeUpdate();
+            entityManager.createNativeQuery("INSERT OR REPLACE INTO archive.tasks (" + String.join(", ", taskColumns)
+                            + ", archived_at) SELECT " + String.join(", ", taskColumns) + ", :now FROM main.tasks "
+                            + "WHERE user_story_id IN (:ids)")
+                    .setParameter("now", now)
+                    .setParameter("ids", ids)
+                    .executeUpdate();
+        });
+
+        Integer moved = writeTx.execute(status -> {
+            @SuppressWarnings("unchecked")
+            List<Object[]> unchanged = entityManager.createNativeQuery("SELECT s.id, s.project_id FROM main.user_stories s "
+                            + "WHERE s.id IN (:ids) "
+                            + "AND EXISTS (SELECT 1 FROM archive.user_stories a WHERE a.id = s.id AND "
+                            + sameRow(storyColumns, "a", "s") + ") "
+                            + "AND NOT EXISTS (SELECT 1 FROM main.tasks t WHERE t.user_story_id = s.id "
+                            + "AND NOT EXISTS (SELECT 1 FROM archive.tasks x WHERE x.id = t.id AND "
+                            + sameRow(taskColumns, "x", "t") + ")) "
+                            + "AND NOT EXISTS (SELECT 1 FROM story_dependencies d WHERE d.blocker_story_id = s.id) "
+                            + "AND NOT EXISTS (SELECT 1 FROM story_dependencies d WHERE d.blocked_story_id = s.id)")
+                    .setParameter("ids", ids)
+                    .getResultList();
+            List<Long> movable = unchanged.stream().map(row -> ((Number) row[0]).longValue()).toList();
+            Set<Long> stale = new HashSet<>(ids);
+            movable.forEach(stale::remove);
+
+            if (!movable.isEmpty()) {
+                entityManager.createNativeQuery("DELETE FROM main.tasks WHERE user_story_id IN (:ids)")
+                        .setParameter("ids", movable)
+                        .executeUpdate();
+                entityManager.createNativeQuery("DELETE FROM main.user_stories WHERE id IN (:ids)")
+                        .setParameter("ids", movable)
+                        .executeUpdate();
+            }
+            // Changed since the copy was taken: drop the copy, the story is picked up again on a later run
+            if (!stale.isEmpty()) {
+                entityManager.createNativeQuery("DELETE FROM archive.tasks WHERE user_story_id IN (:ids)")
+                        .setParameter("ids", stale)
+                        .executeUpdate();
+                entityManager.createNativeQuery("DELETE FROM archive.user_stories WHERE id IN (:ids)")
+                        .setParameter("ids", stale)
+                        .executeUpdate();
+            }
+            unchanged.stream().map(row -> ((Number) row[1]).longValue()).distinct()
+                    .forEach(projectId -> {
+                        summaryService.projectChanged(projectId);
+                        duplicateService.invalidate(projectId);
+                        estimateSuggestionService.invalidate(projectId);
+                    });
+            return movable.size();
+        });
+        archivedCounter.increment(moved);
+        return moved;
+    }
+
+    /**
+     * Moves an archived story and its tasks back into the hot tables. Links to release plans,
+     * sprints or users that no longer exist are cleared.
+     *
+     * @throws IllegalStateException if the story's id, key or task ids have been taken meanwhile,
+     *                               or its project no longer exists
+     */
+    public UserStory unarchive(Long id) {
+        Long projectId = writeTx.execute(status -> {
+            Object[] archived = first(entityManager.createNativeQuery("SELECT a.project_id, a.story_key, "
+                            + "EXISTS (SELECT 1 FROM main.user_stories s WHERE s.id = a.id) "
+                            + "FROM archive.user_stories a WHERE a.id = :id")
+                    .setParameter("id", id));
+            if (archived == null) {
+                throw new RuntimeException("Archived user story not found with id: " + id);
+            }
+            // A copy whose delete never committed is already hot; only the archive row is left to remove
+            if (((Number) archived[2]).intValue() == 1) {
+                return ((Number) archived[0]).longValue();
+            }
+            if (count("SELECT COUNT(*) FROM projects WHERE id = :value", archived[0]) == 0) {
+                throw new IllegalStateException("Project of archived story " + id + " no longer exists");
+            }
+            if (archived[1] != null && count("SELECT COUNT(*) FROM main.user_stories WHERE story_key = :value", archived[1]) > 0) {
+                throw new IllegalStateException("Story key " + archived[1] + " is in use by another story");
+            }
+            if (count("SELECT COUNT(*) FROM archive.tasks a JOIN main.tasks t ON t.id = a.id "
+                    + "WHERE a.user_story_id = :value", id) > 0) {
+                throw new IllegalStateException("Task ids of archived story " + id + " are in use by other tasks");
+            }
+            entityManager.createNativeQuery("INSERT INTO main.user_stories (" + String.join(", ", storyColumns)
+                            + ") SELECT " + restored(storyColumns, STORY_REFERENCES) + " FROM archive.user_stories a WHERE a.id = :id")
+                    .setParameter("id", id)
+                    .executeUpdate();
+            entityManager.createNativeQuery("INSERT INTO main.tasks (" + String.join(", ", taskColumns)
+                            + ") SELECT " + restored(taskColumns, TASK_REFERENCES) + " FROM archive.tasks a WHERE a.user_story_id = :id")
+                    .setParameter("id", id)
+                    .executeUpdate();
+            return ((Number) archived[0]).longValue();
+        });
+
+        writeTx.executeWithoutResult(status -> {
+            entityManager.createNativeQuery("DELETE FROM archive.tasks WHERE user_story_id = :id")
+                    .setParameter("id", id)
+                    .executeUpdate();
+            entityManager.createNativeQuery("DELETE FROM archive.user_stories WHERE id = :id")
+                    .setParameter("id", id)
+                    .executeUpdate();
+            summaryService.projectChanged(projectId);
+            duplicateService.invalidate(projectId);
+            estimateSuggestionService.invalidate(projectId);
+        });
+        unarchivedCounter.increment();
+        return readTx.execute(status -> entityManager.find(UserStory.class, id));
+    }
+
+    /** Archived stories of a project (or of every project, shard by shard, when null), oldest first. */
+    public List<UserStory> listArchived(Long projectId) {
+        if (projectId == null) {
+            return shards.collect(() -> readTx.execute(status -> findArchived(null, null)));
+        }
+        return readTx.execute(status -> findArchived("a.project_id = :value", projectId));
+    }
+
+    public UserStory getArchived(Long id) {
+        List<UserStory> stories = readTx.execute(status -> findArchived("a.id = :value", id));
+        if (stories == null || stories.isEmpty()) {
+            throw new IllegalArgumentException("User Story not found with id: " + id);
+        }
+        return stories.get(0);
+    }
+
+    /**
+     * {@code [id, createdAt, storyPoints]} of a project's archived stories, for rebuilding
+     * aggregates from the transition log. Joins the caller's transaction.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findArchivedCreatedAt(Long projectId) {
+        return entityManager.createNativeQuery("SELECT a.id, a.created_at, a.story_points FROM archive.user_stories a "
+                        + "WHERE a.project_id = :projectId "
+                        + "AND NOT EXISTS (SELECT 1 FROM main.user_stories s WHERE s.id = a.id)")
+                .setParameter("projectId", projectId)
+                .unwrap(NativeQuery.class)
+                .addScalar("id", Long.class)
+                .addScalar("created_at", LocalDateTime.class)
+                .addScalar("story_points", Integer.class)
+                .getResultList();
+    }
+
+    /**
+     * {@code [id, title, want, soThat, description, acceptanceCriteria, storyPoints]} of a
+     * project's archived estimated stories, text decoded, for the estimate index. Joins the
+     * caller's transaction.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findArchivedEstimatedTexts(Long projectId) {
+        List<Object[]> rows = entityManager.createNativeQuery("SELECT a.id, a.title, a.i_want, a.so_that, "
+                        + "CAST(a.description AS BLOB) AS description, "
+                        + "CAST(a.acceptance_criteria AS BLOB) AS acceptance_criteria, a.story_points "
+                        + "FROM archive.user_stories a "
+                        + "WHERE a.project_id = :projectId AND a.story_points IS NOT NULL "
+                        + "AND NOT EXISTS (SELECT 1 FROM main.user_stories s WHERE s.id = a.id)")
+                .setParameter("projectId", projectId)
+                .unwrap(NativeQuery.class)
+                .addScalar("id", Long.class)
+                .addScalar("title", String.class)
+                .addScalar("i_want", String.class)
+                .addScalar("so_that", String.class)
+                .addScalar("description", byte[].class)
+                .addScalar("acceptance_criteria", byte[].class)
+                .addScalar("story_points", Integer.class)
+                .getResultList();
+        for (Object[] row : rows) {
+            row[4] = row[4] == null ? null : StoryTextConverter.decode((byte[]) row[4]);
+            row[5] = row[5] == null ? null : StoryTextConverter.decode((byte[]) row[5]);
+        }
+        return rows;
+    }
+
+    /** {@code [id, storyKey, title, status]} of the given stories that only exist in the archive. */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findArchivedRefs(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return readTx.execute(status -> entityManager.createNativeQuery("SELECT a.id, a.story_key, a.title, a.status "
+                        + "FROM archive.user_stories a WHERE a.id IN (:ids) "
+                        + "AND NOT EXISTS (SELECT 1 FROM main.user_stories s WHERE s.id = a.id)")
+                .setParameter("ids", ids)
+                .unwrap(NativeQuery.class)
+                .addScalar("id", Long.class)
+                .addScalar("story_key", String.class)
+                .addScalar("title", String.class)
+                .addScalar("status", String.class)
+                .getResultList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<UserStory> findArchived(String filter, Object value) {
+        // Rows whose hot copy still exists are skipped; a session cannot hold two stories with one id
+        Query query = entityManager.createNativeQuery("SELECT " + restored(storyColumns, STORY_REFERENCES)
+                + " FROM archive.user_stories a WHERE " + (filter != null ? filter + " AND " : "")
+                + "EXISTS (SELECT 1 FROM projects p WHERE p.id = a.project_id) "
+                + "AND NOT EXISTS (SELECT 1 FROM main.user_stories s WHERE s.id = a.id) ORDER BY a.id", UserStory.class);
+        if (filter != null) {
+            query.setParameter("value", value);
+        }
+        List<UserStory> stories = query.getResultList();
+        stories.forEach(story -> story.setArchived(true));
+        return stories;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> mirror(String table) {
+        List<Object[]> hot = entityManager.createNativeQuery("SELECT name, type FROM pragma_table_info(:table, 'main') ORDER BY cid")
+                .setParameter("table", table)
+                .getResultList();
+        if (hot.isEmpty()) {
+            throw new IllegalStateException("Table " + table + " does not exist");
+        }
+        Set<String> archived = new HashSet<>(entityManager
+                .createNativeQuery("SELECT name FROM pragma_table_info(:table, 'archive')")
+                .setParameter("table", table)
+                .getResultList());
+        if (archived.isEmpty()) {
+            String columns = hot.stream()
+                    .map(column -> column[0] + " " + ("id".equals(column[0]) ? "integer primary key" : column[1]))
+                    .collect(Collectors.joining(", "));
+            entityManager.createNativeQuery("CREATE TABLE archive." + table + " (" + columns
+                    + ", archived_at timestamp not null)").executeUpdate();
+        } else {
+            for (Object[] column : hot) {
+                if (!archived.contains((String) column[0])) {
+                    entityManager.createNativeQuery("ALTER TABLE archive." + table + " ADD COLUMN "
+                            + column[0] + " " + column[1]).executeUpdate();
+                }
+            }
+        }
+        List<String> names = new ArrayList<>();
+        hot.forEach(column -> names.add((String) column[0]));
+        return names;
+    }
+
+    private static String sameRow(List<String> columns, String left, String right) {
+        return columns.stream()
+                .map(column -> left + "." + column + " IS " + right + "." + column)
+                .collect(Collectors.joining(" AND "));
+    }
+
+    // Unqualified: on a shard, users live in the attached shared database
+    private static String restored(List<String> columns, Map<String, String> references) {
+        return columns.stream()
+                .map(column -> references.containsKey(column)
+                        ? "CASE WHEN EXISTS (SELECT 1 FROM " + references.get(column) + " r WHERE r.id = a." + column
+                                + ") THEN a." + column + " END AS " + column
+                        : "a." + column)
+                .collect(Collectors.joining(", "));
+    }
+
+    private long count(String sql, Object value) {
+        return ((Number) entityManager.createNativeQuery(sql).setParameter("value", value).getSingleResult()).longValue();
+    }
+
+    private static Object[] first(Query query) {
+        List<?> rows = query.getResultList();
+        return rows.isEmpty() ? null : (Object[]) rows.get(0);
+    }
+}
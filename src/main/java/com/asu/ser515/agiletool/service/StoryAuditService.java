@@ -0,0 +1,390 @@
+package com.asu.ser515.agiletool.service;
+
+import com.asu.ser515.agiletool.config.ProjectShards;
+import com.asu.ser515.agiletool.dto.StoryFieldChangeDTO;
+import com.asu.ser515.agiletool.dto.StoryHistoryEntryDTO;
+import com.asu.ser515.agiletool.dto.StoryHistoryPageDTO;
+import com.asu.ser515.agiletool.models.StoryAuditAction;
+import com.asu.ser515.agiletool.models.StoryAuditEntry;
+import com.asu.ser515.agiletool.models.UserStory;
+import com.asu.ser515.agiletool.repository.StoryAuditRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.Hibernate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Field-level change history for user stories. Edits only compute a diff and hand it to an
+ * in-memory queue once their transaction commits; a single background writer drains the queue
+ * and appends the entries in batches, so auditing adds no database work to the edit itself.
+ */
+@Service
+public class StoryAuditService {
+
+    private static final Logger log = LoggerFactory.getLogger(StoryAuditService.class);
+
+    private static final TypeReference<List<StoryFieldChangeDTO>> CHANGE_LIST = new TypeReference<>() {
+    };
+
+    private final StoryAuditRepository auditRepo;
+    private final ProjectShards shards;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<StoryAuditEntry> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final int compressThresholdBytes;
+    private final Counter inlineWrites;
+    private final Counter droppedEntries;
+    private volatile boolean running;
+    private Thread writer;
+
+    public StoryAuditService(StoryAuditRepository auditRepo,
+                             ProjectShards shards,
+                             ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${audit.queue-capacity:10000}") int queueCapacity,
+                             @Value("${audit.batch-size:200}") int batchSize,
+                             @Value("${audit.flush-interval-ms:500}") long flushIntervalMillis,
+                             @Value("${audit.compress-threshold-bytes:512}") int compressThresholdBytes) {
+        this.auditRepo = auditRepo;
+        this.shards = shards;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Inline writes run from afterCommit, where the finished transaction's resources are still bound
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.compressThresholdBytes = compressThresholdBytes;
+
+        Gauge.builder("story.audit.queue.depth", queue, BlockingQueue::size)
+                .description("Story audit entries waiting to be written")
+                .register(meterRegistry);
+        this.inlineWrites = Counter.builder("story.audit.inline.writes")
+                .description("Audit entries written on the caller thread because the queue was full")
+                .register(meterRegistry);
+        this.droppedEntries = Counter.builder("story.audit.dropped")
+                .description("Audit entries lost because their batch failed to write twice")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Auditable fields of a story, keyed by their JSON names.
+     */
+    public static Map<String, Object> snapshot(UserStory story) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("title", story.getTitle());
+        // Text that was never loaded cannot have changed; reading it just for the diff is wasted I/O
+        if (Hibernate.isPropertyInitialized(story, "description")) {
+            fields.put("description", story.getDescription());
+        }
+        if (Hibernate.isPropertyInitialized(story, "acceptanceCriteria")) {
+            fields.put("acceptanceCriteria", story.getAcceptanceCriteria());
+        }
+        fields.put("asA", story.getAsA());
+        fields.put("iWant", story.getIWant());
+        fields.put("soThat", story.getSoThat());
+        fields.put("storyPoints", story.getStoryPoints());
+        fields.put("businessValue", story.getBusinessValue());
+        fields.put("status", story.getStatus());
+        fields.put("priority", story.getPriority());
+        fields.put("isMvp", story.getIsMvp());
+        fields.put("sprintReady", story.getSprintReady());
+        fields.put("isStarred", story.getIsStarred());
+        fields.put("releasePlanId", story.getReleasePlanId());
+        fields.put("sprintId", story.getSprint() != null ? story.getSprint().getId() : null);
+        return fields;
+    }
+
+    public void recordCreated(UserStory story) {
+        record(story, StoryAuditAction.CREATED, Map.of(), snapshot(story));
+    }
+
+    public void recordUpdated(UserStory story, Map<String, Object> before) {
+        record(story, StoryAuditAction.UPDATED, before, snapshot(story));
+    }
+
+    public void recordDeleted(UserStory story) {
+        record(story, StoryAuditAction.DELETED, snapshot(story), Map.of());
+    }
+
+    /**
+     * Diffs the two snapshots and queues an entry once the surrounding transaction commits.
+     * Nothing is recorded when no field changed or the transaction rolls back.
+     */
+    public void record(UserStory story, StoryAuditAction action, Map<String, Object> before, Map<String, Object> after) {
+        record(story.getId(), story.getProject() != null ? story.getProject().getId() : null, action, before, after);
+    }
+
+    /**
+     * Records a story's user reference being handed to another user (or cleared) by a bulk
+     * statement that never loaded the story.
+     */
+    public void recordReassigned(Long storyId, Long projectId, String field, String fromUsername, String toUsername) {
+        Map<String, Object> before = new HashMap<>();
+        before.put(field, fromUsername);
+        Map<String, Object> after = new HashMap<>();
+        after.put(field, toUsername);
+        record(storyId, projectId, StoryAuditAction.UPDATED, before, after);
+    }
+
+    private void record(Long storyId, Long projectId, StoryAuditAction action,
+                        Map<String, Object> before, Map<String, Object> after) {
+        List<StoryFieldChangeDTO> changes = diff(before, after);
+        if (changes.isEmpty() && action == StoryAuditAction.UPDATED) {
+            return;
+        }
+
+        StoryAuditEntry entry = new StoryAuditEntry();
+        entry.setStoryId(storyId);
+        entry.setProjectId(projectId);
+        entry.setAction(action);
+        entry.setChangedBy(currentUsername());
+        entry.setChangedAt(LocalDateTime.now());
+        encode(entry, changes);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(entry);
+                }
+            });
+        } else {
+            enqueue(entry);
+        }
+    }
+
+    public StoryHistoryPageDTO history(Long storyId, Long before, int size) {
+        int pageSize = Math.max(1, Math.min(size, 200));
+        List<StoryAuditEntry> rows = before == null
+                ? auditRepo.findByStoryIdOrderByIdDesc(storyId, Limit.of(pageSize))
+                : auditRepo.findByStoryIdAndIdLessThanOrderByIdDesc(storyId, before, Limit.of(pageSize));
+
+        List<StoryHistoryEntryDTO> entries = new ArrayList<>(rows.size());
+        for (StoryAuditEntry row : rows) {
+            entries.add(new StoryHistoryEntryDTO(row.getId(), row.getAction(), row.getChangedBy(),
+                    row.getChangedAt(), decode(row)));
+        }
+        Long nextBefore = rows.size() == pageSize ? rows.get(rows.size() - 1).getId() : null;
+        return new StoryHistoryPageDTO(storyId, entries, nextBefore);
+    }
+
+    /**
+     * Writes everything currently queued; used on shutdown.
+     */
+    public void flush() {
+        List<StoryAuditEntry> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        writer = new Thread(this::drainLoop, "story-audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        flush();
+    }
+
+    private void drainLoop() {
+        List<StoryAuditEntry> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                StoryAuditEntry first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                byShard(batch).forEach((shard, entries) -> {
+                    try {
+                        write(shard, entries);
+                    } catch (RuntimeException e) {
+                        // Keep the writer alive; the failed batch is retried once inline before being dropped
+                        log.warn("Failed to write a batch of {} story audit entries, retrying once", entries.size(), e);
+                        retryOnce(shard, entries);
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void enqueue(StoryAuditEntry entry) {
+        if (!queue.offer(entry)) {
+            // Back-pressure instead of losing history when the writer cannot keep up
+            inlineWrites.increment();
+            write(List.of(entry));
+        }
+    }
+
+    // No lock of its own: the serialized writer already orders these against every other write,
+    // and an inline write from afterCommit must not wait on the drain thread while holding it
+    private void write(List<StoryAuditEntry> batch) {
+        byShard(batch).forEach(this::write);
+    }
+
+    private void write(int shard, List<StoryAuditEntry> entries) {
+        try (ProjectShards.Scope ignored = shards.useShard(shard)) {
+            transactionTemplate.executeWithoutResult(status -> auditRepo.saveAll(entries));
+        }
+    }
+
+    // Each entry goes to the database of its story's project, one transaction per shard
+    private Map<Integer, List<StoryAuditEntry>> byShard(List<StoryAuditEntry> batch) {
+        Map<Integer, List<StoryAuditEntry>> byShard = new TreeMap<>();
+        for (StoryAuditEntry entry : batch) {
+            int shard = shards.shardOfId(entry.getStoryId());
+            if (entry.getProjectId() != null && shards.shardOf(entry.getProjectId()) != shard) {
+                // Queued before its project moved out of main: the story has the same id in the shard's range
+                shard = shards.shardOf(entry.getProjectId());
+                entry.setStoryId(ProjectShards.idBase(shard) + ProjectShards.localId(entry.getStoryId()));
+            }
+            byShard.computeIfAbsent(shard, s -> new ArrayList<>()).add(entry);
+        }
+        return byShard;
+    }
+
+    private void retryOnce(int shard, List<StoryAuditEntry> batch) {
+        try {
+            batch.forEach(e -> e.setId(null));
+            write(shard, batch);
+        } catch (RuntimeException e) {
+            droppedEntries.increment(batch.size());
+            log.error("Dropping {} story audit entries after a failed retry", batch.size(), e);
+        }
+    }
+
+    private static List<StoryFieldChangeDTO> diff(Map<String, Object> before, Map<String, Object> after) {
+        List<StoryFieldChangeDTO> changes = new ArrayList<>();
+        LinkedHashMap<String, Object> keys = new LinkedHashMap<>(before);
+        keys.putAll(after);
+        for (String field : keys.keySet()) {
+            Object oldValue = before.get(field);
+            Object newValue = after.get(field);
+            if (!Objects.equals(oldValue, newValue)) {
+                changes.add(new StoryFieldChangeDTO(field, oldValue, newValue));
+            }
+        }
+        return changes;
+    }
+
+    private void encode(StoryAuditEntry entry, List<StoryFieldChangeDTO> changes) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(changes);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialise story changes", e);
+        }
+        if (json.length >= compressThresholdBytes) {
+            entry.setDiff(deflate(json));
+            entry.setCompressed(true);
+        } else {
+            entry.setDiff(json);
+            entry.setCompressed(false);
+        }
+    }
+
+    private List<StoryFieldChangeDTO> decode(StoryAuditEntry entry) {
+        byte[] json = Boolean.TRUE.equals(entry.getCompressed()) ? inflate(entry.getDiff()) : entry.getDiff();
+        try {
+            return objectMapper.readValue(json, CHANGE_LIST);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt story audit entry " + entry.getId(), e);
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 3);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && inflater.needsInput()) {
+                    break;
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed story audit entry", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static String currentUsername() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null ? auth.getName() : null;
+    }
+}
@@ -0,0 +1,408 @@
+package com.asu.ser515.agiletool.service;
+
+import com.asu.ser515.agiletool.dto.CriticalPathDTO;
+import com.asu.ser515.agiletool.dto.StoryDependenciesDTO;
+import com.asu.ser515.agiletool.dto.StoryRefDTO;
+import com.asu.ser515.agiletool.models.ReleasePlan;
+import com.asu.ser515.agiletool.models.StoryDependency;
+import com.asu.ser515.agiletool.models.StoryStatus;
+import com.asu.ser515.agiletool.models.UserStory;
+import com.asu.ser515.agiletool.repository.ReleasePlanRepository;
+import com.asu.ser515.agiletool.repository.StoryDependencyRepository;
+import com.asu.ser515.agiletool.repository.UserStoryRepository;
+import com.asu.ser515.agiletool.repository.UserStoryRepository.StoryRefView;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Blocks / blocked-by relationships between stories. Each project's graph is loaded into memory
+ * on first use and then kept in step with every change, so cycle checks, topological ordering and
+ * critical-path queries never re-read the dependency table.
+ */
+@Service
+public class StoryDependencyService {
+
+    private final StoryDependencyRepository dependencyRepo;
+    private final UserStoryRepository storyRepo;
+    private final ReleasePlanRepository releasePlanRepo;
+    private final Map<Long, ProjectGraph> graphs = new ConcurrentHashMap<>();
+
+    public StoryDependencyService(StoryDependencyRepository dependencyRepo,
+                                  UserStoryRepository storyRepo,
+                                  ReleasePlanRepository releasePlanRepo) {
+        this.dependencyRepo = dependencyRepo;
+        this.storyRepo = storyRepo;
+        this.releasePlanRepo = releasePlanRepo;
+    }
+
+    @Transactional(readOnly = true)
+    public StoryDependenciesDTO getDependencies(Long storyId) {
+        StoryRefView story = storyRef(storyId);
+        ProjectGraph graph = graph(story.getProjectId());
+
+        Set<Long> blockedBy;
+        Set<Long> blocks;
+        graph.lock.readLock().lock();
+        try {
+            blockedBy = new LinkedHashSet<>(graph.predecessors(storyId));
+            blocks = new LinkedHashSet<>(graph.successors(storyId));
+        } finally {
+            graph.lock.readLock().unlock();
+        }
+
+        Map<Long, StoryRefDTO> refs = loadRefs(union(blockedBy, blocks));
+        return new StoryDependenciesDTO(storyId, pick(refs, blockedBy), pick(refs, blocks));
+    }
+
+    /**
+     * Records that {@code blockerId} must be finished before {@code blockedId}. Rejected when it
+     * would close a cycle; the check walks only what is reachable from the blocked story.
+     */
+    @Transactional
+    public StoryDependenciesDTO addDependency(Long blockerId, Long blockedId) {
+        if (blockerId == null || blockedId == null) {
+            throw new IllegalArgumentException("Both stories are required");
+        }
+        if (blockerId.equals(blockedId)) {
+            throw new IllegalArgumentException("A story cannot depend on itself");
+        }
+
+        UserStory blocker = storyRepo.findById(blockerId)
+                .orElseThrow(() -> new IllegalArgumentException("User Story not found with id: " + blockerId));
+        UserStory blocked = storyRepo.findById(blockedId)
+                .orElseThrow(() -> new IllegalArgumentException("User Story not found with id: " + blockedId));
+        Long projectId = blocker.getProject().getId();
+        if (!projectId.equals(blocked.getProject().getId())) {
+            throw new IllegalArgumentException("Dependent stories must belong to the same project");
+        }
+
+        ProjectGraph graph = graph(projectId);
+        graph.lock.writeLock().lock();
+        try {
+            if (graph.successors(blockerId).contains(blockedId)) {
+                throw new IllegalArgumentException("Story " + blockerId + " already blocks story " + blockedId);
+            }
+            List<Long> path = graph.path(blockedId, blockerId);
+            if (path != null) {
+                throw new IllegalArgumentException("Dependency would create a cycle: "
+                        + path.stream().map(String::valueOf).collect(Collectors.joining(" -> "))
+                        + " -> " + blockedId);
+            }
+            // Apply to the index immediately so concurrent inserts see this edge; undone on rollback
+            graph.addEdge(blockerId, blockedId);
+        } finally {
+            graph.lock.writeLock().unlock();
+        }
+        afterCompletion(committed -> {
+            if (!committed) {
+                graph.withWriteLock(() -> graph.removeEdge(blockerId, blockedId));
+            }
+        });
+
+        StoryDependency dependency = new StoryDependency();
+        dependency.setProject(blocker.getProject());
+        dependency.setBlocker(blocker);
+        dependency.setBlocked(blocked);
+        dependencyRepo.save(dependency);
+
+        return getDependencies(blockedId);
+    }
+
+    @Transactional
+    public StoryDependenciesDTO removeDependency(Long storyId, Long otherStoryId) {
+        StoryRefView story = storyRef(storyId);
+        boolean removedIncoming = dependencyRepo.deleteEdge(otherStoryId, storyId) > 0;
+        boolean removedOutgoing = dependencyRepo.deleteEdge(storyId, otherStoryId) > 0;
+        if (!removedIncoming && !removedOutgoing) {
+            throw new IllegalArgumentException("No dependency between stories " + storyId + " and " + otherStoryId);
+        }
+        // Until commit the edge stays in the index, so cycle checks stay safe if this rolls back
+        ProjectGraph graph = graph(story.getProjectId());
+        afterCompletion(committed -> {
+            if (committed) {
+                graph.withWriteLock(() -> {
+                    graph.removeEdge(otherStoryId, storyId);
+                    graph.removeEdge(storyId, otherStoryId);
+                });
+            }
+        });
+
+        StoryDependenciesDTO current = getDependencies(storyId);
+        return new StoryDependenciesDTO(storyId, without(current.getBlockedBy(), otherStoryId),
+                without(current.getBlocks(), otherStoryId));
+    }
+
+    /**
+     * Drops every edge touching the story; called before the story itself is deleted.
+     */
+    @Transactional
+    public void removeStory(Long storyId, Long projectId) {
+        dependencyRepo.deleteAllForStory(storyId);
+        ProjectGraph graph = graphs.get(projectId);
+        if (graph != null) {
+            afterCompletion(committed -> {
+                if (committed) {
+                    graph.withWriteLock(() -> graph.removeNode(storyId));
+                }
+            });
+        }
+    }
+
+    /**
+     * Longest chain of remaining work inside a release, weighted by story points, plus a
+     * dependency-respecting order of all of its stories. Runs in O(V + E) over the release.
+     */
+    @Transactional(readOnly = true)
+    public CriticalPathDTO criticalPath(Long releasePlanId) {
+        ReleasePlan plan = releasePlanRepo.findById(releasePlanId)
+                .orElseThrow(() -> new IllegalArgumentException("Release plan not found with id: " + releasePlanId));
+        Map<Long, StoryRefDTO> stories = storyRepo.findRefsByReleasePlanId(releasePlanId).stream()
+                .collect(Collectors.toMap(StoryRefView::getId, StoryDependencyService::toRef));
+        ProjectGraph graph = graph(plan.getProject().getId());
+
+        Map<Long, Integer> inDegree = new HashMap<>();
+        Map<Long, List<Long>> internalSuccessors = new HashMap<>();
+        Set<Long> external = new LinkedHashSet<>();
+        graph.lock.readLock().lock();
+        try {
+            for (Long id : stories.keySet()) {
+                inDegree.putIfAbsent(id, 0);
+                for (Long next : graph.successors(id)) {
+                    if (stories.containsKey(next)) {
+                        internalSuccessors.computeIfAbsent(id, k -> new ArrayList<>()).add(next);
+                        inDegree.merge(next, 1, Integer::sum);
+                    }
+                }
+                for (Long prev : graph.predecessors(id)) {
+                    if (!stories.containsKey(prev)) {
+                        external.add(prev);
+                    }
+                }
+            }
+        } finally {
+            graph.lock.readLock().unlock();
+        }
+
+        // Kahn's algorithm, carrying the heaviest chain ending at each node along the way
+        Deque<Long> ready = new ArrayDeque<>();
+        inDegree.forEach((id, degree) -> {
+            if (degree == 0) {
+                ready.add(id);
+            }
+        });
+        Map<Long, Integer> chainPoints = new HashMap<>();
+        Map<Long, Long> chainParent = new HashMap<>();
+        List<Long> order = new ArrayList<>(stories.size());
+        Long heaviest = null;
+        while (!ready.isEmpty()) {
+            Long id = ready.poll();
+            order.add(id);
+            int points = chainPoints.getOrDefault(id, 0) + remainingPoints(stories.get(id));
+            chainPoints.put(id, points);
+            if (heaviest == null || points > chainPoints.get(heaviest)) {
+                heaviest = id;
+            }
+            for (Long next : internalSuccessors.getOrDefault(id, List.of())) {
+                if (points > chainPoints.getOrDefault(next, -1)) {
+                    chainPoints.put(next, points);
+                    chainParent.put(next, id);
+                }
+                if (inDegree.merge(next, -1, Integer::sum) == 0) {
+                    ready.add(next);
+                }
+            }
+        }
+        if (order.size() != stories.size()) {
+            throw new IllegalStateException("Dependency cycle detected in release plan " + releasePlanId);
+        }
+
+        List<Long> path = new ArrayList<>();
+        for (Long id = heaviest; id != null; id = chainParent.get(id)) {
+            path.add(id);
+        }
+        Collections.reverse(path);
+
+        List<StoryRefDTO> blockers = loadRefs(external).values().stream()
+                .filter(ref -> ref.getStatus() != StoryStatus.DONE)
+                .toList();
+
+        return new CriticalPathDTO(releasePlanId,
+                heaviest == null ? 0 : chainPoints.get(heaviest),
+                pick(stories, path),
+                pick(stories, order),
+                blockers);
+    }
+
+    /**
+     * Forgets a project's in-memory graph; it is rebuilt from the table on next use.
+     */
+    public void invalidate(Long projectId) {
+        graphs.remove(projectId);
+    }
+
+    private ProjectGraph graph(Long projectId) {
+        return graphs.computeIfAbsent(projectId, id -> {
+            ProjectGraph graph = new ProjectGraph();
+            for (StoryDependencyRepository.EdgeView edge : dependencyRepo.findEdgesByProjectId(id)) {
+                graph.addEdge(edge.getBlockerId(), edge.getBlockedId());
+            }
+            return graph;
+        });
+    }
+
+    private StoryRefView storyRef(Long storyId) {
+        List<StoryRefView> refs = storyRepo.findRefsByIdIn(List.of(storyId));
+        if (refs.isEmpty()) {
+            throw new IllegalArgumentException("User Story not found with id: " + storyId);
+        }
+        return refs.get(0);
+    }
+
+    private Map<Long, StoryRefDTO> loadRefs(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return storyRepo.findRefsByIdIn(ids).stream()
+                .collect(Collectors.toMap(StoryRefView::getId, StoryDependencyService::toRef));
+    }
+
+    private static StoryRefDTO toRef(StoryRefView view) {
+        return new StoryRefDTO(view.getId(), view.getStoryKey(), view.getTitle(), view.getStatus(), view.getStoryPoints());
+    }
+
+    private static int remainingPoints(StoryRefDTO story) {
+        if (story.getStatus() == StoryStatus.DONE || story.getStoryPoints() == null) {
+            return 0;
+        }
+        return story.getStoryPoints();
+    }
+
+    private static List<StoryRefDTO> pick(Map<Long, StoryRefDTO> refs, Collection<Long> ids) {
+        return ids.stream().map(refs::get).filter(Objects::nonNull).toList();
+    }
+
+    private static List<StoryRefDTO> without(List<StoryRefDTO> refs, Long id) {
+        return refs.stream().filter(ref -> !ref.getId().equals(id)).toList();
+    }
+
+    private static Set<Long> union(Set<Long> a, Set<Long> b) {
+        Set<Long> all = new HashSet<>(a);
+        all.addAll(b);
+        return all;
+    }
+
+    private static void afterCompletion(Consumer<Boolean> callback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            callback.accept(true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                callback.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    static final class ProjectGraph {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<Long, Set<Long>> successors = new HashMap<>();
+        private final Map<Long, Set<Long>> predecessors = new HashMap<>();
+
+        Set<Long> successors(Long id) {
+            return successors.getOrDefault(id, Set.of());
+        }
+
+        Set<Long> predecessors(Long id) {
+            return predecessors.getOrDefault(id, Set.of());
+        }
+
+        void addEdge(Long from, Long to) {
+            successors.computeIfAbsent(from, k -> new LinkedHashSet<>()).add(to);
+            predecessors.computeIfAbsent(to, k -> new LinkedHashSet<>()).add(from);
+        }
+
+        void removeEdge(Long from, Long to) {
+            removeFrom(successors, from, to);
+            removeFrom(predecessors, to, from);
+        }
+
+        void removeNode(Long id) {
+            for (Long next : successors.getOrDefault(id, Set.of())) {
+                removeFrom(predecessors, next, id);
+            }
+            for (Long prev : predecessors.getOrDefault(id, Set.of())) {
+                removeFrom(successors, prev, id);
+            }
+            successors.remove(id);
+            predecessors.remove(id);
+        }
+
+        /**
+         * Iterative DFS along successor edges; returns the node path from {@code from} to
+         * {@code to}, or null when {@code to} is unreachable.
+         */
+        List<Long> path(Long from, Long to) {
+            Map<Long, Long> parent = new HashMap<>();
+            Deque<Long> stack = new ArrayDeque<>();
+            parent.put(from, null);
+            stack.push(from);
+            while (!stack.isEmpty()) {
+                Long current = stack.pop();
+                if (current.equals(to)) {
+                    List<Long> path = new ArrayList<>();
+                    for (Long id = current; id != null; id = parent.get(id)) {
+                        path.add(id);
+                    }
+                    Collections.reverse(path);
+                    return path;
+                }
+                for (Long next : successors(current)) {
+                    if (!parent.containsKey(next)) {
+                        parent.put(next, current);
+                        stack.push(next);
+                    }
+                }
+            }
+            return null;
+        }
+
+        void withWriteLock(Runnable action) {
+            lock.writeLock().lock();
+            try {
+                action.run();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private static void removeFrom(Map<Long, Set<Long>> index, Long key, Long value) {
+            Set<Long> set = index.get(key);
+            if (set != null) {
+                set.remove(value);
+                if (set.isEmpty()) {
+                    index.remove(key);
+                }
+            }
+        }
+    }
+}
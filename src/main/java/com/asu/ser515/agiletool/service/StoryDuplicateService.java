@@ -0,0 +1,128 @@
+package com.asu.ser515.agiletool.service;
+
+import com.asu.ser515.agiletool.dto.SimilarStoryDTO;
+import com.asu.ser515.agiletool.models.UserStory;
+import com.asu.ser515.agiletool.repository.UserStoryRepository;
+import com.asu.ser515.agiletool.repository.UserStoryRepository.StoryRefView;
+import com.asu.ser515.agiletool.repository.UserStoryRepository.StoryTextView;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Possible duplicates of a story, by MinHash similarity of its title, I want / so that and
+ * description. Each project's index is built on first use and then kept in step with story
+ * creates, text edits and deletes, so a lookup only touches the stories sharing an LSH bucket.
+ */
+@Service
+public class StoryDuplicateService {
+
+    private final UserStoryRepository storyRepo;
+    private final ProjectIndexes<MinHashIndex> indexes;
+    private final double minSimilarity;
+    private final int maxResults;
+    private final Timer lookupTimer;
+
+    public StoryDuplicateService(UserStoryRepository storyRepo,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${duplicates.min-similarity:0.5}") double minSimilarity,
+                                 @Value("${duplicates.max-results:5}") int maxResults) {
+        this.storyRepo = storyRepo;
+        this.indexes = new ProjectIndexes<>(transactionManager, this::build, index -> index.lock);
+        this.minSimilarity = minSimilarity;
+        this.maxResults = maxResults;
+        this.lookupTimer = Timer.builder("stories.duplicates.lookup")
+                .description("Time to find possible duplicates of a story")
+                .register(meterRegistry);
+    }
+
+    // No surrounding transaction: a first lookup builds the index from its own snapshot
+    public List<SimilarStoryDTO> findSimilar(Long storyId) {
+        List<StoryRefView> refs = storyRepo.findRefsByIdIn(List.of(storyId));
+        if (refs.isEmpty()) {
+            throw new IllegalArgumentException("User Story not found with id: " + storyId);
+        }
+        long started = System.nanoTime();
+        MinHashIndex index = indexes.getOrBuild(refs.get(0).getProjectId());
+        List<MinHashIndex.Match> matches;
+        index.lock.readLock().lock();
+        try {
+            int[] signature = index.signatureOf(storyId);
+            matches = signature == null ? List.of() : index.query(signature, storyId, minSimilarity, maxResults);
+        } finally {
+            index.lock.readLock().unlock();
+        }
+        lookupTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        if (matches.isEmpty()) {
+            return List.of();
+        }
+
+        // Stories archived or deleted since they were indexed have no ref and are dropped here
+        Map<Long, StoryRefView> similar = storyRepo.findRefsByIdIn(
+                        matches.stream().map(MinHashIndex.Match::id).toList()).stream()
+                .collect(Collectors.toMap(StoryRefView::getId, Function.identity()));
+        return matches.stream()
+                .filter(match -> similar.containsKey(match.id()))
+                .map(match -> {
+                    StoryRefView ref = similar.get(match.id());
+                    return new SimilarStoryDTO(ref.getId(), ref.getStoryKey(), ref.getTitle(), ref.getStatus(),
+                            ref.getStoryPoints(), match.similarity());
+                })
+                .toList();
+    }
+
+    /**
+     * Re-indexes a created or edited story once its transaction commits. Its text must be loaded.
+     */
+    public void storyChanged(UserStory story) {
+        Long projectId = story.getProject().getId();
+        Long storyId = story.getId();
+        int[] signature = MinHashIndex.signature(
+                story.getTitle(), story.getIWant(), story.getSoThat(), story.getDescription());
+        afterCommit(() -> indexes.update(projectId, index -> index.put(storyId, signature)));
+    }
+
+    public void storyRemoved(Long storyId, Long projectId) {
+        afterCommit(() -> indexes.update(projectId, index -> index.remove(storyId)));
+    }
+
+    /**
+     * Forgets a project's index; it is rebuilt from the table on next use.
+     */
+    public void invalidate(Long projectId) {
+        indexes.invalidate(projectId);
+    }
+
+    private MinHashIndex build(Long projectId) {
+        MinHashIndex index = new MinHashIndex();
+        for (StoryTextView story : storyRepo.findTextsByProjectId(projectId)) {
+            index.put(story.getId(), MinHashIndex.signature(
+                    story.getTitle(), story.getWant(), story.getSoThat(), story.getDescription()));
+        }
+        return index;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
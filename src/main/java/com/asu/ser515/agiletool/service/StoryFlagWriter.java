@@ -0,0 +1,399 @@
+package com.asu.ser515.agiletool.service;
+
+import com.asu.ser515.agiletool.config.ProjectShards;
+import com.asu.ser515.agiletool.dto.StoryPatchDTO;
+import com.asu.ser515.agiletool.models.UserStory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Coalesces star, sprint-ready and MVP toggles. Changes collect in a per-story map and a single
+ * writer applies them through {@link UserStoryService#bulkUpdate} once the oldest change is
+ * {@code flush-interval-ms} old or {@code max-batch} stories are pending, so a burst of clicks
+ * costs one short write transaction instead of one per click. Pending values are overlaid on
+ * stories read through {@link #overlay}, so clients see their own changes before the flush.
+ * Conditional (If-Match) toggles always write directly, since their version check needs
+ * committed state.
+ */
+@Service
+public class StoryFlagWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(StoryFlagWriter.class);
+
+    public enum Flag {
+        STARRED, SPRINT_READY, MVP
+    }
+
+    /**
+     * COALESCED waits for the commit before answering; WRITE_BEHIND answers once the change is
+     * queued and writes pending changes on shutdown, but a crash loses up to one flush interval.
+     */
+    public enum Mode {
+        SYNC, COALESCED, WRITE_BEHIND;
+
+        static Mode parse(String value) {
+            return Mode.valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    /**
+     * The story after the toggle; {@code committed} is false when the change is still queued.
+     */
+    public record Result(UserStory story, boolean committed) {
+    }
+
+    private static final class Pending {
+        private final Map<Flag, Boolean> values = new EnumMap<>(Flag.class);
+        // Per flag, so coalescing changes from several users keeps each change's author in the audit log
+        private final Map<Flag, Authentication> authors = new EnumMap<>(Flag.class);
+        private final List<CompletableFuture<Void>> waiters = new ArrayList<>();
+    }
+
+    // bulkUpdate accepts at most 2000 patches per call
+    private static final int PATCHES_PER_TRANSACTION = 500;
+
+    private final UserStoryService userStoryService;
+    private final ProjectShards shards;
+    private final Mode mode;
+    private final long flushIntervalMillis;
+    private final int maxBatch;
+    private final int maxPending;
+    private final long commitTimeoutMillis;
+    private final Counter changes;
+    private final Counter failures;
+    private final DistributionSummary batchSizes;
+    private final Object lock = new Object();
+    private Map<Long, Pending> pending = new LinkedHashMap<>();
+    // The batch being written; still overlaid so reads never fall back to the old value mid-flush
+    private Map<Long, Pending> inFlight = Map.of();
+    private long oldestPendingAt;
+    private volatile boolean running;
+    private Thread writer;
+
+    public StoryFlagWriter(UserStoryService userStoryService,
+                           ProjectShards shards,
+                           MeterRegistry meterRegistry,
+                           @Value("${stories.flag-writes.mode:coalesced}") String mode,
+                           @Value("${stories.flag-writes.flush-interval-ms:25}") long flushIntervalMillis,
+                           @Value("${stories.flag-writes.max-batch:200}") int maxBatch,
+                           @Value("${stories.flag-writes.max-pending:10000}") int maxPending,
+                           @Value("${stories.flag-writes.commit-timeout-ms:10000}") long commitTimeoutMillis) {
+        this.userStoryService = userStoryService;
+        this.shards = shards;
+        this.mode = Mode.parse(mode);
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxBatch = maxBatch;
+        this.maxPending = maxPending;
+        this.commitTimeoutMillis = commitTimeoutMillis;
+
+        Gauge.builder("story.flag.writes.pending", this, w -> w.pendingCount())
+                .description("Stories with flag changes waiting to be written")
+                .register(meterRegistry);
+        this.changes = Counter.builder("story.flag.writes.changes")
+                .description("Flag changes accepted for coalesced writing")
+                .register(meterRegistry);
+        this.failures = Counter.builder("story.flag.writes.failed")
+                .description("Stories whose queued flag changes could not be written")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("story.flag.writes.batch.size")
+                .description("Stories written per flush")
+                .register(meterRegistry);
+    }
+
+    public Result write(Long storyId, Flag flag, boolean value, Long expectedVersion) {
+        if (mode == Mode.SYNC || expectedVersion != null) {
+            return new Result(writeNow(storyId, flag, value, expectedVersion), true);
+        }
+
+        // Fail fast on unknown stories instead of at flush time
+        UserStory story = userStoryService.getStoryById(storyId);
+        CompletableFuture<Void> committed = mode == Mode.COALESCED ? new CompletableFuture<>() : null;
+        if (!enqueue(storyId, flag, value, committed)) {
+            // Back-pressure: the writer is behind, so this caller pays for its own transaction
+            return new Result(writeNow(storyId, flag, value, null), true);
+        }
+
+        if (committed == null) {
+            return new Result(overlay(List.of(story)).get(0), false);
+        }
+        awaitCommit(committed);
+        return new Result(userStoryService.getStoryById(storyId), true);
+    }
+
+    /**
+     * Applies queued but unwritten flag values to stories that were just read, in place.
+     */
+    public List<UserStory> overlay(List<UserStory> stories) {
+        synchronized (lock) {
+            if (pending.isEmpty() && inFlight.isEmpty()) {
+                return stories;
+            }
+            for (UserStory story : stories) {
+                for (Map<Long, Pending> changes : List.of(inFlight, pending)) {
+                    Pending p = changes.get(story.getId());
+                    if (p != null) {
+                        p.values.forEach((flag, value) -> set(story, flag, value));
+                    }
+                }
+            }
+        }
+        return stories;
+    }
+
+    /** Writes everything queued so far on the caller's thread; used before a project changes database. */
+    public void flushNow() {
+        Map<Long, Pending> batch;
+        synchronized (lock) {
+            batch = takePending();
+        }
+        flush(batch);
+    }
+
+    @PostConstruct
+    void start() {
+        if (mode == Mode.SYNC) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::flushLoop, "story-flag-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        Map<Long, Pending> remaining;
+        synchronized (lock) {
+            remaining = takePending();
+        }
+        flush(remaining);
+    }
+
+    private boolean enqueue(Long storyId, Flag flag, boolean value, CompletableFuture<Void> committed) {
+        Authentication author = SecurityContextHolder.getContext().getAuthentication();
+        synchronized (lock) {
+            Pending p = pending.get(storyId);
+            if (p == null) {
+                if (pending.size() >= maxPending) {
+                    return false;
+                }
+                if (pending.isEmpty()) {
+                    oldestPendingAt = System.currentTimeMillis();
+                }
+                p = new Pending();
+                pending.put(storyId, p);
+            }
+            p.values.put(flag, value);
+            p.authors.put(flag, author);
+            if (committed != null) {
+                p.waiters.add(committed);
+            }
+            changes.increment();
+            if (pending.size() == 1 || pending.size() >= maxBatch) {
+                lock.notifyAll();
+            }
+        }
+        return true;
+    }
+
+    private void flushLoop() {
+        while (running) {
+            Map<Long, Pending> batch;
+            synchronized (lock) {
+                try {
+                    while (running && pending.isEmpty()) {
+                        lock.wait();
+                    }
+                    long deadline = oldestPendingAt + flushIntervalMillis;
+                    long now = System.currentTimeMillis();
+                    while (running && pending.size() < maxBatch && now < deadline) {
+                        lock.wait(deadline - now);
+                        now = System.currentTimeMillis();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                batch = takePending();
+            }
+            try {
+                flush(batch);
+            } catch (RuntimeException e) {
+                // Keep the writer alive; an error outside the per-story handling fails the whole batch
+                failures.increment(batch.size());
+                batch.values().forEach(p -> p.waiters.forEach(waiter -> waiter.completeExceptionally(e)));
+                log.error("Failed to write flag changes for {} stories", batch.size(), e);
+            }
+        }
+    }
+
+    private Map<Long, Pending> takePending() {
+        Map<Long, Pending> batch = pending;
+        pending = new LinkedHashMap<>();
+        inFlight = batch;
+        return batch;
+    }
+
+    private void flush(Map<Long, Pending> batch) {
+        try {
+            write(batch);
+        } finally {
+            synchronized (lock) {
+                inFlight = Map.of();
+            }
+        }
+    }
+
+    private void write(Map<Long, Pending> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        batchSizes.record(batch.size());
+
+        // One set of patches per author so audit entries name the user who made each change
+        Map<String, Map<Long, StoryPatchDTO>> patchesByAuthor = new LinkedHashMap<>();
+        Map<String, Authentication> authors = new HashMap<>();
+        batch.forEach((storyId, p) -> p.values.forEach((flag, value) -> {
+            Authentication author = p.authors.get(flag);
+            String name = author != null ? author.getName() : null;
+            authors.putIfAbsent(name, author);
+            StoryPatchDTO patch = patchesByAuthor.computeIfAbsent(name, k -> new LinkedHashMap<>())
+                    .computeIfAbsent(storyId, id -> {
+                        StoryPatchDTO created = new StoryPatchDTO();
+                        created.setId(id);
+                        return created;
+                    });
+            switch (flag) {
+                case STARRED -> patch.setStarred(value);
+                case SPRINT_READY -> patch.setSprintReady(value);
+                case MVP -> patch.setMvp(value);
+            }
+        }));
+
+        Map<Long, RuntimeException> failed = new HashMap<>();
+        patchesByAuthor.forEach((name, patches) -> {
+            // A transaction only reaches the database of one shard
+            Map<Integer, List<StoryPatchDTO>> byShard = new TreeMap<>();
+            patches.values().forEach(patch ->
+                    byShard.computeIfAbsent(shards.shardOfId(patch.getId()), s -> new ArrayList<>()).add(patch));
+            byShard.forEach((shard, all) -> {
+                try (ProjectShards.Scope ignored = shards.useShard(shard)) {
+                    for (int from = 0; from < all.size(); from += PATCHES_PER_TRANSACTION) {
+                        List<StoryPatchDTO> chunk = all.subList(from, Math.min(from + PATCHES_PER_TRANSACTION, all.size()));
+                        applyAs(authors.get(name), chunk, failed);
+                    }
+                }
+            });
+        });
+
+        batch.forEach((storyId, p) -> {
+            RuntimeException error = failed.get(storyId);
+            for (CompletableFuture<Void> waiter : p.waiters) {
+                if (error != null) {
+                    waiter.completeExceptionally(error);
+                } else {
+                    waiter.complete(null);
+                }
+            }
+        });
+        if (!failed.isEmpty()) {
+            failures.increment(failed.size());
+            log.warn("Could not write flag changes for stories {}", failed.keySet(),
+                    failed.values().iterator().next());
+        }
+    }
+
+    private void applyAs(Authentication author, List<StoryPatchDTO> patches, Map<Long, RuntimeException> failed) {
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(author);
+        SecurityContextHolder.setContext(context);
+        try {
+            userStoryService.bulkUpdate(patches);
+        } catch (RuntimeException e) {
+            if (patches.size() == 1) {
+                failed.put(patches.get(0).getId(), e);
+                return;
+            }
+            // Usually a story deleted since it was queued; isolate it so the rest still commit
+            for (StoryPatchDTO patch : patches) {
+                try {
+                    userStoryService.bulkUpdate(List.of(patch));
+                } catch (RuntimeException single) {
+                    failed.put(patch.getId(), single);
+                }
+            }
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private void awaitCommit(CompletableFuture<Void> committed) {
+        try {
+            committed.get(commitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out waiting for the story update to be written");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the story update to be written");
+        }
+    }
+
+    private UserStory writeNow(Long storyId, Flag flag, boolean value, Long expectedVersion) {
+        return switch (flag) {
+            case STARRED -> userStoryService.updateStarred(storyId, value, expectedVersion);
+            case SPRINT_READY -> userStoryService.updateSprintReady(storyId, value, expectedVersion);
+            case MVP -> userStoryService.updateMvp(storyId, value, expectedVersion);
+        };
+    }
+
+    private static void set(UserStory story, Flag flag, boolean value) {
+        switch (flag) {
+            case STARRED -> story.setIsStarred(value);
+            case SPRINT_READY -> story.setSprintReady(value);
+            case MVP -> story.setIsMvp(value);
+        }
+    }
+
+    private int pendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.asu.ser515.agiletool.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Splits story text into lower-case words for the similarity indexes, leaving out words that
+ * every user story repeats ("as a ... I want to ... so that").
+ */
+final class StoryWords {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "the", "and", "or", "of", "to", "in", "on", "for", "with", "as", "is", "be",
+            "i", "my", "me", "we", "our", "can", "so", "that", "want", "it", "this");
+
+    private StoryWords() {
+    }
+
+    static List<String> of(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty() && !STOP_WORDS.contains(word)) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+}
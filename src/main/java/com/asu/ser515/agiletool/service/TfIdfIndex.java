@@ -0,0 +1,262 @@
+package com.asu.ser515.agiletool.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * TF-IDF vectors of estimated stories with an inverted index for cosine k-nearest-neighbour
+ * queries. A query only visits the postings of its own terms, and skips terms so common that
+ * they carry almost no weight. Documents are sparse (term id, log tf) arrays by slot, postings
+ * growable (slot, log tf) arrays per term; removed slots are skipped until compaction reclaims
+ * them. Not thread-safe on its own, callers hold {@link #lock}.
+ */
+final class TfIdfIndex {
+
+    // Terms whose idf falls below this appear in nearly every story and only cost time
+    private static final double MIN_IDF = 0.1;
+
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final Map<Long, Integer> slots = new HashMap<>();
+    private int[] documentFrequency = new int[256];
+    private int[][] postingSlots = new int[256][];
+    private float[][] postingWeights = new float[256][];
+    private int[] postingCounts = new int[256];
+
+    private long[] ids = new long[64];
+    private int[] points = new int[64];
+    private int[][] terms = new int[64][];
+    private float[][] weights = new float[64][];
+    private float[] norms = new float[64];
+    private int used;
+    private int removed;
+    private int documentsAtNormRefresh;
+
+    record Neighbour(long id, int points, double similarity) {
+    }
+
+    /** Term counts of the texts taken together. */
+    static Map<String, Integer> termCounts(String... texts) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String text : texts) {
+            for (String word : StoryWords.of(text)) {
+                counts.merge(word, 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    int size() {
+        return slots.size();
+    }
+
+    boolean contains(long id) {
+        return slots.containsKey(id);
+    }
+
+    /** Adds the story or replaces its text and points. */
+    void put(long id, int storyPoints, Map<String, Integer> counts) {
+        remove(id);
+        if (used == ids.length) {
+            compactOrGrow();
+        }
+        int slot = used++;
+        int[] docTerms = new int[counts.size()];
+        float[] docWeights = new float[counts.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            int term = termIds.computeIfAbsent(entry.getKey(), k -> newTerm());
+            docTerms[i] = term;
+            docWeights[i] = (float) (1 + Math.log(entry.getValue()));
+            documentFrequency[term]++;
+            addPosting(term, slot, docWeights[i]);
+            i++;
+        }
+        ids[slot] = id;
+        points[slot] = storyPoints;
+        terms[slot] = docTerms;
+        weights[slot] = docWeights;
+        slots.put(id, slot);
+        norms[slot] = norm(docTerms, docWeights, size());
+        // Norms depend on idf, which drifts as stories come and go
+        if (Math.abs(size() - documentsAtNormRefresh) > Math.max(16, documentsAtNormRefresh / 5)) {
+            refreshNorms();
+        }
+    }
+
+    /** Changes only the points of an indexed story; false when it is not indexed. */
+    boolean setPoints(long id, int storyPoints) {
+        Integer slot = slots.get(id);
+        if (slot == null) {
+            return false;
+        }
+        points[slot] = storyPoints;
+        return true;
+    }
+
+    void remove(long id) {
+        Integer slot = slots.remove(id);
+        if (slot == null) {
+            return;
+        }
+        for (int term : terms[slot]) {
+            documentFrequency[term]--;
+        }
+        ids[slot] = 0;
+        terms[slot] = null;
+        weights[slot] = null;
+        removed++;
+    }
+
+    /**
+     * The {@code k} stories most similar to the given term counts by cosine similarity, at least
+     * {@code minSimilarity}, most similar first.
+     */
+    List<Neighbour> nearest(Map<String, Integer> counts, long excludeId, int k, double minSimilarity) {
+        int documents = size();
+        if (documents == 0 || counts.isEmpty()) {
+            return List.of();
+        }
+        float[] scores = new float[used];
+        int[] touched = new int[64];
+        int touchedCount = 0;
+        double queryNorm = 0;
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            Integer term = termIds.get(entry.getKey());
+            if (term == null || documentFrequency[term] == 0) {
+                continue;
+            }
+            double idf = idf(term, documents);
+            double queryWeight = (1 + Math.log(entry.getValue())) * idf;
+            queryNorm += queryWeight * queryWeight;
+            if (idf < MIN_IDF) {
+                continue;
+            }
+            int[] list = postingSlots[term];
+            float[] listWeights = postingWeights[term];
+            for (int p = 0, n = postingCounts[term]; p < n; p++) {
+                int slot = list[p];
+                if (terms[slot] == null) {
+                    continue;
+                }
+                if (scores[slot] == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = slot;
+                }
+                scores[slot] += (float) (queryWeight * idf * listWeights[p]);
+            }
+        }
+        if (queryNorm == 0) {
+            return List.of();
+        }
+
+        double queryLength = Math.sqrt(queryNorm);
+        PriorityQueue<Neighbour> best = new PriorityQueue<>(k + 1,
+                (a, b) -> Double.compare(a.similarity(), b.similarity()));
+        for (int t = 0; t < touchedCount; t++) {
+            int slot = touched[t];
+            if (ids[slot] == excludeId || norms[slot] == 0) {
+                continue;
+            }
+            double similarity = Math.min(1, scores[slot] / (queryLength * norms[slot]));
+            if (similarity >= minSimilarity && (best.size() < k || similarity > best.peek().similarity())) {
+                best.add(new Neighbour(ids[slot], points[slot], similarity));
+                if (best.size() > k) {
+                    best.poll();
+                }
+            }
+        }
+        Neighbour[] result = best.toArray(new Neighbour[0]);
+        Arrays.sort(result, (a, b) -> Double.compare(b.similarity(), a.similarity()));
+        return List.of(result);
+    }
+
+    private double idf(int term, int documents) {
+        return Math.log((1.0 + documents) / (1.0 + documentFrequency[term]));
+    }
+
+    private float norm(int[] docTerms, float[] docWeights, int documents) {
+        double sum = 0;
+        for (int i = 0; i < docTerms.length; i++) {
+            double weight = docWeights[i] * idf(docTerms[i], documents);
+            sum += weight * weight;
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    private void refreshNorms() {
+        for (int slot = 0; slot < used; slot++) {
+            if (terms[slot] != null) {
+                norms[slot] = norm(terms[slot], weights[slot], size());
+            }
+        }
+        documentsAtNormRefresh = size();
+    }
+
+    private int newTerm() {
+        int term = termIds.size();
+        if (term == documentFrequency.length) {
+            documentFrequency = Arrays.copyOf(documentFrequency, term * 2);
+            postingSlots = Arrays.copyOf(postingSlots, term * 2);
+            postingWeights = Arrays.copyOf(postingWeights, term * 2);
+            postingCounts = Arrays.copyOf(postingCounts, term * 2);
+        }
+        postingSlots[term] = new int[4];
+        postingWeights[term] = new float[4];
+        return term;
+    }
+
+    private void addPosting(int term, int slot, float weight) {
+        int count = postingCounts[term];
+        if (count == postingSlots[term].length) {
+            postingSlots[term] = Arrays.copyOf(postingSlots[term], count * 2);
+            postingWeights[term] = Arrays.copyOf(postingWeights[term], count * 2);
+        }
+        postingSlots[term][count] = slot;
+        postingWeights[term][count] = weight;
+        postingCounts[term] = count + 1;
+    }
+
+    // Reclaims removed slots when at least a quarter are dead, otherwise doubles the arrays
+    private void compactOrGrow() {
+        if (removed * 4 < used) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            points = Arrays.copyOf(points, capacity);
+            terms = Arrays.copyOf(terms, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+            norms = Arrays.copyOf(norms, capacity);
+            return;
+        }
+        int live = 0;
+        for (int slot = 0; slot < used; slot++) {
+            if (terms[slot] == null) {
+                continue;
+            }
+            ids[live] = ids[slot];
+            points[live] = points[slot];
+            terms[live] = terms[slot];
+            weights[live] = weights[slot];
+            norms[live] = norms[slot];
+            slots.put(ids[live], live);
+            live++;
+        }
+        Arrays.fill(terms, live, used, null);
+        Arrays.fill(weights, live, used, null);
+        Arrays.fill(postingCounts, 0);
+        for (int slot = 0; slot < live; slot++) {
+            for (int i = 0; i < terms[slot].length; i++) {
+                addPosting(terms[slot][i], slot, weights[slot][i]);
+            }
+        }
+        used = live;
+        removed = 0;
+    }
+}
@@ -1,16 +1,23 @@
 package com.asu.ser515.agiletool.service;
 
+import com.asu.ser515.agiletool.config.ProjectShards;
+import com.asu.ser515.agiletool.dto.UserOffboardResultDTO;
 import com.asu.ser515.agiletool.dto.UserProfileUpdateDTO;
 import com.asu.ser515.agiletool.models.User;
 import com.asu.ser515.agiletool.models.UserRole;
 import com.asu.ser515.agiletool.repository.UserRepository;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 
@@ -24,11 +31,26 @@ public class UserService {
     private ProjectService projectService;
 
     @Autowired
-    private BCryptPasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordEncoder;
+
+    @Autowired
+    private LoginUserCache loginUserCache;
+
+    @Autowired
+    private StoryAuditService auditService;
+
+    @Autowired
+    private ProjectShards projectShards;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
     @PersistenceContext
     private EntityManager entityManager;
 
+    // Keeps IN lists well below SQLite's bound-parameter limit
+    private static final int OFFBOARD_CHUNK_SIZE = 500;
+
     @Transactional
     public User registerUser(User user) {
 
@@ -55,6 +77,8 @@ public class UserService {
         user.setPassword(passwordEncoder.encode(user.getPassword()));
 
         User savedUser = userRepository.save(user);
+        // The new username may still be cached as another user's email login
+        loginUserCache.removeUserFromCache(savedUser.getUsername());
 
         if (user.getProjectCode() != null && !user.getProjectCode().trim().isEmpty()) {
             projectService.addUserToProject(user.getProjectCode(), savedUser);
@@ -71,26 +95,121 @@ public class UserService {
         return userRepository.findByEmail(email);
     }
 
-    @Transactional
     public void deleteUser(Long id) {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
-        entityManager.createNativeQuery("DELETE FROM project_members WHERE user_id = :userId")
-                .setParameter("userId", id)
-                .executeUpdate();
-        entityManager.createQuery("UPDATE UserStory us SET us.createdBy = NULL WHERE us.createdBy.id = :userId")
-                .setParameter("userId", id)
-                .executeUpdate();
-        entityManager.createQuery("UPDATE UserStory us SET us.assignedTo = NULL WHERE us.assignedTo.id = :userId")
-                .setParameter("userId", id)
-                .executeUpdate();
-        entityManager.createQuery("UPDATE Task t SET t.assignedTo = NULL WHERE t.assignedTo.id = :userId")
-                .setParameter("userId", id)
-                .executeUpdate();
-        entityManager.createQuery("UPDATE ReleasePlan rp SET rp.createdBy = NULL WHERE rp.createdBy.id = :userId")
-                .setParameter("userId", id)
-                .executeUpdate();
-        userRepository.delete(user);
+        if (!userRepository.existsById(id)) {
+            throw new RuntimeException("User not found with id: " + id);
+        }
+        offboardUsers(List.of(id), null);
+    }
+
+    /**
+     * Deletes a batch of users with set-based statements: every reference to the users is
+     * cleared (or handed to {@code reassignToUserId}) with one statement per table per chunk
+     * of ids, instead of a round trip per user per table. Work in the shard files is handed over
+     * first, one transaction per shard; the users are deleted in the main database once nothing
+     * points at them any more.
+     */
+    public UserOffboardResultDTO offboardUsers(List<Long> userIds, Long reassignToUserId) {
+        if (userIds == null || userIds.isEmpty()) {
+            throw new RuntimeException("At least one user id is required");
+        }
+
+        List<Long> ids = userIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (reassignToUserId != null && ids.contains(reassignToUserId)) {
+            throw new RuntimeException("Cannot reassign work to a user that is being deleted");
+        }
+
+        User target = reassignToUserId == null ? null : userRepository.findById(reassignToUserId)
+                .orElseThrow(() -> new RuntimeException("User not found with id: " + reassignToUserId));
+
+        UserOffboardResultDTO result = new UserOffboardResultDTO();
+        result.setReassignedToUserId(reassignToUserId);
+        List<String> usernames = new ArrayList<>();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        for (int shard : projectShards.all()) {
+            if (shard == ProjectShards.MAIN) {
+                continue;
+            }
+            try (ProjectShards.Scope ignored = projectShards.useShard(shard)) {
+                transaction.executeWithoutResult(status -> {
+                    for (int from = 0; from < ids.size(); from += OFFBOARD_CHUNK_SIZE) {
+                        reassignWork(ids.subList(from, Math.min(from + OFFBOARD_CHUNK_SIZE, ids.size())), target, result);
+                    }
+                });
+            }
+        }
+
+        transaction.executeWithoutResult(status -> offboardInMain(ids, target, result, usernames));
+        usernames.forEach(loginUserCache::removeUserFromCache);
+        return result;
+    }
+
+    private void offboardInMain(List<Long> ids, User target, UserOffboardResultDTO result, List<String> usernames) {
+        for (int from = 0; from < ids.size(); from += OFFBOARD_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + OFFBOARD_CHUNK_SIZE, ids.size()));
+
+            usernames.addAll(entityManager
+                    .createQuery("SELECT u.username FROM User u WHERE u.id IN :ids", String.class)
+                    .setParameter("ids", chunk)
+                    .getResultList());
+
+            int memberships = entityManager.createNativeQuery("DELETE FROM project_members WHERE user_id IN (:ids)")
+                    .setParameter("ids", chunk)
+                    .executeUpdate();
+            memberships += entityManager.createQuery("DELETE FROM ProjectMember pm WHERE pm.user.id IN :ids")
+                    .setParameter("ids", chunk)
+                    .executeUpdate();
+            result.setMembershipsRemoved(result.getMembershipsRemoved() + memberships);
+            reassignWork(chunk, target, result);
+
+            entityManager.createNativeQuery("DELETE FROM user_roles WHERE user_id IN (:ids)")
+                    .setParameter("ids", chunk)
+                    .executeUpdate();
+            result.setUsersDeleted(result.getUsersDeleted() + entityManager
+                    .createQuery("DELETE FROM User u WHERE u.id IN :ids")
+                    .setParameter("ids", chunk)
+                    .executeUpdate());
+        }
+
+        // Bulk statements bypass the persistence context, so drop anything it still holds for these users
+        entityManager.clear();
+    }
+
+    private void reassignWork(List<Long> userIds, User target, UserOffboardResultDTO result) {
+        result.setStoriesCreatedByUpdated(result.getStoriesCreatedByUpdated()
+                + reassignStories("createdBy", userIds, target));
+        result.setStoriesAssignedToUpdated(result.getStoriesAssignedToUpdated()
+                + reassignStories("assignedTo", userIds, target));
+        result.setTasksUpdated(result.getTasksUpdated()
+                + reassign("Task", "assignedTo", userIds, target));
+        result.setReleasePlansUpdated(result.getReleasePlansUpdated()
+                + reassign("ReleasePlan", "createdBy", userIds, target));
+    }
+
+    // Stories keep a history, so each moved reference is audited like an edit would be
+    private int reassignStories(String field, List<Long> userIds, User target) {
+        List<Object[]> affected = entityManager.createQuery("SELECT s.id, s.project.id, u.username FROM UserStory s "
+                        + "JOIN s." + field + " u WHERE u.id IN :ids", Object[].class)
+                .setParameter("ids", userIds)
+                .getResultList();
+        int updated = reassign("UserStory", field, userIds, target);
+        String to = target == null ? null : target.getUsername();
+        for (Object[] row : affected) {
+            auditService.recordReassigned((Long) row[0], (Long) row[1], field, (String) row[2], to);
+        }
+        return updated;
+    }
+
+    // Bumps the version too, so an edit based on the old owner fails its optimistic check
+    private int reassign(String entity, String field, List<Long> userIds, User target) {
+        String jpql = "UPDATE " + entity + " e SET e." + field + " = " + (target == null ? "NULL" : ":target")
+                + ", e.version = e.version + 1 WHERE e." + field + ".id IN :ids";
+        Query query = entityManager.createQuery(jpql).setParameter("ids", userIds);
+        if (target != null) {
+            query.setParameter("target", target);
+        }
+        return query.executeUpdate();
     }
 
     public User getCurrentUserProfile(String username) {
@@ -112,6 +231,7 @@ public class UserService {
 
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        loginUserCache.removeUserFromCache(username);
     }
 
     public User updateUserProfile(String username, UserProfileUpdateDTO dto) {
@@ -130,7 +250,9 @@ public class UserService {
             user.setEmail(dto.getEmail());
         }
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        loginUserCache.removeUserFromCache(username);
+        return saved;
     }
 
     public List<User> getAllUsers() {
@@ -146,6 +268,8 @@ public class UserService {
         }
 
         user.setRoles(roles);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        loginUserCache.removeUserFromCache(saved.getUsername());
+        return saved;
     }
 }
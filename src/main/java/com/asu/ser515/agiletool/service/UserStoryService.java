@@ -1,30 +1,89 @@
 package com.asu.ser515.agiletool.service;
 
+import com.asu.ser515.agiletool.config.ProjectShards;
 import com.asu.ser515.agiletool.dto.JiraExportRequest;
 import com.asu.ser515.agiletool.dto.JiraIssueResponse;
+import com.asu.ser515.agiletool.dto.StoryBulkUpdateResultDTO;
+import com.asu.ser515.agiletool.dto.StoryPatchDTO;
 import com.asu.ser515.agiletool.models.*;
 import com.asu.ser515.agiletool.repository.ProjectRepository;
+import com.asu.ser515.agiletool.repository.ReleasePlanRepository;
+import com.asu.ser515.agiletool.repository.SprintRepository;
 import com.asu.ser515.agiletool.repository.UserStoryRepository;
+import com.asu.ser515.agiletool.repository.UserStoryRepository.StoryStateView;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class UserStoryService {
 
     private final UserStoryRepository storyRepo;
     private final ProjectRepository projectRepo;
+    private final ReleasePlanRepository releasePlanRepo;
+    private final SprintRepository sprintRepo;
     private final JiraService jiraService;
-
-    public UserStoryService(UserStoryRepository storyRepo, ProjectRepository projectRepo, JiraService jiraService) {
+    private final BacklogRankService backlogRankService;
+    private final StoryDependencyService dependencyService;
+    private final StoryAuditService auditService;
+    private final FlowAnalyticsService flowAnalyticsService;
+    private final ProjectSummaryService summaryService;
+    private final StoryDuplicateService duplicateService;
+    private final EstimateSuggestionService estimateSuggestionService;
+    private final ProjectShards shards;
+    private final TransactionTemplate readTx;
+
+    public UserStoryService(UserStoryRepository storyRepo,
+            ProjectRepository projectRepo,
+            ReleasePlanRepository releasePlanRepo,
+            SprintRepository sprintRepo,
+            JiraService jiraService,
+            BacklogRankService backlogRankService,
+            StoryDependencyService dependencyService,
+            StoryAuditService auditService,
+            FlowAnalyticsService flowAnalyticsService,
+            ProjectSummaryService summaryService,
+            StoryDuplicateService duplicateService,
+            EstimateSuggestionService estimateSuggestionService,
+            ProjectShards shards,
+            PlatformTransactionManager transactionManager) {
         this.storyRepo = storyRepo;
         this.projectRepo = projectRepo;
+        this.releasePlanRepo = releasePlanRepo;
+        this.sprintRepo = sprintRepo;
         this.jiraService = jiraService;
+        this.backlogRankService = backlogRankService;
+        this.dependencyService = dependencyService;
+        this.auditService = auditService;
+        this.flowAnalyticsService = flowAnalyticsService;
+        this.summaryService = summaryService;
+        this.duplicateService = duplicateService;
+        this.estimateSuggestionService = estimateSuggestionService;
+        this.shards = shards;
+        this.readTx = new TransactionTemplate(transactionManager);
+        this.readTx.setReadOnly(true);
     }
 
     private static final String GLOBAL_KEY = "GLOBAL";
-    private static final long GLOBAL_PROJECT_ID = 1L;
+    public static final long GLOBAL_PROJECT_ID = 1L;
     private static final int PAD = 3;
+    private static final int MAX_BULK_PATCHES = 2000;
+    private static final int BULK_CHUNK_SIZE = 500;
 
     @Transactional
     public UserStory create(String title,
@@ -52,24 +111,34 @@ public class UserStoryService {
         s.setBusinessValue(businessValue);
         s.setPriority(priority == null ? StoryPriority.MEDIUM : priority);
         s.setStatus(StoryStatus.NEW);
+        s.setBacklogRank(backlogRankService.nextRank(project.getId()));
 
         s = storyRepo.save(s);
 
+        // Numbered within the shard, so keys read the same after the project moves to its own file
         String storyKey = (project.getProjectKey() != null ? project.getProjectKey() : GLOBAL_KEY) + "-"
-                + String.format("%0" + PAD + "d", s.getId());
+                + String.format("%0" + PAD + "d", ProjectShards.localId(s.getId()));
         s.setStoryKey(storyKey);
 
-        return storyRepo.save(s);
+        s = storyRepo.save(s);
+        auditService.recordCreated(s);
+        flowAnalyticsService.recordCreated(s);
+        summaryService.projectChanged(project.getId());
+        duplicateService.storyChanged(s);
+        return s;
     }
 
-    @Transactional(readOnly = true)
+    /** Every shard in turn, main first. */
     public List<UserStory> listAll() {
-        return storyRepo.findAllByOrderByIdAsc();
+        return shards.collect(() -> readTx.execute(status -> storyRepo.findAllWithText()));
     }
 
+    /** Without text the stories carry no description or acceptance criteria, which boards don't show. */
     @Transactional(readOnly = true)
-    public List<UserStory> listByProject(Long projectId) {
-        return storyRepo.findAllByProjectIdOrderByIdAsc(projectId);
+    public List<UserStory> listByProject(Long projectId, boolean includeText) {
+        return includeText
+                ? storyRepo.findWithTextByProjectId(projectId)
+                : storyRepo.findAllByProjectIdOrderByBacklogRankAscIdAsc(projectId);
     }
 
     @Transactional
@@ -78,15 +147,19 @@ public class UserStoryService {
             String description,
             String acceptanceCriteria,
             Integer businessValue,
-            StoryPriority priority) {
-        UserStory story = storyRepo.findById(id)
+            StoryPriority priority,
+            Long expectedVersion) {
+        // Text is loaded up front so the audit entry records what it replaced
+        UserStory story = storyRepo.findWithTextById(id)
                 .orElseThrow(() -> new RuntimeException("User Story not found with id: " + id));
+        checkVersion(story, expectedVersion);
 
         if (title == null || title.isBlank())
             throw new IllegalArgumentException("Title is required");
         if (description == null || description.isBlank())
             throw new IllegalArgumentException("Description is required");
 
+        Map<String, Object> before = StoryAuditService.snapshot(story);
         story.setTitle(title);
         story.setDescription(description);
         story.setAcceptanceCriteria(acceptanceCriteria);
@@ -98,57 +171,92 @@ public class UserStoryService {
             story.setPriority(priority);
         }
 
-        return storyRepo.save(story);
+        UserStory saved = saveAudited(story, before);
+        duplicateService.storyChanged(saved);
+        estimateSuggestionService.storyChanged(saved);
+        return saved;
+    }
+
+    /**
+     * The expected version only guards against moving a story that changed meanwhile; the rank
+     * itself is board order, not story content, so a move does not bump the version.
+     */
+    @Transactional
+    public String moveInBacklog(Long id, Long afterStoryId, Long beforeStoryId, Long expectedVersion) {
+        if (expectedVersion != null) {
+            checkVersion(getStoryById(id), expectedVersion);
+        }
+        return backlogRankService.move(id, afterStoryId, beforeStoryId);
     }
 
     @Transactional
     public void deleteUserStory(Long id) {
-        UserStory story = storyRepo.findById(id)
+        UserStory story = storyRepo.findWithTextById(id)
                 .orElseThrow(() -> new RuntimeException("User Story not found with id: " + id));
 
+        dependencyService.removeStory(story.getId(), story.getProject().getId());
+        duplicateService.storyRemoved(story.getId(), story.getProject().getId());
+        estimateSuggestionService.storyRemoved(story.getId(), story.getProject().getId());
+        auditService.recordDeleted(story);
+        summaryService.projectChanged(story.getProject().getId());
+
         // Delete the user story (associated tasks will be deleted automatically due to
         // orphanRemoval = true)
         storyRepo.delete(story);
     }
 
     @Transactional
-    public UserStory updateEstimation(Long storyId, int storyPoints) {
+    public UserStory updateEstimation(Long storyId, int storyPoints, Long expectedVersion) {
         UserStory story = storyRepo.findById(storyId)
                 .orElseThrow(() -> new RuntimeException("User Story not found with id: " + storyId));
+        checkVersion(story, expectedVersion);
 
+        Map<String, Object> before = StoryAuditService.snapshot(story);
         story.setStoryPoints(storyPoints);
+        story.setEstimatedAt(LocalDateTime.now());
 
-        return storyRepo.save(story);
+        UserStory saved = saveAudited(story, before);
+        estimateSuggestionService.storyChanged(saved);
+        return saved;
     }
 
     @Transactional
-    public UserStory updateStatus(Long id, StoryStatus status) {
+    public UserStory updateStatus(Long id, StoryStatus status, Long expectedVersion) {
         if (status == null) {
             throw new IllegalArgumentException("Status is required");
         }
 
         UserStory story = storyRepo.findById(id)
                 .orElseThrow(() -> new RuntimeException("User Story not found with id: " + id));
+        checkVersion(story, expectedVersion);
 
+        Map<String, Object> before = StoryAuditService.snapshot(story);
+        StoryStatus previous = story.getStatus();
         story.setStatus(status);
 
-        return storyRepo.save(story);
+        UserStory saved = saveAudited(story, before);
+        flowAnalyticsService.recordTransition(saved, previous);
+        return saved;
     }
 
     @Transactional
-    public UserStory updateSprintReady(Long id, boolean sprintReady) {
+    public UserStory updateSprintReady(Long id, boolean sprintReady, Long expectedVersion) {
         UserStory story = storyRepo.findById(id)
                 .orElseThrow(() -> new RuntimeException("User Story not found with id: " + id));
+        checkVersion(story, expectedVersion);
+        Map<String, Object> before = StoryAuditService.snapshot(story);
         story.setSprintReady(sprintReady);
-        return storyRepo.save(story);
+        return saveAudited(story, before);
     }
 
     @Transactional
-    public UserStory updateStarred(Long id, boolean starred) {
+    public UserStory updateStarred(Long id, boolean starred, Long expectedVersion) {
         UserStory story = storyRepo.findById(id)
                 .orElseThrow(() -> new RuntimeException("User Story not found with id: " + id));
+        checkVersion(story, expectedVersion);
+        Map<String, Object> before = StoryAuditService.snapshot(story);
         story.setIsStarred(starred);
-        return storyRepo.save(story);
+        return saveAudited(story, before);
     }
 
     @Transactional(readOnly = true)
@@ -157,13 +265,25 @@ public class UserStoryService {
                 .orElseThrow(() -> new IllegalArgumentException("User Story not found with id: " + id));
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
+    public UserStory getStoryWithText(Long id) {
+        return storyRepo.findWithTextById(id)
+                .orElseThrow(() -> new IllegalArgumentException("User Story not found with id: " + id));
+    }
+
+    @Transactional(readOnly = true)
+    public List<UserStory> getStoriesByIds(Collection<Long> ids) {
+        return storyRepo.findAllById(ids);
+    }
+
+    // Read-only so the remote call never holds the database writer
+    @Transactional(readOnly = true)
     public JiraIssueResponse exportStoryToJira(Long id) {
         UserStory story = getStoryById(id);
         return jiraService.createIssueFromStory(story);
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public JiraIssueResponse exportStoryToJira(Long id, JiraExportRequest request) {
         UserStory story = getStoryById(id);
         JiraService.JiraConfig overrideConfig = new JiraService.JiraConfig(
@@ -177,9 +297,226 @@ public class UserStoryService {
     }
 
     @Transactional
-    public UserStory updateMvp(Long id, boolean mvp) {
+    public UserStory updateMvp(Long id, boolean mvp, Long expectedVersion) {
         UserStory story = getStoryById(id);
+        checkVersion(story, expectedVersion);
+        Map<String, Object> before = StoryAuditService.snapshot(story);
         story.setIsMvp(mvp);
-        return storyRepo.save(story);
+        return saveAudited(story, before);
+    }
+
+    /**
+     * Applies many partial updates in one transaction. Current values are read with a single
+     * projection query, unchanged fields are dropped, and the remaining changes are written as
+     * one UPDATE per distinct (field, value) pair rather than one load-and-save per story. Each
+     * changed story moves one version however many of its fields changed.
+     */
+    @Transactional
+    public StoryBulkUpdateResultDTO bulkUpdate(List<StoryPatchDTO> patches) {
+        if (patches == null || patches.isEmpty()) {
+            throw new IllegalArgumentException("At least one story update is required");
+        }
+        if (patches.size() > MAX_BULK_PATCHES) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_PATCHES + " story updates are allowed per request");
+        }
+
+        Map<Long, StoryPatchDTO> byId = new LinkedHashMap<>();
+        for (StoryPatchDTO patch : patches) {
+            if (patch == null || patch.getId() == null) {
+                throw new IllegalArgumentException("Story id is required");
+            }
+            if (shards.shardOfId(patch.getId()) != ProjectShards.current()) {
+                throw new IllegalArgumentException("Stories " + byId.keySet().stream().findFirst().orElse(patch.getId())
+                        + " and " + patch.getId() + " belong to projects kept in different databases; update them separately");
+            }
+            byId.merge(patch.getId(), patch, UserStoryService::mergePatch);
+        }
+
+        Map<Long, StoryStateView> current = new HashMap<>();
+        for (List<Long> chunk : chunks(new ArrayList<>(byId.keySet()))) {
+            storyRepo.findStateByIdIn(chunk).forEach(v -> current.put(v.getId(), v));
+        }
+        List<Long> conflicts = new ArrayList<>();
+        for (StoryPatchDTO patch : byId.values()) {
+            StoryStateView state = current.get(patch.getId());
+            if (state == null) {
+                throw new IllegalArgumentException("User Story not found with id: " + patch.getId());
+            }
+            if (patch.getVersion() != null && !patch.getVersion().equals(state.getVersion())) {
+                conflicts.add(patch.getId());
+            }
+        }
+        if (!conflicts.isEmpty()) {
+            throw new VersionConflictException(
+                    "User Stories " + conflicts + " were modified by someone else", conflicts);
+        }
+
+        Map<Long, ReleasePlan> releasePlans = releasePlanRepo.findAllById(byId.values().stream()
+                        .map(StoryPatchDTO::getReleasePlanId).filter(Objects::nonNull).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(ReleasePlan::getId, Function.identity()));
+        Map<Long, Sprint> sprints = sprintRepo.findAllById(byId.values().stream()
+                        .map(StoryPatchDTO::getSprintId).filter(Objects::nonNull).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(Sprint::getId, Function.identity()));
+
+        Map<StoryStatus, List<Long>> statusChanges = new HashMap<>();
+        Map<StoryPriority, List<Long>> priorityChanges = new HashMap<>();
+        Map<Integer, List<Long>> pointChanges = new HashMap<>();
+        Map<Boolean, List<Long>> starredChanges = new HashMap<>();
+        Map<Boolean, List<Long>> mvpChanges = new HashMap<>();
+        Map<Boolean, List<Long>> sprintReadyChanges = new HashMap<>();
+        Map<Long, List<Long>> releasePlanChanges = new HashMap<>();
+        Map<Long, List<Long>> sprintChanges = new HashMap<>();
+
+        for (StoryPatchDTO patch : byId.values()) {
+            StoryStateView state = current.get(patch.getId());
+            Long id = patch.getId();
+
+            collect(statusChanges, patch.getStatus(), state.getStatus(), id);
+            collect(priorityChanges, patch.getPriority(), state.getPriority(), id);
+            if (patch.getStoryPoints() != null && patch.getStoryPoints() < 0) {
+                throw new IllegalArgumentException("Story points must not be negative (story " + id + ")");
+            }
+            collect(pointChanges, patch.getStoryPoints(), state.getStoryPoints(), id);
+            collect(starredChanges, patch.getStarred(), state.getStarred(), id);
+            collect(mvpChanges, patch.getMvp(), state.getMvp(), id);
+            collect(sprintReadyChanges, patch.getSprintReady(), state.getSprintReady(), id);
+
+            if (patch.touchesReleasePlan()) {
+                Long planId = patch.isClearReleasePlan() ? null : patch.getReleasePlanId();
+                if (planId != null) {
+                    ReleasePlan plan = releasePlans.get(planId);
+                    if (plan == null) {
+                        throw new IllegalArgumentException("Release plan not found with id: " + planId);
+                    }
+                    if (!plan.getProject().getId().equals(state.getProjectId())) {
+                        throw new IllegalArgumentException(
+                                "User story must belong to the same project as the release plan (story " + id + ")");
+                    }
+                }
+                if (!Objects.equals(planId, state.getReleasePlanId())) {
+                    releasePlanChanges.computeIfAbsent(planId, k -> new ArrayList<>()).add(id);
+                }
+            }
+
+            if (patch.touchesSprint()) {
+                Long sprintId = patch.isClearSprint() ? null : patch.getSprintId();
+                if (sprintId != null) {
+                    Sprint sprint = sprints.get(sprintId);
+                    if (sprint == null) {
+                        throw new IllegalArgumentException("Sprint not found with id: " + sprintId);
+                    }
+                    if (!sprint.getProject().getId().equals(state.getProjectId())) {
+                        throw new IllegalArgumentException(
+                                "User story must belong to the same project as the sprint (story " + id + ")");
+                    }
+                }
+                if (!Objects.equals(sprintId, state.getSprintId())) {
+                    sprintChanges.computeIfAbsent(sprintId, k -> new ArrayList<>()).add(id);
+                }
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Set<Long> changed = new TreeSet<>();
+        statusChanges.forEach((v, ids) -> apply(ids, chunk -> storyRepo.bulkUpdateStatus(chunk, v, now), changed));
+        priorityChanges.forEach((v, ids) -> apply(ids, chunk -> storyRepo.bulkUpdatePriority(chunk, v, now), changed));
+        pointChanges.forEach((v, ids) -> apply(ids, chunk -> storyRepo.bulkUpdateStoryPoints(chunk, v, now), changed));
+        starredChanges.forEach((v, ids) -> apply(ids, chunk -> storyRepo.bulkUpdateStarred(chunk, v, now), changed));
+        mvpChanges.forEach((v, ids) -> apply(ids, chunk -> storyRepo.bulkUpdateMvp(chunk, v, now), changed));
+        sprintReadyChanges.forEach((v, ids) ->
+                apply(ids, chunk -> storyRepo.bulkUpdateSprintReady(chunk, v, now), changed));
+        releasePlanChanges.forEach((v, ids) -> apply(ids,
+                chunk -> storyRepo.bulkUpdateReleasePlan(chunk, v == null ? null : releasePlans.get(v), now), changed));
+        sprintChanges.forEach((v, ids) -> apply(ids,
+                chunk -> storyRepo.bulkUpdateSprint(chunk, v == null ? null : sprints.get(v), now), changed));
+
+        List<UserStory> changedStories = new ArrayList<>();
+        for (List<Long> chunk : chunks(new ArrayList<>(changed))) {
+            storyRepo.bumpVersions(chunk);
+            changedStories.addAll(storyRepo.findAllById(chunk));
+        }
+        changedStories.sort(Comparator.comparing(UserStory::getId));
+        for (UserStory story : changedStories) {
+            Map<String, Object> before = bulkSnapshot(current.get(story.getId()));
+            Map<String, Object> after = StoryAuditService.snapshot(story);
+            after.keySet().retainAll(before.keySet());
+            auditService.record(story, StoryAuditAction.UPDATED, before, after);
+        }
+        changedStories.stream().map(story -> story.getProject().getId()).distinct()
+                .forEach(summaryService::projectChanged);
+        Set<Long> estimated = pointChanges.values().stream().flatMap(List::stream).collect(Collectors.toSet());
+        changedStories.stream().filter(story -> estimated.contains(story.getId()))
+                .forEach(estimateSuggestionService::storyChanged);
+        if (!statusChanges.isEmpty()) {
+            Map<Long, StoryStatus> previousStatus = new HashMap<>();
+            current.forEach((id, state) -> previousStatus.put(id, state.getStatus()));
+            flowAnalyticsService.recordTransitions(changedStories, previousStatus);
+        }
+
+        return new StoryBulkUpdateResultDTO(byId.size(), changedStories.size(), changedStories);
+    }
+
+    private static void checkVersion(UserStory story, Long expectedVersion) {
+        VersionConflictException.check("User Story", story.getId(), expectedVersion, story.getVersion());
+    }
+
+    private UserStory saveAudited(UserStory story, Map<String, Object> before) {
+        UserStory saved = storyRepo.save(story);
+        auditService.recordUpdated(saved, before);
+        summaryService.projectChanged(saved.getProject().getId());
+        return saved;
+    }
+
+    private static Map<String, Object> bulkSnapshot(StoryStateView state) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("status", state.getStatus());
+        fields.put("priority", state.getPriority());
+        fields.put("storyPoints", state.getStoryPoints());
+        fields.put("isStarred", state.getStarred());
+        fields.put("isMvp", state.getMvp());
+        fields.put("sprintReady", state.getSprintReady());
+        fields.put("releasePlanId", state.getReleasePlanId());
+        fields.put("sprintId", state.getSprintId());
+        return fields;
+    }
+
+    private static StoryPatchDTO mergePatch(StoryPatchDTO earlier, StoryPatchDTO later) {
+        StoryPatchDTO merged = new StoryPatchDTO();
+        merged.setId(earlier.getId());
+        merged.setVersion(later.getVersion() != null ? later.getVersion() : earlier.getVersion());
+        merged.setStatus(later.getStatus() != null ? later.getStatus() : earlier.getStatus());
+        merged.setPriority(later.getPriority() != null ? later.getPriority() : earlier.getPriority());
+        merged.setStoryPoints(later.getStoryPoints() != null ? later.getStoryPoints() : earlier.getStoryPoints());
+        merged.setStarred(later.getStarred() != null ? later.getStarred() : earlier.getStarred());
+        merged.setMvp(later.getMvp() != null ? later.getMvp() : earlier.getMvp());
+        merged.setSprintReady(later.getSprintReady() != null ? later.getSprintReady() : earlier.getSprintReady());
+        StoryPatchDTO releaseSource = later.touchesReleasePlan() ? later : earlier;
+        merged.setReleasePlanId(releaseSource.getReleasePlanId());
+        merged.setClearReleasePlan(releaseSource.isClearReleasePlan());
+        StoryPatchDTO sprintSource = later.touchesSprint() ? later : earlier;
+        merged.setSprintId(sprintSource.getSprintId());
+        merged.setClearSprint(sprintSource.isClearSprint());
+        return merged;
+    }
+
+    private static <V> void collect(Map<V, List<Long>> changes, V requested, V current, Long id) {
+        if (requested != null && !requested.equals(current)) {
+            changes.computeIfAbsent(requested, k -> new ArrayList<>()).add(id);
+        }
+    }
+
+    private static void apply(List<Long> ids, Function<List<Long>, Integer> update, Set<Long> changed) {
+        for (List<Long> chunk : chunks(ids)) {
+            update.apply(chunk);
+        }
+        changed.addAll(ids);
+    }
+
+    private static List<List<Long>> chunks(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += BULK_CHUNK_SIZE) {
+            chunks.add(ids.subList(from, Math.min(from + BULK_CHUNK_SIZE, ids.size())));
+        }
+        return chunks;
     }
 }
@@ -0,0 +1,30 @@
+package com.asu.ser515.agiletool.service;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.List;
+
+/**
+ * Raised when a conditional update names a version that is no longer current, i.e. someone else
+ * changed the record after the client read it.
+ */
+public class VersionConflictException extends OptimisticLockingFailureException {
+
+    private final List<Long> ids;
+
+    public VersionConflictException(String message, List<Long> ids) {
+        super(message);
+        this.ids = List.copyOf(ids);
+    }
+
+    public static void check(String entity, Long id, Long expectedVersion, Long currentVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(currentVersion)) {
+            throw new VersionConflictException(entity + " " + id + " was modified by someone else (version "
+                    + expectedVersion + " expected, current is " + currentVersion + ")", List.of(id));
+        }
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+}
@@ -0,0 +1,48 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Columns added to baseline tables since the baseline. SQLite has no ADD COLUMN IF NOT EXISTS, and
+ * databases that ran with ddl-auto=update may already have some of them, so each one is checked first.
+ */
+public class V2__Add_rank_and_version_columns extends BaseJavaMigration {
+
+    private static final String[][] COLUMNS = {
+            {"user_stories", "backlog_rank", "varchar(255)"},
+            {"user_stories", "version", "bigint default 0 not null"},
+            {"release_plans", "version", "bigint default 0 not null"},
+            {"projects", "version", "bigint default 0 not null"},
+            {"sprints", "version", "bigint default 0 not null"},
+            {"tasks", "version", "bigint default 0 not null"},
+    };
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            for (String[] column : COLUMNS) {
+                if (!hasColumn(statement, column[0], column[1])) {
+                    statement.execute("ALTER TABLE " + column[0] + " ADD COLUMN " + column[1] + " " + column[2]);
+                }
+            }
+        }
+    }
+
+    private static boolean hasColumn(Statement statement, String table, String column) throws SQLException {
+        try (ResultSet columns = statement.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (columns.next()) {
+                if (column.equalsIgnoreCase(columns.getString("name"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,39 @@
+package db.migration;
+
+import com.asu.ser515.agiletool.models.StoryTextConverter;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Rewrites story text stored before compression was introduced in the compressed form
+ * {@link StoryTextConverter} writes. Short text stays as it is, so most rows are not touched.
+ */
+public class V6__Compress_story_text extends BaseJavaMigration {
+
+    private static final String[] COLUMNS = {"description", "acceptance_criteria"};
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        for (String column : COLUMNS) {
+            String select = "SELECT id, " + column + " FROM user_stories WHERE typeof(" + column + ") = 'text' "
+                    + "AND length(CAST(" + column + " AS BLOB)) >= " + StoryTextConverter.COMPRESS_THRESHOLD_BYTES;
+            try (PreparedStatement query = connection.prepareStatement(select);
+                 PreparedStatement update = connection.prepareStatement(
+                         "UPDATE user_stories SET " + column + " = ? WHERE id = ?");
+                 ResultSet rows = query.executeQuery()) {
+                while (rows.next()) {
+                    update.setBytes(1, StoryTextConverter.encode(rows.getString(2)));
+                    update.setLong(2, rows.getLong(1));
+                    update.addBatch();
+                }
+                update.executeBatch();
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package db.migration;
+
+import com.asu.ser515.agiletool.models.StoryTextConverter;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Story text starting with a NUL byte used to be stored untagged, so text such as "\0Zhello" read
+ * back as corrupt compressed text and failed every query over its project. Rows starting with NUL
+ * that do not decode are rewritten in the tagged plain form {@link StoryTextConverter} now writes.
+ */
+public class V8__Tag_nul_story_text extends BaseJavaMigration {
+
+    private static final String[] COLUMNS = {"description", "acceptance_criteria"};
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        for (String column : COLUMNS) {
+            String select = "SELECT id, " + column + " FROM user_stories "
+                    + "WHERE substr(CAST(" + column + " AS BLOB), 1, 1) = x'00'";
+            try (PreparedStatement query = connection.prepareStatement(select);
+                 PreparedStatement update = connection.prepareStatement(
+                         "UPDATE user_stories SET " + column + " = ? WHERE id = ?");
+                 ResultSet rows = query.executeQuery()) {
+                while (rows.next()) {
+                    byte[] stored = rows.getBytes(2);
+                    try {
+                        StoryTextConverter.decode(stored);
+                        continue;
+                    } catch (IllegalStateException e) {
+                        // Plain text that only looked compressed
+                    }
+                    update.setBytes(1, StoryTextConverter.encode(new String(stored, StandardCharsets.UTF_8)));
+                    update.setLong(2, rows.getLong(1));
+                    update.addBatch();
+                }
+                update.executeBatch();
+            }
+        }
+    }
+}
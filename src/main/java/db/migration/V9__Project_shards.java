@@ -0,0 +1,98 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Prepares the main database for per-project shard files (see ProjectShards). {@code project_shards}
+ * records which projects have moved out. The project tables are rebuilt with AUTOINCREMENT ids:
+ * rows of a moved project leave this file, and a plain rowid table would hand their ids out again,
+ * while shard files copy these definitions and start their own ids at {@code shard << 40}. Archived
+ * stories and tasks left the table before, so the id sequence starts past them too.
+ */
+public class V9__Project_shards extends BaseJavaMigration {
+
+    private static final String[] PROJECT_TABLES = {
+            "user_stories", "tasks", "release_plans", "sprints", "story_dependencies",
+            "story_status_transitions", "story_audit_log", "flow_weekly_stats"};
+
+    private static final Pattern ID_COLUMN = Pattern.compile("(?i)\\bid\\s+integer\\s*,");
+    private static final Pattern PRIMARY_KEY = Pattern.compile("(?i),\\s*primary\\s+key\\s*\\(\\s*id\\s*\\)");
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS project_shards ("
+                    + "project_id bigint not null primary key, shard integer not null)");
+            for (String table : PROJECT_TABLES) {
+                rebuild(connection, statement, table);
+            }
+            skipArchivedIds(connection, statement, "user_stories");
+            skipArchivedIds(connection, statement, "tasks");
+        }
+    }
+
+    private static void skipArchivedIds(Connection connection, Statement statement, String table) throws SQLException {
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT 1 FROM pragma_table_list WHERE schema = 'archive' AND name = ?")) {
+            query.setString(1, table);
+            try (ResultSet rows = query.executeQuery()) {
+                if (!rows.next()) {
+                    return;
+                }
+            }
+        }
+        statement.execute("INSERT INTO sqlite_sequence (name, seq) SELECT '" + table + "', 0 "
+                + "WHERE NOT EXISTS (SELECT 1 FROM sqlite_sequence WHERE name = '" + table + "')");
+        statement.execute("UPDATE sqlite_sequence SET seq = MAX(seq, "
+                + "(SELECT COALESCE(MAX(id), 0) FROM archive." + table + ")) WHERE name = '" + table + "'");
+    }
+
+    private static void rebuild(Connection connection, Statement statement, String table) throws SQLException {
+        String sql = null;
+        List<String> indexes = new ArrayList<>();
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT type, sql FROM sqlite_master WHERE tbl_name = ? AND sql IS NOT NULL")) {
+            query.setString(1, table);
+            try (ResultSet rows = query.executeQuery()) {
+                while (rows.next()) {
+                    if ("table".equals(rows.getString(1))) {
+                        sql = rows.getString(2);
+                    } else {
+                        indexes.add(rows.getString(2));
+                    }
+                }
+            }
+        }
+        if (sql == null || sql.toLowerCase().contains("autoincrement")) {
+            return;
+        }
+
+        Matcher id = ID_COLUMN.matcher(sql);
+        Matcher primaryKey = PRIMARY_KEY.matcher(sql);
+        if (!id.find() || !primaryKey.find()) {
+            throw new IllegalStateException("Unexpected definition of " + table + ": " + sql);
+        }
+        String definition = sql.substring(sql.indexOf('('), primaryKey.start()) + sql.substring(primaryKey.end());
+        definition = ID_COLUMN.matcher(definition).replaceFirst("id integer primary key autoincrement,");
+
+        statement.execute("CREATE TABLE " + table + "_v9 " + definition);
+        statement.execute("INSERT INTO " + table + "_v9 SELECT * FROM " + table);
+        statement.execute("DROP TABLE " + table);
+        statement.execute("ALTER TABLE " + table + "_v9 RENAME TO " + table);
+        for (String index : indexes) {
+            statement.execute(index);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+-- Schema created by Hibernate (ddl-auto=update) for the original entities. Databases that already
+-- have these tables are baselined at this version instead of running it.
+
+CREATE TABLE project_member_roles (
+    id integer,
+    created_at timestamp not null,
+    role varchar(50) not null check (role in ('PRODUCT_OWNER','SCRUM_MASTER','DEVELOPER','SYSTEM_ADMIN')),
+    project_id bigint not null,
+    user_id bigint not null,
+    primary key (id)
+);
+
+CREATE TABLE project_members (
+    project_id bigint not null,
+    user_id bigint not null,
+    primary key (project_id, user_id)
+);
+
+CREATE TABLE projects (
+    id integer,
+    active boolean not null,
+    created_at timestamp not null,
+    description TEXT,
+    name varchar(200) not null,
+    project_code varchar(50) unique,
+    project_key varchar(50) not null unique,
+    updated_at timestamp not null,
+    primary key (id)
+);
+
+CREATE TABLE release_plans (
+    id integer,
+    created_at timestamp not null,
+    description TEXT,
+    goals TEXT,
+    name varchar(200) not null,
+    release_key varchar(50) unique,
+    start_date date not null,
+    status varchar(20) not null check (status in ('PLANNED','IN_PROGRESS','COMPLETED','CANCELLED')),
+    target_date date not null,
+    updated_at timestamp not null,
+    created_by_user_id bigint,
+    project_id bigint not null,
+    primary key (id)
+);
+
+CREATE TABLE sprints (
+    id integer,
+    capacity integer,
+    created_at timestamp not null,
+    end_date date not null,
+    goal TEXT,
+    goal_met boolean,
+    name varchar(100) not null,
+    start_date date not null,
+    status varchar(20) not null check (status in ('PLANNED','ACTIVE','COMPLETED','CANCELLED')),
+    strategy TEXT,
+    updated_at timestamp not null,
+    project_id bigint not null,
+    primary key (id)
+);
+
+CREATE TABLE tasks (
+    id integer,
+    actual_hours integer,
+    created_at timestamp not null,
+    description TEXT,
+    estimated_hours integer,
+    status varchar(20) not null check (status in ('NEW','IN_PROGRESS','READY_TO_TEST','DONE')),
+    title varchar(500) not null,
+    updated_at timestamp not null,
+    assigned_to_user_id bigint,
+    user_story_id bigint not null,
+    primary key (id)
+);
+
+CREATE TABLE user_roles (
+    user_id bigint not null,
+    role varchar(255) check (role in ('PRODUCT_OWNER','SCRUM_MASTER','DEVELOPER','SYSTEM_ADMIN'))
+);
+
+CREATE TABLE user_stories (
+    id integer,
+    acceptance_criteria TEXT,
+    asa varchar(100),
+    business_value integer,
+    created_at timestamp not null,
+    description TEXT,
+    estimated_at timestamp,
+    i_want varchar(500),
+    is_mvp boolean,
+    is_starred boolean,
+    priority varchar(20) check (priority in ('CRITICAL','HIGH','MEDIUM','LOW')),
+    refined_at timestamp,
+    so_that varchar(500),
+    sprint_ready boolean,
+    status varchar(20) not null check (status in ('NEW','IN_PROGRESS','IN_REVIEW','DONE','BLOCKED')),
+    story_key varchar(50) unique,
+    story_points integer,
+    title varchar(500) not null,
+    updated_at timestamp not null,
+    assigned_to_user_id bigint,
+    created_by_user_id bigint,
+    project_id bigint not null,
+    release_plan_id bigint,
+    sprint_id bigint,
+    primary key (id)
+);
+
+CREATE TABLE users (
+    id integer,
+    active boolean not null,
+    created_at timestamp not null,
+    email varchar(100) not null unique,
+    full_name varchar(100),
+    password varchar(255) not null,
+    updated_at timestamp not null,
+    username varchar(50) not null unique,
+    primary key (id)
+);
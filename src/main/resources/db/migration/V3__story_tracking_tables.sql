@@ -0,0 +1,52 @@
+-- Tables and indexes added after the baseline. Databases that ran with ddl-auto=update before
+-- migrations existed may already have some of them, hence IF NOT EXISTS.
+
+CREATE TABLE IF NOT EXISTS story_dependencies (
+    id integer,
+    created_at timestamp not null,
+    blocked_story_id bigint not null,
+    blocker_story_id bigint not null,
+    project_id bigint not null,
+    primary key (id)
+);
+
+CREATE TABLE IF NOT EXISTS story_audit_log (
+    id integer,
+    action varchar(20) not null check (action in ('CREATED','UPDATED','DELETED')),
+    changed_at timestamp not null,
+    changed_by varchar(50),
+    compressed boolean not null,
+    diff BLOB not null,
+    project_id bigint,
+    story_id bigint not null,
+    primary key (id)
+);
+
+CREATE TABLE IF NOT EXISTS story_status_transitions (
+    id integer,
+    from_status varchar(20) check (from_status in ('NEW','IN_PROGRESS','IN_REVIEW','DONE','BLOCKED')),
+    project_id bigint not null,
+    release_plan_id bigint,
+    story_id bigint not null,
+    to_status varchar(20) not null check (to_status in ('NEW','IN_PROGRESS','IN_REVIEW','DONE','BLOCKED')),
+    transitioned_at timestamp not null,
+    primary key (id)
+);
+
+CREATE TABLE IF NOT EXISTS flow_weekly_stats (
+    id integer,
+    completed integer not null,
+    cycle_time_histogram BLOB,
+    lead_time_histogram BLOB,
+    project_id bigint not null,
+    release_plan_id bigint not null,
+    week_start date not null,
+    primary key (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_story_audit_story ON story_audit_log (story_id, id);
+CREATE INDEX IF NOT EXISTS idx_story_dependencies_project ON story_dependencies (project_id);
+CREATE INDEX IF NOT EXISTS idx_story_dependencies_blocked ON story_dependencies (blocked_story_id);
+CREATE INDEX IF NOT EXISTS idx_status_transitions_story ON story_status_transitions (story_id, to_status);
+CREATE INDEX IF NOT EXISTS idx_status_transitions_project_time ON story_status_transitions (project_id, transitioned_at);
+CREATE INDEX IF NOT EXISTS idx_user_stories_project_rank ON user_stories (project_id, backlog_rank);
@@ -0,0 +1,39 @@
+-- Secondary indexes for the repository queries and mapped collections. Hibernate's SQLite dialect
+-- creates neither foreign-key nor unique-constraint indexes, so every lookup by project, story,
+-- sprint or user was a full table scan. QueryPlanAdvisor checks the result at startup.
+
+-- The entities declare these unique constraints but the dialect never created them. Keep the
+-- oldest row of any duplicates so the unique indexes can be built.
+DELETE FROM story_dependencies WHERE id NOT IN (
+    SELECT MIN(id) FROM story_dependencies GROUP BY blocker_story_id, blocked_story_id);
+DELETE FROM flow_weekly_stats WHERE id NOT IN (
+    SELECT MIN(id) FROM flow_weekly_stats GROUP BY project_id, release_plan_id, week_start);
+DELETE FROM project_member_roles WHERE id NOT IN (
+    SELECT MIN(id) FROM project_member_roles GROUP BY project_id, user_id, role);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_story_dependencies_edge ON story_dependencies (blocker_story_id, blocked_story_id);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_flow_weekly_stats_week ON flow_weekly_stats (project_id, release_plan_id, week_start);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_project_member_roles ON project_member_roles (project_id, user_id, role);
+
+-- Backlog lists by project in id order (rowid follows project_id in the index, so no sort), the
+-- release, sprint and task collections, and reassignment of a departing user's stories
+CREATE INDEX IF NOT EXISTS idx_user_stories_project ON user_stories (project_id);
+CREATE INDEX IF NOT EXISTS idx_user_stories_release_plan ON user_stories (release_plan_id);
+CREATE INDEX IF NOT EXISTS idx_user_stories_sprint ON user_stories (sprint_id);
+CREATE INDEX IF NOT EXISTS idx_user_stories_assignee ON user_stories (assigned_to_user_id);
+CREATE INDEX IF NOT EXISTS idx_tasks_story ON tasks (user_story_id);
+
+CREATE INDEX IF NOT EXISTS idx_release_plans_project_status ON release_plans (project_id, status);
+CREATE INDEX IF NOT EXISTS idx_release_plans_status ON release_plans (status);
+CREATE INDEX IF NOT EXISTS idx_sprints_project ON sprints (project_id);
+
+-- Membership and role lookups by user (project list, login)
+CREATE INDEX IF NOT EXISTS idx_project_members_user ON project_members (user_id);
+CREATE INDEX IF NOT EXISTS idx_user_roles_user ON user_roles (user_id);
+
+-- First time a story reached a status, without sorting its transitions
+DROP INDEX IF EXISTS idx_status_transitions_story;
+CREATE INDEX idx_status_transitions_story ON story_status_transitions (story_id, to_status, transitioned_at);
+
+-- Legacy stories still waiting for a backlog rank; stays empty once the backfill has run
+CREATE INDEX IF NOT EXISTS idx_user_stories_unranked ON user_stories (backlog_rank, project_id) WHERE backlog_rank IS NULL;
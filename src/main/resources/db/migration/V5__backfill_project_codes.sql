@@ -0,0 +1,5 @@
+-- Join codes for projects created before codes existed. This used to run on every startup, one
+-- project at a time; same format as ProjectService (8 upper-case hex characters).
+UPDATE projects
+SET project_code = upper(hex(randomblob(4)))
+WHERE project_code IS NULL OR project_code = '';
@@ -0,0 +1,3 @@
+-- Story points completed per week, sampled by release forecasts. Rows written before this column
+-- keep NULL (unknown) rather than 0; POST /api/projects/{id}/flow-metrics/rebuild recounts them.
+ALTER TABLE flow_weekly_stats ADD COLUMN completed_points integer;
@@ -1,11 +1,28 @@
 package com.asu.ser515.agiletool;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 
-@SpringBootTest
+import java.nio.file.Path;
+
+// Startup also fails if a repository query is missing an index (QueryPlanAdvisor)
+@SpringBootTest(properties = "sqlite.index-advisor.mode=fail")
 class AgileRequirementsToolApplicationTests {
 
+    // A fresh database per run, so the tracked dev database is neither migrated nor modified
+    @TempDir
+    static Path dataDir;
+
+    @DynamicPropertySource
+    static void databaseFiles(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + dataDir.resolve("agile_tool.db"));
+        registry.add("archive.file", () -> dataDir.resolve("agile_tool_archive.db").toString());
+        registry.add("backup.directory", () -> dataDir.resolve("backups").toString());
+    }
+
     @Test
     void contextLoads() {
     }
@@ -0,0 +1,39 @@
+package com.asu.ser515.agiletool.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StoryTextConverterTest {
+
+    @Test
+    void textLookingLikeAHeaderRoundTrips() {
+        for (String text : new String[] {"\u0000Zhello", "\u0000Thello", "\u0000", "\u0000Z", "", "plain",
+                "\u0000Z" + "x".repeat(2000), "\u0000Z" + "compressible ".repeat(200)}) {
+            byte[] stored = StoryTextConverter.encode(text);
+            assertEquals(text, StoryTextConverter.decode(stored));
+        }
+        assertFalse(StoryTextConverter.isCompressed(StoryTextConverter.encode("\u0000Zhello")));
+    }
+
+    @Test
+    void longTextIsCompressedAndShortTextStaysPlain() {
+        String longText = "As a user I want to log in. ".repeat(100);
+        byte[] stored = StoryTextConverter.encode(longText);
+
+        assertTrue(StoryTextConverter.isCompressed(stored));
+        assertTrue(stored.length < longText.length());
+        assertEquals(longText, StoryTextConverter.decode(stored));
+        assertEquals("short", new String(StoryTextConverter.encode("short"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void untaggedLegacyTextReadsAsPlain() {
+        assertEquals("written before compression",
+                StoryTextConverter.decode("written before compression".getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,54 @@
+package com.asu.ser515.agiletool.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MinHashIndexTest {
+
+    @Test
+    void findsNearDuplicatesAmongManyUnrelatedStories() {
+        MinHashIndex index = new MinHashIndex();
+        for (long id = 1; id <= 2000; id++) {
+            index.put(id, MinHashIndex.signature("Story " + id,
+                    "report number " + id + " lists topic " + (id * 7919) + " for team " + (id * 104729)));
+        }
+        String text = "Export the sprint burndown chart as a PDF so stakeholders can review progress offline";
+        index.put(5001, MinHashIndex.signature("Burndown export", text));
+        index.put(5002, MinHashIndex.signature("Burndown export", text + " every week"));
+
+        List<MinHashIndex.Match> matches = index.query(index.signatureOf(5001), 5001, 0.6, 5);
+
+        assertEquals(1, matches.size());
+        assertEquals(5002, matches.get(0).id());
+        assertTrue(matches.get(0).similarity() >= 0.6);
+    }
+
+    @Test
+    void replacedAndRemovedStoriesLeaveTheBuckets() {
+        MinHashIndex index = new MinHashIndex();
+        int[] original = MinHashIndex.signature("Login with single sign-on through the company directory");
+        index.put(1, original);
+        index.put(2, original);
+        for (long id = 3; id <= 200; id++) {
+            index.put(id, MinHashIndex.signature("filler story " + id));
+        }
+
+        index.put(2, MinHashIndex.signature("Completely different wording about invoices"));
+        assertTrue(index.query(original, 1, 0.5, 5).isEmpty());
+
+        index.put(3, original);
+        index.remove(3);
+        assertTrue(index.query(original, 1, 0.5, 5).isEmpty());
+        assertEquals(199, index.size());
+    }
+
+    @Test
+    void textWithoutWordsHasNoSignature() {
+        assertNull(MinHashIndex.signature(null, " - ", "the and of"));
+    }
+}
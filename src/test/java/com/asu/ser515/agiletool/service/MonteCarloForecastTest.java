@@ -0,0 +1,47 @@
+package com.asu.ser515.agiletool.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MonteCarloForecastTest {
+
+    @Test
+    void constantThroughputFinishesInTheSameWeekEveryTrial() {
+        int[] counts = MonteCarloForecast.simulate(new int[] {10, 10, 10}, 35, 10_000, 52,
+                new SplittableRandom(1), ForkJoinPool.commonPool());
+
+        assertEquals(10_000, counts[4]);
+        assertEquals(4, MonteCarloForecast.percentile(counts, 50));
+        assertEquals(4, MonteCarloForecast.percentile(counts, 95));
+        assertEquals(1.0, MonteCarloForecast.probabilityWithin(counts, 4));
+        assertEquals(0.0, MonteCarloForecast.probabilityWithin(counts, 3));
+    }
+
+    @Test
+    void sameSeedGivesTheSameResultOnAnyPool() {
+        int[] history = {0, 3, 5, 8, 13, 2, 0, 21};
+        int[] parallel = MonteCarloForecast.simulate(history, 120, 50_000, 104,
+                new SplittableRandom(42), ForkJoinPool.commonPool());
+        int[] single = MonteCarloForecast.simulate(history, 120, 50_000, 104,
+                new SplittableRandom(42), new ForkJoinPool(1));
+
+        assertArrayEquals(parallel, single);
+        assertTrue(MonteCarloForecast.percentile(parallel, 50) <= MonteCarloForecast.percentile(parallel, 85));
+    }
+
+    @Test
+    void trialsBeyondTheHorizonLandInTheLastBucket() {
+        int[] counts = MonteCarloForecast.simulate(new int[] {0, 0, 1}, 1_000, 1_000, 10,
+                new SplittableRandom(7), ForkJoinPool.commonPool());
+
+        assertEquals(1_000, counts[11]);
+        assertEquals(11, MonteCarloForecast.percentile(counts, 50));
+        assertEquals(0.0, MonteCarloForecast.probabilityWithin(counts, 10));
+    }
+}
@@ -0,0 +1,69 @@
+package com.asu.ser515.agiletool.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RankKeysTest {
+
+    @Test
+    void betweenKeepsOrderUnderRandomInserts() {
+        Random random = new Random(42);
+        List<String> keys = new ArrayList<>(RankKeys.spread(5));
+        for (int i = 0; i < 5000; i++) {
+            int pos = random.nextInt(keys.size() + 1);
+            String before = pos == 0 ? null : keys.get(pos - 1);
+            String after = pos == keys.size() ? null : keys.get(pos);
+            String key = RankKeys.between(before, after);
+
+            assertTrue(before == null || before.compareTo(key) < 0);
+            assertTrue(after == null || key.compareTo(after) < 0);
+            assertFalse(key.endsWith("0"));
+            keys.add(pos, key);
+        }
+    }
+
+    @Test
+    void spreadProducesStrictlyIncreasingShortKeys() {
+        List<String> keys = RankKeys.spread(50_000);
+        for (int i = 1; i < keys.size(); i++) {
+            assertTrue(keys.get(i - 1).compareTo(keys.get(i)) < 0);
+        }
+        assertTrue(keys.stream().allMatch(k -> k.length() <= 5));
+    }
+
+    @Test
+    void appendsAndPrependsKeepAFixedWidth() {
+        String last = null;
+        for (int i = 0; i < 100_000; i++) {
+            String key = RankKeys.between(last, null);
+            assertTrue(last == null || last.compareTo(key) < 0);
+            assertTrue(key.length() <= RankKeys.END_STEP_DIGITS);
+            last = key;
+        }
+
+        List<String> spread = RankKeys.spread(50_000);
+        last = spread.get(spread.size() - 1);
+        String first = spread.get(0);
+        for (int i = 0; i < 100_000; i++) {
+            String appended = RankKeys.between(last, null);
+            String prepended = RankKeys.between(null, first);
+            assertTrue(last.compareTo(appended) < 0 && prepended.compareTo(first) < 0);
+            assertTrue(appended.length() <= 5 && prepended.length() <= 5);
+            last = appended;
+            first = prepended;
+        }
+    }
+
+    @Test
+    void betweenRejectsOutOfOrderBounds() {
+        assertThrows(IllegalArgumentException.class, () -> RankKeys.between("b", "a"));
+        assertThrows(IllegalArgumentException.class, () -> RankKeys.between("a", "a"));
+    }
+}
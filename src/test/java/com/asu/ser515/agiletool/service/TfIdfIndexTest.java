@@ -0,0 +1,51 @@
+package com.asu.ser515.agiletool.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TfIdfIndexTest {
+
+    @Test
+    void nearestStoriesShareTheRareTerms() {
+        TfIdfIndex index = new TfIdfIndex();
+        for (long id = 1; id <= 500; id++) {
+            index.put(id, 3, TfIdfIndex.termCounts("Story " + id, "generic backlog item number " + id));
+        }
+        index.put(1001, 8, TfIdfIndex.termCounts("Payment gateway", "Integrate the stripe payment gateway checkout"));
+        index.put(1002, 8, TfIdfIndex.termCounts("Refunds", "Stripe payment refunds through the gateway"));
+
+        List<TfIdfIndex.Neighbour> nearest = index.nearest(
+                TfIdfIndex.termCounts("Stripe checkout", "Accept card payment with the stripe gateway"), 0, 3, 0.1);
+
+        assertEquals(2, nearest.size());
+        assertEquals(1001, nearest.get(0).id());
+        assertEquals(8, nearest.get(0).points());
+        assertTrue(nearest.get(0).similarity() >= nearest.get(1).similarity());
+    }
+
+    @Test
+    void removedAndReestimatedStoriesStayConsistentThroughCompaction() {
+        TfIdfIndex index = new TfIdfIndex();
+        for (long id = 1; id <= 300; id++) {
+            index.put(id, 1, TfIdfIndex.termCounts("filler " + id + " words " + (id % 17)));
+        }
+        index.put(400, 5, TfIdfIndex.termCounts("Export audit log to csv"));
+        for (long id = 1; id <= 200; id++) {
+            index.remove(id);
+        }
+        for (long id = 500; id <= 700; id++) {
+            index.put(id, 2, TfIdfIndex.termCounts("more filler " + id));
+        }
+        assertTrue(index.setPoints(400, 13));
+
+        List<TfIdfIndex.Neighbour> nearest = index.nearest(TfIdfIndex.termCounts("audit log csv export"), 0, 1, 0.1);
+
+        assertEquals(302, index.size());
+        assertEquals(400, nearest.get(0).id());
+        assertEquals(13, nearest.get(0).points());
+    }
+}